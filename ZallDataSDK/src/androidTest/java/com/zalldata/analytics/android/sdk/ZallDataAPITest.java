@@ -30,9 +30,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
-import java.lang.reflect.Field;
 import java.util.Date;
-import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.closeTo;
@@ -79,29 +77,20 @@ public class ZallDataAPITest {
         Context context = ApplicationProvider.getApplicationContext();
         ZallDataAPI.startWithConfigOptions(context, new ZAConfigOptions(""));
         ZallDataAPI.sharedInstance().trackTimerStart("event_pause");
-        Field field;
-        Map<String, EventTimer> map;
+        EventTimerRegistry registry = ZallDataAPI.sharedInstance().mTrackTimer;
         try {
             Thread.sleep(1000);
-            field = ZallDataAPI.class.getDeclaredField("mTrackTimer");
-            assertNotNull(field);
-            field.setAccessible(true);
-            map = (Map<String, EventTimer>) field.get(ZallDataAPI.sharedInstance());
-            assertNotNull(map);
-            assertEquals(1, map.size());
+            assertNotNull(registry);
+            assertNotNull(registry.get("event_pause"));
             Thread.sleep(9000);
             ZallDataAPI.sharedInstance().trackTimerPause("event_pause");
             Thread.sleep(10000);
             ZallDataAPI.sharedInstance().trackTimerResume("event_pause");
             Thread.sleep(10000);
-            EventTimer eventTimer = map.get("event_pause");
+            EventTimer eventTimer = registry.get("event_pause");
             eventTimer.duration();
             long time = eventTimer.getEndTime() - eventTimer.getStartTime() + eventTimer.getEventAccumulatedDuration();
             assertThat((double) time, closeTo(20000, 1000));
-        } catch (NoSuchFieldException e) {
-            e.printStackTrace();
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
@@ -116,29 +105,20 @@ public class ZallDataAPITest {
         Context context = ApplicationProvider.getApplicationContext();
         ZallDataAPI.startWithConfigOptions(context, new ZAConfigOptions(""));
         ZallDataAPI.sharedInstance().trackTimerStart("event_pause");
-        Field field;
-        Map<String, EventTimer> map;
+        EventTimerRegistry registry = ZallDataAPI.sharedInstance().mTrackTimer;
         try {
             Thread.sleep(1000);
-            field = ZallDataAPI.class.getDeclaredField("mTrackTimer");
-            assertNotNull(field);
-            field.setAccessible(true);
-            map = (Map<String, EventTimer>) field.get(ZallDataAPI.sharedInstance());
-            assertNotNull(map);
-            assertEquals(1, map.size());
+            assertNotNull(registry);
+            assertNotNull(registry.get("event_pause"));
             Thread.sleep(9000);
             ZallDataAPI.sharedInstance().trackTimerPause("event_pause");
             Thread.sleep(10000);
             ZallDataAPI.sharedInstance().trackTimerPause("event_pause");
             Thread.sleep(10000);
-            EventTimer eventTimer = map.get("event_pause");
+            EventTimer eventTimer = registry.get("event_pause");
             eventTimer.duration();
             long time = eventTimer.getEndTime() - eventTimer.getStartTime() + eventTimer.getEventAccumulatedDuration();
             assertThat((double) time, closeTo(10000, 1000));
-        } catch (NoSuchFieldException e) {
-            e.printStackTrace();
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
@@ -154,16 +134,11 @@ public class ZallDataAPITest {
         Context context = ApplicationProvider.getApplicationContext();
         ZallDataAPI.startWithConfigOptions(context, new ZAConfigOptions(""));
         ZallDataAPI.sharedInstance().trackTimerStart("event_pause");
-        Field field;
-        Map<String, EventTimer> map;
+        EventTimerRegistry registry = ZallDataAPI.sharedInstance().mTrackTimer;
         try {
             Thread.sleep(1000);
-            field = ZallDataAPI.class.getDeclaredField("mTrackTimer");
-            assertNotNull(field);
-            field.setAccessible(true);
-            map = (Map<String, EventTimer>) field.get(ZallDataAPI.sharedInstance());
-            assertNotNull(map);
-            assertEquals(1, map.size());
+            assertNotNull(registry);
+            assertNotNull(registry.get("event_pause"));
             Thread.sleep(9000);
             ZallDataAPI.sharedInstance().trackTimerPause("event_pause");
             Thread.sleep(10000);
@@ -175,14 +150,10 @@ public class ZallDataAPITest {
             Thread.sleep(10000);
             ZallDataAPI.sharedInstance().trackTimerResume("event_pause");
             Thread.sleep(10000);
-            EventTimer eventTimer = map.get("event_pause");
+            EventTimer eventTimer = registry.get("event_pause");
             eventTimer.duration();
             long time = eventTimer.getEndTime() - eventTimer.getStartTime() + eventTimer.getEventAccumulatedDuration();
             assertThat((double) time, closeTo(20000, 1000));
-        } catch (NoSuchFieldException e) {
-            e.printStackTrace();
-        } catch (IllegalAccessException e) {
-            e.printStackTrace();
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
@@ -184,6 +184,37 @@ abstract class AbstractZAConfigOptions {
      */
     protected boolean mIsTrackPageLeave = false;
 
+    /**
+     * 批量写入数据库时单次写入的最大条数，小于 2 时不开启批量写入
+     */
+    int mBatchInsertSize;
+
+    /**
+     * 批量写入数据库时事件在内存中的最长缓存时间，单位毫秒
+     */
+    int mBatchInsertDelay;
+
+    /**
+     * 上报数据时同时发送的最大请求数，大于 1 时使用流水线方式上报
+     */
+    int mMaxInFlightFlushRequests = 1;
+
+    /**
+     * 事件任务队列写满后的处理策略
+     */
+    int mTrackQueueOverflowPolicy = ZallDataAPI.TrackQueueOverflowPolicy.SPILL;
+
+    /**
+     * 事件任务队列过载检测的高、低水位，高水位小于等于 0 时不检测过载
+     */
+    int mTrackQueueHighWatermark;
+    int mTrackQueueLowWatermark;
+
+    /**
+     * SDK 性能指标自上报间隔，单位毫秒，小于等于 0 时不上报
+     */
+    int mMetricsReportInterval;
+
     /**
      * 是否开启数据采集
      *
@@ -211,6 +242,15 @@ abstract class AbstractZAConfigOptions {
         return isSubProcessFlushData;
     }
 
+    /**
+     * 是否开启事件批量写入数据库
+     *
+     * @return true 开启，false 未开启
+     */
+    public boolean isBatchInsertEnabled() {
+        return mBatchInsertSize > 1 && mBatchInsertDelay > 0;
+    }
+
     /**
      * 是否开启页面停留时长采集
      *
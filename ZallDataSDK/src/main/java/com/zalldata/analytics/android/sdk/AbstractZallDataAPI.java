@@ -56,6 +56,8 @@ import com.zalldata.analytics.android.sdk.internal.rpc.ZallDataContentObserver;
 import com.zalldata.analytics.android.sdk.listener.ZAEventListener;
 import com.zalldata.analytics.android.sdk.listener.ZAFunctionListener;
 import com.zalldata.analytics.android.sdk.listener.ZAJSListener;
+import com.zalldata.analytics.android.sdk.metrics.EventMetrics;
+import com.zalldata.analytics.android.sdk.metrics.StartupProfiler;
 import com.zalldata.analytics.android.sdk.remote.BaseZallDataSDKRemoteManager;
 import com.zalldata.analytics.android.sdk.remote.ZallDataRemoteManager;
 import com.zalldata.analytics.android.sdk.util.AppInfoUtils;
@@ -65,6 +67,7 @@ import com.zalldata.analytics.android.sdk.util.ZAContextManager;
 import com.zalldata.analytics.android.sdk.util.ZADataHelper;
 import com.zalldata.analytics.android.sdk.util.ZallDataUtils;
 import com.zalldata.analytics.android.sdk.util.TimeUtils;
+import com.zalldata.analytics.android.sdk.util.ViewClickSnapshot;
 import com.zalldata.analytics.android.sdk.visual.model.ViewNode;
 import com.zalldata.analytics.android.sdk.visual.property.VisualPropertiesManager;
 
@@ -73,8 +76,6 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.lang.ref.WeakReference;
-import java.security.SecureRandom;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -90,6 +91,8 @@ import static com.zalldata.analytics.android.sdk.util.ZADataHelper.assertValue;
 
 abstract class AbstractZallDataAPI implements IZallDataAPI {
     protected static final String TAG = "ZA.ZallDataAPI";
+    /* 事件还没有经过采样 */
+    private static final double SAMPLE_RATE_UNDECIDED = -1;
     // SDK版本
     static final String VERSION = BuildConfig.SDK_VERSION;
     // Maps each token to a singleton ZallDataAPI instance
@@ -104,16 +107,21 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
     protected ActivityLifecycleCallbacks mActivityLifecycleCallbacks;
     protected AnalyticsMessages mMessages;
     protected final PersistentDistinctId mDistinctId;
-    protected final PersistentSuperProperties mSuperProperties;
+    /* 静态公共属性 */
+    protected final SuperPropertiesStore mSuperProperties;
     protected final PersistentFirstStart mFirstStart;
     protected final PersistentFirstDay mFirstDay;
     protected final PersistentFirstTrackInstallation mFirstTrackInstallation;
     protected final PersistentFirstTrackInstallationWithCallback mFirstTrackInstallationWithCallback;
-    protected final Map<String, EventTimer> mTrackTimer;
+    protected final EventTimerRegistry mTrackTimer;
+    /* 预置属性快照 */
+    protected final PresetPropertiesCache mPresetProperties = new PresetPropertiesCache(this);
     protected final Object mLoginIdLock = new Object();
     protected List<Class> mIgnoredViewTypeList = new ArrayList<>();
     /* LoginId */
     protected String mLoginId = null;
+    /* mLoginId 是否已经从 ContentProvider 读取或被 login、logout 修改 */
+    protected volatile boolean mLoginIdLoaded = false;
     /* ZallAnalytics 地址 */
     protected String mServerUrl;
     protected String mOriginServerUrl;
@@ -144,9 +152,10 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
     protected String mCookie;
     protected TrackTaskManager mTrackTaskManager;
     protected TrackTaskManagerThread mTrackTaskManagerThread;
+    /* 分阶段初始化 */
+    SDKInitScheduler mInitScheduler;
     protected ZallDataScreenOrientationDetector mOrientationDetector;
     protected ZallDataDynamicSuperProperties mDynamicSuperPropertiesCallBack;
-    protected SimpleDateFormat mIsFirstDayDateFormat;
     protected ZallDataTrackEventCallBack mTrackEventCallBack;
     protected List<ZAEventListener> mEventListenerList;
     protected List<ZAFunctionListener> mFunctionListenerList;
@@ -169,31 +178,37 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
         mAutoTrackIgnoredActivities = new ArrayList<>();
         mHeatMapActivities = new ArrayList<>();
         mVisualizedAutoTrackActivities = new ArrayList<>();
+        final long startNanos = StartupProfiler.start();
+        long stepNanos = startNanos;
         PersistentLoader.initLoader(context);
         mDistinctId = (PersistentDistinctId) PersistentLoader.loadPersistent(PersistentLoader.PersistentName.DISTINCT_ID);
-        mSuperProperties = (PersistentSuperProperties) PersistentLoader.loadPersistent(PersistentLoader.PersistentName.SUPER_PROPERTIES);
+        mSuperProperties = new SuperPropertiesStore((PersistentSuperProperties) PersistentLoader.loadPersistent(PersistentLoader.PersistentName.SUPER_PROPERTIES));
         mFirstStart = (PersistentFirstStart) PersistentLoader.loadPersistent(PersistentLoader.PersistentName.FIRST_START);
         mFirstTrackInstallation = (PersistentFirstTrackInstallation) PersistentLoader.loadPersistent(PersistentLoader.PersistentName.FIRST_INSTALL);
         mFirstTrackInstallationWithCallback = (PersistentFirstTrackInstallationWithCallback) PersistentLoader.loadPersistent(PersistentLoader.PersistentName.FIRST_INSTALL_CALLBACK);
         mFirstDay = (PersistentFirstDay) PersistentLoader.loadPersistent(PersistentLoader.PersistentName.FIRST_DAY);
-        mTrackTimer = new HashMap<>();
+        mTrackTimer = new EventTimerRegistry();
         mFragmentAPI = new FragmentAPI();
+        stepNanos = StartupProfiler.recordStep(StartupProfiler.STAGE_CRITICAL, "persistent", stepNanos);
         try {
             mZAConfigOptions = configOptions.clone();
             mTrackTaskManager = TrackTaskManager.getInstance();
+            mTrackTaskManager.setOverflowPolicy(mZAConfigOptions.mTrackQueueOverflowPolicy);
+            mTrackTaskManager.setWatermarks(mZAConfigOptions.mTrackQueueHighWatermark, mZAConfigOptions.mTrackQueueLowWatermark);
             mTrackTaskManagerThread = new TrackTaskManagerThread();
-            new Thread(mTrackTaskManagerThread, ThreadNameConstants.THREAD_TASK_QUEUE).start();
+            new Thread(mTrackTaskManagerThread, ThreadNameConstants.THREAD_TASK_EXECUTE).start();
+            mInitScheduler = new SDKInitScheduler(mTrackTaskManager);
+            stepNanos = StartupProfiler.recordStep(StartupProfiler.STAGE_CRITICAL, "track_thread", stepNanos);
             ZallDataExceptionHandler.init();
             initZAConfig(mZAConfigOptions.mServerUrl, packageName);
             mZAContextManager = new ZAContextManager(mContext, mDisableTrackDeviceId);
             mMessages = AnalyticsMessages.getInstance(mContext, (ZallDataAPI) this);
+            registerMetricsGauges();
+            stepNanos = StartupProfiler.recordStep(StartupProfiler.STAGE_CRITICAL, "config", stepNanos);
             mRemoteManager = new ZallDataRemoteManager((ZallDataAPI) this);
-            //先从缓存中读取 SDKConfig
+            //先从缓存中读取 SDKConfig，关闭 SDK、关闭 debug 模式需要在初始化返回前生效
             mRemoteManager.applySDKConfigFromCache();
-            // 可视化自定义属性拉取配置
-            if (mZAConfigOptions.isVisualizedPropertiesEnabled()) {
-                VisualPropertiesManager.getInstance().requestVisualConfig(mContext, (ZallDataAPI) this);
-            }
+            stepNanos = StartupProfiler.recordStep(StartupProfiler.STAGE_CRITICAL, "remote_config", stepNanos);
             //打开 debug 模式，弹出提示
             if (mDebugMode != ZallDataAPI.DebugMode.DEBUG_OFF && mIsMainProcess) {
                 if (SHOW_DEBUG_INFO_VIEW) {
@@ -205,18 +220,21 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
 
             registerLifecycleCallbacks();
             registerObserver();
+            ZallDataUtils.initUniAppStatus();
+            stepNanos = StartupProfiler.recordStep(StartupProfiler.STAGE_CRITICAL, "lifecycle", stepNanos);
+            scheduleInitTasks();
             if (!mZAConfigOptions.isDisableSDK()) {
                 delayInitTask();
             }
+            StartupProfiler.recordStep(StartupProfiler.STAGE_CRITICAL, "schedule", stepNanos);
             if (ZALog.isLogEnabled()) {
                 ZALog.i(TAG, String.format(Locale.CHINA, "Initialized the instance of Zall Analytics SDK with server"
                         + " url '%s', flush interval %d ms, debugMode: %s", mServerUrl, mZAConfigOptions.mFlushInterval, debugMode));
             }
-            mLoginId = DbAdapter.getInstance().getLoginId();
-            ZallDataUtils.initUniAppStatus();
         } catch (Throwable ex) {
             ZALog.d(TAG, ex.getMessage());
         }
+        StartupProfiler.finishStage(StartupProfiler.STAGE_CRITICAL, startNanos);
     }
 
     protected AbstractZallDataAPI() {
@@ -449,6 +467,7 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
      * @param viewNode ViewTree 中的 View 节点
      */
     public void trackInternal(final String eventName, final JSONObject properties, final ViewNode viewNode) {
+        int priority = AopConstants.APP_CLICK_EVENT_NAME.equals(eventName) ? TrackTaskManager.PRIORITY_SHEDDABLE : TrackTaskManager.PRIORITY_NORMAL;
         mTrackTaskManager.addTrackEventTask(new Runnable() {
             @Override
             public void run() {
@@ -461,7 +480,7 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
                     ZALog.printStackTrace(e);
                 }
             }
-        });
+        }, priority);
     }
 
     public ZallDataAPI.DebugMode getDebugMode() {
@@ -514,19 +533,10 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
      * startTime = System.currentTimeMillis()
      */
     public void appBecomeActive() {
-        synchronized (mTrackTimer) {
-            try {
-                for (Map.Entry<String, EventTimer> entry : mTrackTimer.entrySet()) {
-                    if (entry != null) {
-                        EventTimer eventTimer = (EventTimer) entry.getValue();
-                        if (eventTimer != null) {
-                            eventTimer.setStartTime(SystemClock.elapsedRealtime());
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                ZALog.i(TAG, "appBecomeActive error:" + e.getMessage());
-            }
+        try {
+            mTrackTimer.appBecomeActive(SystemClock.elapsedRealtime());
+        } catch (Exception e) {
+            ZALog.i(TAG, "appBecomeActive error:" + e.getMessage());
         }
     }
 
@@ -536,25 +546,10 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
      * eventAccumulatedDuration + System.currentTimeMillis() - startTime - SessionIntervalTime
      */
     public void appEnterBackground() {
-        synchronized (mTrackTimer) {
-            try {
-                for (Map.Entry<String, EventTimer> entry : mTrackTimer.entrySet()) {
-                    if (entry != null) {
-                        if ("$AppEnd".equals(entry.getKey())) {
-                            continue;
-                        }
-                        EventTimer eventTimer = (EventTimer) entry.getValue();
-                        if (eventTimer != null && !eventTimer.isPaused()) {
-                            long eventAccumulatedDuration =
-                                    eventTimer.getEventAccumulatedDuration() + SystemClock.elapsedRealtime() - eventTimer.getStartTime() - getSessionIntervalTime();
-                            eventTimer.setEventAccumulatedDuration(eventAccumulatedDuration);
-                            eventTimer.setStartTime(SystemClock.elapsedRealtime());
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                ZALog.i(TAG, "appEnterBackground error:" + e.getMessage());
-            }
+        try {
+            mTrackTimer.appEnterBackground(SystemClock.elapsedRealtime(), getSessionIntervalTime());
+        } catch (Exception e) {
+            ZALog.i(TAG, "appEnterBackground error:" + e.getMessage());
         }
     }
 
@@ -605,6 +600,52 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
         trackInternal(eventName, eventProperties, viewNode);
     }
 
+    /**
+     * $AppClick 事件，属性在 track 线程中根据主线程采集的快照生成
+     *
+     * @param snapshot 点击 View 的快照
+     */
+    void trackViewClick(final ViewClickSnapshot snapshot) {
+        mTrackTaskManager.addTrackEventTask(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    String distinctId = getDistinctId();
+                    // 先检查黑名单，被忽略的事件不消耗限流令牌
+                    if (mRemoteManager != null && mRemoteManager.ignoreEvent(AopConstants.APP_CLICK_EVENT_NAME)) {
+                        return;
+                    }
+                    // 被采样或限流丢弃时不生成点击属性
+                    double sampleRate = sampleEvent(AopConstants.APP_CLICK_EVENT_NAME);
+                    if (sampleRate == 0) {
+                        return;
+                    }
+                    JSONObject properties = ZADataHelper.appendLibMethodAutoTrack(snapshot.buildProperties());
+                    ViewNode viewNode = snapshot.getViewNode();
+                    if (viewNode != null && ZallDataAPI.getConfigOptions().isVisualizedPropertiesEnabled()) {
+                        VisualPropertiesManager.getInstance().mergeVisualProperties(VisualPropertiesManager.VisualEventType.APP_CLICK, properties, viewNode);
+                    }
+                    trackEvent(EventType.TRACK, AopConstants.APP_CLICK_EVENT_NAME, properties, null, distinctId, getLoginId(), null, sampleRate);
+                } catch (Exception e) {
+                    ZALog.printStackTrace(e);
+                }
+            }
+        }, TrackTaskManager.PRIORITY_SHEDDABLE);
+    }
+
+    /**
+     * 按在线控制配置对事件采样和限流，采样使用匿名 ID，登录前后结果不变
+     *
+     * @param eventName 事件名
+     * @return 0 表示丢弃事件，否则为事件的等效采样率
+     */
+    private double sampleEvent(String eventName) {
+        if (mRemoteManager == null) {
+            return 1;
+        }
+        return mRemoteManager.sampleEvent(eventName, getAnonymousId());
+    }
+
     public ZAContextManager getZAContextManager() {
         return mZAContextManager;
     }
@@ -643,11 +684,7 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
             return true;
         }
         try {
-            if (mIsFirstDayDateFormat == null) {
-                mIsFirstDayDateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
-            }
-            String current = mIsFirstDayDateFormat.format(eventTime);
-            return firstDay.equals(current);
+            return TimeUtils.isSameDay(eventTime, firstDay);
         } catch (Exception e) {
             com.zalldata.analytics.android.sdk.ZALog.printStackTrace(e);
         }
@@ -678,11 +715,9 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
             libProperties.put("$lib_method", "code");
             mZAContextManager.addKeyIfExist(libProperties, "$app_version");
 
-            JSONObject superProperties = mSuperProperties.get();
-            if (superProperties != null) {
-                if (superProperties.has("$app_version")) {
-                    libProperties.put("$app_version", superProperties.get("$app_version"));
-                }
+            Object superAppVersion = mSuperProperties.get().get("$app_version");
+            if (superAppVersion != null) {
+                libProperties.put("$app_version", superAppVersion);
             }
 
             StackTraceElement[] trace = (new Exception()).getStackTrace();
@@ -708,7 +743,9 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
                 eventProperties.put("project", eventProject);
             }
             mMessages.enqueueEventMessage(eventType, eventProperties);
-            ZALog.i(TAG, "track event:\n" + JSONUtils.formatJson(eventProperties.toString()));
+            if (ZALog.isLogEnabled()) {
+                ZALog.i(TAG, ZALog.formatJson("track event:\n", eventProperties.toString()));
+            }
         } catch (Exception ex) {
             ZALog.printStackTrace(ex);
         }
@@ -721,17 +758,21 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
 
     protected void trackEvent(final EventType eventType, String eventName, final JSONObject properties, JSONObject dynamicProperty, String
             distinctId, String loginId, String originalDistinctId) {
+        trackEvent(eventType, eventName, properties, dynamicProperty, distinctId, loginId, originalDistinctId, SAMPLE_RATE_UNDECIDED);
+    }
+
+    /**
+     * @param sampleRate 已经得到的采样结果，{@link #SAMPLE_RATE_UNDECIDED} 表示需要在这里采样
+     */
+    private void trackEvent(final EventType eventType, String eventName, final JSONObject properties, JSONObject dynamicProperty, String
+            distinctId, String loginId, String originalDistinctId, double sampleRate) {
         try {
+            long startNanos = System.nanoTime();
             EventTimer eventTimer = null;
             if (!TextUtils.isEmpty(eventName)) {
-                synchronized (mTrackTimer) {
-                    eventTimer = mTrackTimer.get(eventName);
-                    mTrackTimer.remove(eventName);
-                }
-
-                if (eventName.endsWith("_ZATimer") && eventName.length() > 45) {// Timer 计时交叉计算拼接的字符串长度 45
-                    eventName = eventName.substring(0, eventName.length() - 45);
-                }
+                eventTimer = mTrackTimer.remove(eventName);
+                // 交叉计时器使用创建时记录的事件名
+                eventName = eventTimer != null ? eventTimer.getEventName() : EventTimerRegistry.getEventName(eventName);
             }
 
             if (eventType.isTrack()) {
@@ -740,6 +781,13 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
                 if (mRemoteManager != null && mRemoteManager.ignoreEvent(eventName)) {
                     return;
                 }
+                //采样和限流在生成属性之前进行，丢弃的事件不再合并属性
+                if (sampleRate == SAMPLE_RATE_UNDECIDED) {
+                    sampleRate = sampleEvent(eventName);
+                }
+                if (sampleRate == 0) {
+                    return;
+                }
             }
             assertPropertyTypes(properties);
 
@@ -747,19 +795,12 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
                 JSONObject sendProperties;
 
                 if (eventType.isTrack()) {
-                    Map<String, Object> deviceInfo = mZAContextManager.getDeviceInfo();
-                    if (deviceInfo != null) {
-                        sendProperties = new JSONObject(deviceInfo);
-                    } else {
-                        sendProperties = new JSONObject();
+                    if (dynamicProperty == null) {
+                        dynamicProperty = getDynamicProperty();
                     }
-                    //之前可能会因为没有权限无法获取运营商信息，检测再次获取
-                    getCarrier(sendProperties);
-                    if (!"$AppEnd".equals(eventName) && !"$AppDeeplinkLaunch".equals(eventName)) {
-                        //合并 $latest_utm 属性
-                        ZallDataUtils.mergeJSONObject(ChannelUtils.getLatestUtmProperties(), sendProperties);
-                    }
-                    mergerDynamicAndSuperProperties(sendProperties, dynamicProperty);
+                    //设备信息、运营商、$latest_utm 属性和公共属性从快照复制
+                    sendProperties = mPresetProperties.newEventProperties(
+                            !"$AppEnd".equals(eventName) && !"$AppDeeplinkLaunch".equals(eventName), dynamicProperty);
 
                     if (mReferrerScreenTitle != null) {
                         sendProperties.put("$referrer_title", mReferrerScreenTitle);
@@ -788,6 +829,11 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
                     } catch (Exception e) {
                         ZALog.printStackTrace(e);
                     }
+
+                    // 等效采样率（采样率乘以限流的通过比例），用于分析时还原事件量
+                    if (sampleRate < 1) {
+                        sendProperties.put("$sample_rate", sampleRate);
+                    }
                 } else if (eventType.isProfile()) {
                     sendProperties = new JSONObject();
                 } else {
@@ -797,12 +843,12 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
                 // 禁用采集事件时，先计算基本信息存储到缓存中
                 if (!mZAConfigOptions.isDataCollectEnable) {
                     if (ZALog.isLogEnabled()) {
-                        ZALog.i(TAG, "track event, isDataCollectEnable = false, eventName = " + eventName + ",property = " + JSONUtils.formatJson(sendProperties.toString()));
+                        ZALog.i(TAG, ZALog.formatJson("track event, isDataCollectEnable = false, eventName = " + eventName + ",property = ", sendProperties.toString()));
                     }
                     transformEventTaskQueue(eventType, eventName, properties, sendProperties, distinctId, loginId, originalDistinctId, eventTimer);
                     return;
                 }
-                trackEventInternal(eventType, eventName, properties, sendProperties, distinctId, loginId, originalDistinctId, eventTimer);
+                trackEventInternal(eventType, eventName, properties, sendProperties, distinctId, loginId, originalDistinctId, eventTimer, startNanos);
             } catch (JSONException e) {
                 throw new InvalidDataException("Unexpected property");
             }
@@ -846,8 +892,7 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
             eventObject.put("time", eventTime);
 
             try {
-                SecureRandom secureRandom = new SecureRandom();
-                eventObject.put("_track_id", secureRandom.nextInt());
+                eventObject.put("_track_id", TrackIdGenerator.nextId());
             } catch (Exception e) {
                 //ignore
             }
@@ -863,11 +908,9 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
             if (libObject != null) {
                 mZAContextManager.addKeyIfExist(libObject, "$app_version");
                 //update lib $app_version from super properties
-                JSONObject superProperties = mSuperProperties.get();
-                if (superProperties != null) {
-                    if (superProperties.has("$app_version")) {
-                        libObject.put("$app_version", superProperties.get("$app_version"));
-                    }
+                Object superAppVersion = mSuperProperties.get().get("$app_version");
+                if (superAppVersion != null) {
+                    libObject.put("$app_version", superAppVersion);
                 }
             }
 
@@ -966,6 +1009,7 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
                 synchronized (mLoginIdLock) {
                     if (!loginId.equals(DbAdapter.getInstance().getLoginId()) && !loginId.equals(getAnonymousId())) {
                         mLoginId = loginId;
+                        mLoginIdLoaded = true;
                         DbAdapter.getInstance().commitLoginId(loginId);
                         eventObject.put("login_id", loginId);
                         try {
@@ -990,7 +1034,7 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
                         }
                         mMessages.enqueueEventMessage(type, eventObject);
                         if (ZALog.isLogEnabled()) {
-                            ZALog.i(TAG, "track event:\n" + JSONUtils.formatJson(eventObject.toString()));
+                            ZALog.i(TAG, ZALog.formatJson("track event:\n", eventObject.toString()));
                         }
                     }
                 }
@@ -1020,7 +1064,7 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
                 }
                 mMessages.enqueueEventMessage(type, eventObject);
                 if (ZALog.isLogEnabled()) {
-                    ZALog.i(TAG, "track event from H5:\n" + JSONUtils.formatJson(eventObject.toString()));
+                    ZALog.i(TAG, ZALog.formatJson("track event from H5:\n", eventObject.toString()));
                 }
             }
         } catch (Exception e) {
@@ -1095,7 +1139,6 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
         if (mZAConfigOptions.isSubProcessFlushData && DbAdapter.getInstance().isFirstProcess()) {
             //如果是首个进程
             DbAdapter.getInstance().commitFirstProcessState(false);
-            DbAdapter.getInstance().commitSubProcessFlushState(false);
         }
 
         this.mAutoTrack = configBundle.getBoolean("com.zalldata.analytics.android.AutoTrack",
@@ -1179,11 +1222,9 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
             public void run() {
                 try {
                     assertKey(eventName);
-                    synchronized (mTrackTimer) {
-                        EventTimer eventTimer = mTrackTimer.get(eventName);
-                        if (eventTimer != null && eventTimer.isPaused() != isPause) {
-                            eventTimer.setTimerState(isPause, startTime);
-                        }
+                    EventTimer eventTimer = mTrackTimer.get(eventName);
+                    if (eventTimer != null) {
+                        eventTimer.setTimerState(isPause, startTime);
                     }
                 } catch (Exception e) {
                     ZALog.printStackTrace(e);
@@ -1217,12 +1258,10 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
      * @param dynamicProperty 动态公共属性
      */
     private void mergerDynamicAndSuperProperties(JSONObject eventProperty, JSONObject dynamicProperty) {
-        JSONObject superProperties = getSuperProperties();
         if (dynamicProperty == null) {
             dynamicProperty = getDynamicProperty();
         }
-        JSONObject removeDuplicateSuperProperties = ZallDataUtils.mergeSuperJSONObject(dynamicProperty, superProperties);
-        ZallDataUtils.mergeJSONObject(removeDuplicateSuperProperties, eventProperty);
+        mSuperProperties.get().mergeTo(eventProperty, dynamicProperty);
     }
 
     private void showDebugModeWarning() {
@@ -1318,8 +1357,11 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
         return enterDb;
     }
 
+    /**
+     * @param startNanos 开始组装属性时的 System.nanoTime()，用于统计属性组装耗时
+     */
     private void trackEventInternal(final EventType eventType, final String eventName, final JSONObject properties, final JSONObject sendProperties,
-                                    String distinctId, String loginId, final String originalDistinctId, final EventTimer eventTimer) throws JSONException {
+                                    String distinctId, String loginId, final String originalDistinctId, final EventTimer eventTimer, long startNanos) throws JSONException {
         String libDetail = null;
         String lib_version = VERSION;
         String appEnd_app_version = null;
@@ -1385,7 +1427,7 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
 
         if (null != eventTimer) {
             try {
-                double duration = Double.parseDouble(eventTimer.duration());
+                double duration = eventTimer.duration();
                 if (duration > 0) {
                     sendProperties.put("event_duration", duration);
                 }
@@ -1403,18 +1445,15 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
         }
 
         //update lib $app_version from super properties
-        JSONObject superProperties = mSuperProperties.get();
-        if (superProperties != null) {
-            if (superProperties.has("$app_version")) {
-                libProperties.put("$app_version", superProperties.get("$app_version"));
-            }
+        Object superAppVersion = mSuperProperties.get().get("$app_version");
+        if (superAppVersion != null) {
+            libProperties.put("$app_version", superAppVersion);
         }
 
         final JSONObject dataObj = new JSONObject();
 
         try {
-            SecureRandom random = new SecureRandom();
-            dataObj.put("_track_id", random.nextInt());
+            dataObj.put("_track_id", TrackIdGenerator.nextId());
         } catch (Exception e) {
             // ignore
         }
@@ -1569,12 +1608,13 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
             ZALog.printStackTrace(e);
         }
 
+        EventMetrics.recordSince(EventMetrics.STAGE_PROPERTIES, startNanos);
         mMessages.enqueueEventMessage(eventType.getEventType(), dataObj);
         if ("$AppStart".equals(eventName)) {
             mZAContextManager.setAppStartSuccess(true);
         }
         if (ZALog.isLogEnabled()) {
-            ZALog.i(TAG, "track event:\n" + JSONUtils.formatJson(dataObj.toString()));
+            ZALog.i(TAG, ZALog.formatJson("track event:\n", dataObj.toString()));
         }
     }
 
@@ -1594,14 +1634,15 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
             @Override
             public void run() {
                 try {
+                    long startNanos = System.nanoTime();
                     if (eventType.isTrack()) {
                         JSONObject jsonObject = new JSONObject(mZAContextManager.getDeviceInfo());
                         JSONUtils.mergeDistinctProperty(jsonObject, sendProperties);
                     }
                     if ("$SignUp".equals(eventName)) {// 如果是 "$SignUp" 则需要重新补上 originalId
-                        trackEventInternal(eventType, eventName, properties, sendProperties, distinctId, loginId, getAnonymousId(), eventTimer);
+                        trackEventInternal(eventType, eventName, properties, sendProperties, distinctId, loginId, getAnonymousId(), eventTimer, startNanos);
                     } else {
-                        trackEventInternal(eventType, eventName, properties, sendProperties, distinctId, loginId, originalDistinctId, eventTimer);
+                        trackEventInternal(eventType, eventName, properties, sendProperties, distinctId, loginId, originalDistinctId, eventTimer, startNanos);
                     }
                 } catch (Exception e) {
                     ZALog.printStackTrace(e);
@@ -1618,7 +1659,7 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
                 propertiesObject.put("$time", System.currentTimeMillis());
             }
             if (ZALog.isLogEnabled()) {
-                ZALog.i(TAG, "track H5, isDataCollectEnable = false, eventInfo = " + JSONUtils.formatJson(eventInfo));
+                ZALog.i(TAG, ZALog.formatJson("track H5, isDataCollectEnable = false, eventInfo = ", eventInfo));
             }
             mTrackTaskManager.transformTaskQueue(new Runnable() {
                 @Override
@@ -1712,6 +1753,36 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
         contentResolver.registerContentObserver(DbParams.getInstance().getEnableSDKUri(), false, contentObserver);
     }
 
+    /**
+     * 注册性能指标快照中的即时值：任务队列、数据库行数、数据库文件大小和点击事件主线程耗时
+     */
+    private void registerMetricsGauges() {
+        EventMetrics.registerGauge("track_queue", new EventMetrics.Gauge() {
+            @Override
+            public Object value() {
+                return mTrackTaskManager.getOverloadStatistics();
+            }
+        });
+        EventMetrics.registerGauge("db_row_count", new EventMetrics.Gauge() {
+            @Override
+            public Object value() {
+                return DbAdapter.getInstance().getEventCount();
+            }
+        });
+        EventMetrics.registerGauge("db_file_size", new EventMetrics.Gauge() {
+            @Override
+            public Object value() {
+                return DbAdapter.getInstance().getDatabaseSize();
+            }
+        });
+        EventMetrics.registerGauge("click_main_thread", new EventMetrics.Gauge() {
+            @Override
+            public Object value() {
+                return ViewClickSnapshot.getMainThreadStatistics();
+            }
+        });
+    }
+
     /**
      * $AppDeeplinkLaunch 事件是否包含 $ios_install_source 属性
      *
@@ -1721,6 +1792,56 @@ abstract class AbstractZallDataAPI implements IZallDataAPI {
         return mEnableDeepLinkInstallSource;
     }
 
+    /**
+     * 提交 deferred 和 idle 阶段的初始化任务。
+     * deferred 阶段是事件任务队列中的第一个任务，之后的 track 事件都在设备信息、登录 ID 准备好后执行
+     */
+    private void scheduleInitTasks() {
+        mInitScheduler.deferred("device_info", new Runnable() {
+            @Override
+            public void run() {
+                mZAContextManager.getDeviceInfo();
+            }
+        });
+        mInitScheduler.deferred("login_id", new Runnable() {
+            @Override
+            public void run() {
+                loadLoginId();
+            }
+        });
+        mInitScheduler.idle("time_zone_listener", new Runnable() {
+            @Override
+            public void run() {
+                TimeUtils.registerTimeZoneListener(mContext);
+            }
+        });
+        // 可视化自定义属性拉取配置
+        if (mZAConfigOptions.isVisualizedPropertiesEnabled()) {
+            mInitScheduler.idle("visual_config", new Runnable() {
+                @Override
+                public void run() {
+                    VisualPropertiesManager.getInstance().requestVisualConfig(mContext, (ZallDataAPI) AbstractZallDataAPI.this);
+                }
+            });
+        }
+        mInitScheduler.start();
+    }
+
+    /**
+     * 从 ContentProvider 读取登录 ID，只读取一次；login、logout 后不再读取
+     */
+    protected void loadLoginId() {
+        if (mLoginIdLoaded) {
+            return;
+        }
+        synchronized (mLoginIdLock) {
+            if (!mLoginIdLoaded) {
+                mLoginId = DbAdapter.getInstance().getLoginId();
+                mLoginIdLoaded = true;
+            }
+        }
+    }
+
     /**
      * 延迟初始化任务
      */
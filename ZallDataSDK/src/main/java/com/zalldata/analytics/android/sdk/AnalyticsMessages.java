@@ -29,27 +29,36 @@ import android.widget.Toast;
 
 import com.zalldata.analytics.android.sdk.data.adapter.DbAdapter;
 import com.zalldata.analytics.android.sdk.data.adapter.DbParams;
+import com.zalldata.analytics.android.sdk.data.adapter.EventBatchWriter;
 import com.zalldata.analytics.android.sdk.exceptions.ConnectErrorException;
 import com.zalldata.analytics.android.sdk.exceptions.DebugModeException;
 import com.zalldata.analytics.android.sdk.exceptions.InvalidDataException;
 import com.zalldata.analytics.android.sdk.exceptions.ResponseErrorException;
+import com.zalldata.analytics.android.sdk.metrics.EventMetrics;
 import com.zalldata.analytics.android.sdk.util.Base64Coder;
-import com.zalldata.analytics.android.sdk.util.JSONUtils;
 import com.zalldata.analytics.android.sdk.util.NetworkUtils;
 
 import org.json.JSONObject;
 
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPOutputStream;
 
 import javax.net.ssl.HttpsURLConnection;
@@ -67,11 +76,28 @@ class AnalyticsMessages {
     private static final int FLUSH_QUEUE = 3;
     private static final int DELETE_ALL = 4;
     private static final int FLUSH_SCHEDULE = 5;
+    private static final int COMMIT_EVENTS = 6;
+    private static final int REPORT_METRICS = 7;
+    /* 流水线上报时单次最多读取的批次 */
+    private static final int MAX_FLUSH_ROUNDS = 100;
+    /* 每批数据的目标大小，单位 byte，debug 模式下每批只发送 1 条 */
+    static final int UPLOAD_BATCH_BYTES = 256 * 1024;
+    static final int MIN_UPLOAD_BATCH_SIZE = 10;
+    static final int MAX_UPLOAD_BATCH_SIZE = 200;
+    /* 多进程上报时上报进程的租约时长，每上报一批数据续约一次 */
+    private static final long FLUSH_LEASE_MILLIS = 2 * 60 * 1000;
+    private static final String FLUSH_LOCK_FILE_NAME = "zalldata_flush.lock";
     private static final Map<Context, AnalyticsMessages> S_INSTANCES = new HashMap<>();
     private final Worker mWorker;
     private final Context mContext;
     private final DbAdapter mDbAdapter;
+    private final EventBatchWriter mEventBatchWriter;
+    private final FlushCoordinator mFlushCoordinator;
     private ZallDataAPI mZallDataAPI;
+    /* 流水线上报的请求线程池 */
+    private ThreadPoolExecutor mUploadExecutor;
+    /* 流水线上报时每批数据的条数 */
+    private int mUploadBatchSize = 50;
 
     /**
      * 不要直接调用，通过 getInstance 方法获取实例
@@ -81,6 +107,14 @@ class AnalyticsMessages {
         mDbAdapter = DbAdapter.getInstance();
         mWorker = new Worker();
         mZallDataAPI = zallDataAPI;
+        mFlushCoordinator = new FlushCoordinator(new File(context.getFilesDir(), FLUSH_LOCK_FILE_NAME), FLUSH_LEASE_MILLIS);
+        ZAConfigOptions configOptions = ZallDataAPI.getConfigOptions();
+        if (configOptions != null && configOptions.isBatchInsertEnabled()) {
+            mEventBatchWriter = new EventBatchWriter(mDbAdapter, configOptions.mBatchInsertSize, configOptions.mBatchInsertDelay);
+        } else {
+            mEventBatchWriter = null;
+        }
+        scheduleMetricsReport();
     }
 
     /**
@@ -120,7 +154,18 @@ class AnalyticsMessages {
     void enqueueEventMessage(final String type, final JSONObject eventJson) {
         try {
             synchronized (mDbAdapter) {
-                int ret = mDbAdapter.addJSON(eventJson);
+                int ret;
+                if (mEventBatchWriter != null && !mZallDataAPI.isDebugMode()) {
+                    ret = mEventBatchWriter.write(eventJson, isCommitImmediately(type, eventJson));
+                    if (ret == EventBatchWriter.PENDING) {
+                        final Message m = Message.obtain();
+                        m.what = COMMIT_EVENTS;
+                        mWorker.runMessageOnce(m, mEventBatchWriter.getMaxDelay());
+                        return;
+                    }
+                } else {
+                    ret = mDbAdapter.addJSON(eventJson);
+                }
                 if (ret < 0) {
                     String error = "Failed to enqueue the event: " + eventJson;
                     if (mZallDataAPI.isDebugMode()) {
@@ -129,31 +174,80 @@ class AnalyticsMessages {
                         ZALog.i(TAG, error);
                     }
                 }
+                scheduleFlush(type, ret);
+            }
+        } catch (Exception e) {
+            ZALog.i(TAG, "enqueueEventMessage error:" + e);
+        }
+    }
 
-                final Message m = Message.obtain();
-                m.what = FLUSH_QUEUE;
+    /**
+     * 根据表中数据条数触发上报
+     *
+     * @param type 事件类型
+     * @param ret 表中数据条数或者错误码
+     */
+    private void scheduleFlush(final String type, final int ret) {
+        final Message m = Message.obtain();
+        m.what = FLUSH_QUEUE;
 
-                if (mZallDataAPI.isDebugMode() || ret ==
-                        DbParams.DB_OUT_OF_MEMORY_ERROR) {
-                    mWorker.runMessage(m);
-                } else {
-                    // track_signup 立即发送
-                    if (type.equals("track_signup") || ret > mZallDataAPI
-                            .getFlushBulkSize()) {
-                        mWorker.runMessage(m);
-                    } else {
-                        final int interval = mZallDataAPI.getFlushInterval();
-                        mWorker.runMessageOnce(m, interval);
-                    }
-                }
+        if (mZallDataAPI.isDebugMode() || ret ==
+                DbParams.DB_OUT_OF_MEMORY_ERROR) {
+            mWorker.runMessage(m);
+        } else {
+            // track_signup 立即发送
+            if ("track_signup".equals(type) || ret > mZallDataAPI
+                    .getFlushBulkSize()) {
+                mWorker.runMessage(m);
+            } else {
+                final int interval = mZallDataAPI.getFlushInterval();
+                mWorker.runMessageOnce(m, interval);
+            }
+        }
+    }
+
+    /**
+     * $SignUp、$AppEnd、AppCrashed 事件不做缓存，在调用线程上连同已缓存的事件立即写入数据库，防止进程退出时丢失
+     *
+     * @param type 事件类型
+     * @param eventJson 事件
+     * @return true 立即写入
+     */
+    private boolean isCommitImmediately(final String type, final JSONObject eventJson) {
+        if ("track_signup".equals(type)) {
+            return true;
+        }
+        String eventName = eventJson.optString("event");
+        return "$AppEnd".equals(eventName) || "AppCrashed".equals(eventName);
+    }
+
+    /**
+     * 将批量写入缓存的事件写入数据库
+     *
+     * @return 没有缓存事件时返回 EventBatchWriter.PENDING，否则返回表中数据条数或者错误码
+     */
+    private int commitPendingEvents() {
+        if (mEventBatchWriter == null) {
+            return EventBatchWriter.PENDING;
+        }
+        try {
+            synchronized (mDbAdapter) {
+                return mEventBatchWriter.commit();
             }
         } catch (Exception e) {
-            ZALog.i(TAG, "enqueueEventMessage error:" + e);
+            ZALog.printStackTrace(e);
         }
+        return EventBatchWriter.PENDING;
     }
 
     void flush() {
         try {
+            // 在 Worker 线程上先将缓存中的事件写入数据库，再上报；进程退出前的写入由 $AppEnd、AppCrashed 事件完成
+            if (mEventBatchWriter != null) {
+                final Message commit = Message.obtain();
+                commit.what = COMMIT_EVENTS;
+                mWorker.runMessage(commit);
+            }
             final Message m = Message.obtain();
             m.what = FLUSH_QUEUE;
 
@@ -174,6 +268,35 @@ class AnalyticsMessages {
         }
     }
 
+    /**
+     * 开启性能指标自上报时，延迟触发下一次上报
+     */
+    private void scheduleMetricsReport() {
+        try {
+            ZAConfigOptions configOptions = ZallDataAPI.getConfigOptions();
+            if (configOptions != null && configOptions.mMetricsReportInterval > 0) {
+                final Message m = Message.obtain();
+                m.what = REPORT_METRICS;
+                mWorker.runMessageOnce(m, configOptions.mMetricsReportInterval);
+            }
+        } catch (Exception e) {
+            ZALog.printStackTrace(e);
+        }
+    }
+
+    /**
+     * 触发 $AppSDKMetrics 事件，属性 $metrics 为性能指标快照
+     */
+    private void reportMetrics() {
+        try {
+            JSONObject properties = new JSONObject();
+            properties.put("$metrics", EventMetrics.snapshot().toString());
+            mZallDataAPI.trackInternal("$AppSDKMetrics", properties);
+        } catch (Exception e) {
+            ZALog.printStackTrace(e);
+        }
+    }
+
     void deleteAll() {
         try {
             final Message m = Message.obtain();
@@ -212,10 +335,9 @@ class AnalyticsMessages {
             // 如果开启多进程上报
             if (mZallDataAPI.getConfigOptions().isMultiProcessFlush()) {
                 // 已经有进程在上报
-                if (DbAdapter.getInstance().isSubProcessFlushing()) {
+                if (!mFlushCoordinator.tryAcquire()) {
                     return;
                 }
-                DbAdapter.getInstance().commitSubProcessFlushState(true);
             } else if (!ZallDataAPI.mIsMainProcess) {//不是主进程
                 return;
             }
@@ -223,9 +345,36 @@ class AnalyticsMessages {
             ZALog.printStackTrace(e);
             return;
         }
+        try {
+            // 先将缓存中的事件写入数据库
+            commitPendingEvents();
+            int maxInFlightRequests = mZallDataAPI.getConfigOptions().mMaxInFlightFlushRequests;
+            if (maxInFlightRequests > 1 && !mZallDataAPI.isDebugMode()) {
+                sendDataPipelined(maxInFlightRequests);
+            } else {
+                sendDataSerial();
+            }
+        } finally {
+            mFlushCoordinator.release();
+        }
+    }
+
+    /**
+     * 多进程上报时续约，不是多进程上报时始终返回 true
+     *
+     * @return false 表示已不再是上报进程，需要停止上报
+     */
+    private boolean keepFlushLease() {
+        return !mZallDataAPI.getConfigOptions().isMultiProcessFlush() || mFlushCoordinator.heartbeat();
+    }
+
+    /**
+     * 逐批上报数据
+     */
+    private void sendDataSerial() {
         int count = 100;
         Toast toast = null;
-        while (count > 0) {
+        while (count > 0 && keepFlushLease()) {
             boolean deleteEvents = true;
             String[] eventsData;
             synchronized (mDbAdapter) {
@@ -233,14 +382,16 @@ class AnalyticsMessages {
                     /* debug 模式下服务器只允许接收 1 条数据 */
                     eventsData = mDbAdapter.generateDataString(DbParams.TABLE_EVENTS, 1);
                 } else {
-                    eventsData = mDbAdapter.generateDataString(DbParams.TABLE_EVENTS, 50);
+                    eventsData = mDbAdapter.generateDataString(DbParams.TABLE_EVENTS, mUploadBatchSize);
                 }
             }
 
             if (eventsData == null) {
-                DbAdapter.getInstance().commitSubProcessFlushState(false);
                 return;
             }
+            if (!mZallDataAPI.isDebugMode()) {
+                adjustUploadBatchSize(eventsData);
+            }
 
             final String lastId = eventsData[0];
             final String rawMessage = eventsData[1];
@@ -254,7 +405,7 @@ class AnalyticsMessages {
                 }
 
                 if (!TextUtils.isEmpty(data)) {
-                    sendHttpRequest(mZallDataAPI.getServerUrl(), data, gzip, rawMessage, false);
+                    uploadData(data, gzip, rawMessage);
                 }
             } catch (ConnectErrorException e) {
                 deleteEvents = false;
@@ -300,8 +451,168 @@ class AnalyticsMessages {
 
             }
         }
-        if (mZallDataAPI.getConfigOptions().isMultiProcessFlush()) {
-            DbAdapter.getInstance().commitSubProcessFlushState(false);
+    }
+
+    /**
+     * 流水线方式上报数据：当前批次的请求还未返回时，读取并发送下一批数据，最多同时发送 maxInFlightRequests 个请求。
+     * 请求结果按照读取顺序确认，发送成功的批次按 _id 区间删除；某一批发送失败后不再读取新的数据，
+     * 已经发出的请求只等待结束，不再删除数据，下次上报时从失败的批次开始重新发送。
+     *
+     * @param maxInFlightRequests 同时发送的最大请求数
+     */
+    private void sendDataPipelined(final int maxInFlightRequests) {
+        final ArrayDeque<UploadBatch> inFlightBatches = new ArrayDeque<>();
+        final BatchAcknowledger acknowledger = new BatchAcknowledger(new BatchAcknowledger.Cleaner() {
+            @Override
+            public int cleanupEvents(String fromId, String lastId) {
+                return mDbAdapter.cleanupEvents(fromId, lastId);
+            }
+        });
+        String lastReadId = null;
+        int rounds = 0;
+        boolean hasMoreData = true;
+        while (true) {
+            while (hasMoreData && !acknowledger.isFailed() && rounds < MAX_FLUSH_ROUNDS
+                    && inFlightBatches.size() < maxInFlightRequests && keepFlushLease()) {
+                String[] eventsData;
+                synchronized (mDbAdapter) {
+                    eventsData = mDbAdapter.generateDataString(DbParams.TABLE_EVENTS, lastReadId, mUploadBatchSize);
+                }
+                if (eventsData == null) {
+                    hasMoreData = false;
+                    break;
+                }
+                rounds++;
+                adjustUploadBatchSize(eventsData);
+                UploadBatch batch = new UploadBatch(lastReadId, eventsData[0], eventsData[1], eventsData[2]);
+                try {
+                    batch.mFuture = getUploadExecutor(maxInFlightRequests).submit(batch);
+                } catch (Exception e) {
+                    ZALog.printStackTrace(e);
+                    hasMoreData = false;
+                    break;
+                }
+                inFlightBatches.add(batch);
+                lastReadId = batch.mLastId;
+            }
+
+            UploadBatch batch = inFlightBatches.poll();
+            if (batch == null) {
+                break;
+            }
+            int count = acknowledger.acknowledge(batch.mFromId, batch.mLastId, batch.awaitResult());
+            if (count >= 0) {
+                ZALog.i(TAG, String.format(Locale.CHINA, "Events flushed. [left = %d]", count));
+            }
+        }
+    }
+
+    /**
+     * 按读取顺序确认上报结果：第一个失败的批次之前的批次按 _id 区间删除，
+     * 之后的批次即使发送成功也不删除，保证删除的 _id 区间连续，下次上报时重新发送
+     */
+    static final class BatchAcknowledger {
+        interface Cleaner {
+            /**
+             * 删除 (fromId, lastId] 区间的数据
+             *
+             * @return 剩余条数
+             */
+            int cleanupEvents(String fromId, String lastId);
+        }
+
+        private final Cleaner mCleaner;
+        private boolean mFailed;
+
+        BatchAcknowledger(Cleaner cleaner) {
+            mCleaner = cleaner;
+        }
+
+        /**
+         * 确认下一个批次的结果，需要按读取顺序调用
+         *
+         * @param fromId 上一批的最后一条 _id，第一批为 null
+         * @param lastId 本批的最后一条 _id
+         * @param deleteEvents 本批是否可以删除
+         * @return 删除后剩余条数，没有删除时返回 -1
+         */
+        int acknowledge(String fromId, String lastId, boolean deleteEvents) {
+            if (mFailed) {
+                return -1;
+            }
+            if (!deleteEvents) {
+                mFailed = true;
+                return -1;
+            }
+            return mCleaner.cleanupEvents(fromId, lastId);
+        }
+
+        boolean isFailed() {
+            return mFailed;
+        }
+    }
+
+    /**
+     * 根据上一批数据的平均大小，调整下一批读取的条数
+     *
+     * @param eventsData 上一批数据
+     */
+    private void adjustUploadBatchSize(String[] eventsData) {
+        mUploadBatchSize = nextUploadBatchSize(eventsData, mUploadBatchSize);
+    }
+
+    /**
+     * 按上一批数据的平均大小计算下一批的条数，使每批数据接近 UPLOAD_BATCH_BYTES
+     *
+     * @param eventsData 上一批数据
+     * @param currentSize 当前的条数
+     * @return 下一批的条数，无法计算时返回 currentSize
+     */
+    static int nextUploadBatchSize(String[] eventsData, int currentSize) {
+        try {
+            if (eventsData == null || eventsData.length < 4 || eventsData[1] == null) {
+                return currentSize;
+            }
+            int rowCount = Integer.parseInt(eventsData[3]);
+            int length = eventsData[1].length();
+            if (rowCount <= 0 || length <= 0) {
+                return currentSize;
+            }
+            long batchSize = (long) UPLOAD_BATCH_BYTES * rowCount / length;
+            return (int) Math.max(MIN_UPLOAD_BATCH_SIZE, Math.min(MAX_UPLOAD_BATCH_SIZE, batchSize));
+        } catch (Exception e) {
+            ZALog.printStackTrace(e);
+        }
+        return currentSize;
+    }
+
+    private synchronized ThreadPoolExecutor getUploadExecutor(int poolSize) {
+        if (mUploadExecutor == null) {
+            mUploadExecutor = new ThreadPoolExecutor(poolSize, poolSize,
+                    30L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    return new Thread(r, ThreadNameConstants.THREAD_FLUSH_REQUEST);
+                }
+            });
+            mUploadExecutor.allowCoreThreadTimeOut(true);
+        }
+        return mUploadExecutor;
+    }
+
+    /**
+     * 发送数据到服务端，并记录请求耗时和成功、失败次数
+     */
+    private void uploadData(String data, String gzip, String rawMessage) throws ConnectErrorException, ResponseErrorException {
+        long startNanos = System.nanoTime();
+        boolean success = false;
+        try {
+            sendHttpRequest(mZallDataAPI.getServerUrl(), data, gzip, rawMessage, false);
+            success = true;
+        } finally {
+            EventMetrics.recordSince(EventMetrics.STAGE_HTTP, startNanos);
+            EventMetrics.increment(success ? EventMetrics.COUNTER_UPLOAD_SUCCESS : EventMetrics.COUNTER_UPLOAD_FAILURE);
         }
     }
 
@@ -379,13 +690,12 @@ class AnalyticsMessages {
 
             String response = new String(responseBody, CHARSET_UTF8);
             if (ZALog.isLogEnabled()) {
-                String jsonMessage = JSONUtils.formatJson(rawMessage);
-                // 状态码 200 - 300 间都认为正确
+                // 状态码 200 - 300 间都认为正确，整批数据在日志线程中格式化
                 if (responseCode >= HttpURLConnection.HTTP_OK &&
                         responseCode < HttpURLConnection.HTTP_MULT_CHOICE) {
-                    ZALog.i(TAG, "valid message: \n" + jsonMessage);
+                    ZALog.i(TAG, ZALog.formatJson("valid message: \n", rawMessage));
                 } else {
-                    ZALog.i(TAG, "invalid message: \n" + jsonMessage);
+                    ZALog.i(TAG, ZALog.formatJson("invalid message: \n", rawMessage));
                     ZALog.i(TAG, String.format(Locale.CHINA, "ret_code: %d", responseCode));
                     ZALog.i(TAG, String.format(Locale.CHINA, "ret_content: %s", response));
                 }
@@ -409,6 +719,7 @@ class AnalyticsMessages {
      * @return true: 删除数据，false: 不删数据
      */
     private boolean isDeleteEventsByCode(int httpCode) {
+        EventMetrics.recordFailureCode(httpCode);
         boolean shouldDelete = true;
         if (httpCode == HttpURLConnection.HTTP_NOT_FOUND ||
                 httpCode == HttpURLConnection.HTTP_FORBIDDEN ||
@@ -453,6 +764,7 @@ class AnalyticsMessages {
     }
 
     private String encodeData(final String rawMessage) throws InvalidDataException {
+        long startNanos = System.nanoTime();
         GZIPOutputStream gos = null;
         try {
             ByteArrayOutputStream os = new ByteArrayOutputStream(rawMessage.getBytes(CHARSET_UTF8).length);
@@ -473,6 +785,75 @@ class AnalyticsMessages {
                     // ignore
                 }
             }
+            EventMetrics.recordSince(EventMetrics.STAGE_ENCODE, startNanos);
+        }
+    }
+
+    /**
+     * 流水线上报中的一批数据，_id 区间为 (mFromId, mLastId]
+     */
+    private class UploadBatch implements Callable<Boolean> {
+        private final String mFromId;
+        private final String mLastId;
+        private final String mRawMessage;
+        private final String mGzip;
+        private Future<Boolean> mFuture;
+
+        UploadBatch(String fromId, String lastId, String rawMessage, String gzip) {
+            mFromId = fromId;
+            mLastId = lastId;
+            mRawMessage = rawMessage;
+            mGzip = gzip;
+        }
+
+        /**
+         * 发送数据
+         *
+         * @return true: 删除数据，false: 不删数据
+         */
+        @Override
+        public Boolean call() {
+            boolean deleteEvents = true;
+            String errorMessage = null;
+            try {
+                String data = mRawMessage;
+                if (DbParams.GZIP_DATA_EVENT.equals(mGzip)) {
+                    data = encodeData(mRawMessage);
+                }
+
+                if (!TextUtils.isEmpty(data)) {
+                    uploadData(data, mGzip, mRawMessage);
+                }
+            } catch (ConnectErrorException e) {
+                deleteEvents = false;
+                errorMessage = "Connection error: " + e.getMessage();
+            } catch (InvalidDataException e) {
+                errorMessage = "Invalid data: " + e.getMessage();
+            } catch (ResponseErrorException e) {
+                deleteEvents = isDeleteEventsByCode(e.getHttpCode());
+                errorMessage = "ResponseErrorException: " + e.getMessage();
+            } catch (Exception e) {
+                deleteEvents = false;
+                errorMessage = "Exception: " + e.getMessage();
+            }
+            if (!TextUtils.isEmpty(errorMessage)) {
+                ZALog.i(TAG, errorMessage);
+            }
+            return deleteEvents;
+        }
+
+        /**
+         * 等待请求结束
+         *
+         * @return true: 删除数据，false: 不删数据
+         */
+        boolean awaitResult() {
+            try {
+                return mFuture.get();
+            } catch (Exception e) {
+                ZALog.printStackTrace(e);
+            }
+            return false;
         }
     }
 
@@ -529,6 +910,9 @@ class AnalyticsMessages {
                         sendData();
                     } else if (msg.what == DELETE_ALL) {
                         try {
+                            if (mEventBatchWriter != null) {
+                                mEventBatchWriter.clear();
+                            }
                             mDbAdapter.deleteAllEvents();
                         } catch (Exception e) {
                             ZALog.printStackTrace(e);
@@ -536,6 +920,15 @@ class AnalyticsMessages {
                     } else if (msg.what == FLUSH_SCHEDULE) {
                         flushScheduled();
                         sendData();
+                    } else if (msg.what == COMMIT_EVENTS) {
+                        int ret = commitPendingEvents();
+                        // flush 时紧跟着 FLUSH_QUEUE，不需要再触发上报
+                        if (ret != EventBatchWriter.PENDING && !hasMessages(FLUSH_QUEUE)) {
+                            scheduleFlush(null, ret);
+                        }
+                    } else if (msg.what == REPORT_METRICS) {
+                        reportMetrics();
+                        scheduleMetricsReport();
                     } else {
                         ZALog.i(TAG, "Unexpected message received by ZallData worker: " + msg);
                     }
@@ -19,78 +19,94 @@ package com.zalldata.analytics.android.sdk;
 
 import android.os.SystemClock;
 
-import java.util.Locale;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * 事件计时器，时间均为 SystemClock.elapsedRealtime() 毫秒值。
+ * 同一个计时器可能在 track 线程和生命周期回调中同时修改，状态变更都在计时器自身的锁内完成。
+ */
 class EventTimer {
+    private static final long MAX_DURATION = 24 * 60 * 60 * 1000;
+    private final String eventName;
     private final TimeUnit timeUnit;
     private long startTime;
     private long endTime;
     private long eventAccumulatedDuration;
     private boolean isPaused = false;
 
-    EventTimer(TimeUnit timeUnit, long startTime) {
+    /**
+     * @param eventName 计时结束时触发的事件名，交叉计时器与计时器名称不同
+     * @param timeUnit 时长单位
+     * @param startTime 开始时间
+     */
+    EventTimer(String eventName, TimeUnit timeUnit, long startTime) {
+        this.eventName = eventName;
         this.startTime = startTime;
         this.timeUnit = timeUnit;
         this.eventAccumulatedDuration = 0;
         this.endTime = -1;
     }
 
-    String duration() {
+    /**
+     * 计时时长，保留三位小数
+     *
+     * @return 按 timeUnit 换算后的时长，异常时返回 0
+     */
+    synchronized double duration() {
         if (isPaused) {
             endTime = startTime;
         } else {
             endTime = endTime < 0 ? SystemClock.elapsedRealtime() : endTime;
         }
         long duration = endTime - startTime + eventAccumulatedDuration;
-        try {
-            if (duration < 0 || duration > 24 * 60 * 60 * 1000) {
-                return String.valueOf(0);
-            }
-            float durationFloat;
-            if (timeUnit == TimeUnit.MILLISECONDS) {
-                durationFloat = duration;
-            } else if (timeUnit == TimeUnit.SECONDS) {
-                durationFloat = duration / 1000.0f;
-            } else if (timeUnit == TimeUnit.MINUTES) {
-                durationFloat = duration / 1000.0f / 60.0f;
-            } else if (timeUnit == TimeUnit.HOURS) {
-                durationFloat = duration / 1000.0f / 60.0f / 60.0f;
-            } else {
-                durationFloat = duration;
-            }
-            return durationFloat < 0 ? String.valueOf(0) : String.format(Locale.CHINA, "%.3f", durationFloat);
-        } catch (Exception e) {
-            ZALog.printStackTrace(e);
-            return String.valueOf(0);
+        if (duration < 0 || duration > MAX_DURATION) {
+            return 0;
+        }
+        double durationDouble;
+        if (timeUnit == TimeUnit.SECONDS) {
+            durationDouble = duration / 1000.0;
+        } else if (timeUnit == TimeUnit.MINUTES) {
+            durationDouble = duration / 1000.0 / 60.0;
+        } else if (timeUnit == TimeUnit.HOURS) {
+            durationDouble = duration / 1000.0 / 60.0 / 60.0;
+        } else {
+            durationDouble = duration;
         }
+        return Math.round(durationDouble * 1000) / 1000.0;
+    }
+
+    String getEventName() {
+        return eventName;
     }
 
-    long getStartTime() {
+    synchronized long getStartTime() {
         return startTime;
     }
 
-    void setStartTime(long startTime) {
+    synchronized void setStartTime(long startTime) {
         this.startTime = startTime;
     }
 
-    void setEndTime(long endTime) {
+    synchronized void setEndTime(long endTime) {
         this.endTime = endTime;
     }
 
-    long getEndTime() {
+    synchronized long getEndTime() {
         return endTime;
     }
 
-    long getEventAccumulatedDuration() {
+    synchronized long getEventAccumulatedDuration() {
         return eventAccumulatedDuration;
     }
 
-    void setEventAccumulatedDuration(long eventAccumulatedDuration) {
+    synchronized void setEventAccumulatedDuration(long eventAccumulatedDuration) {
         this.eventAccumulatedDuration = eventAccumulatedDuration;
     }
 
-    void setTimerState(boolean isPaused, long elapsedRealtime) {
+    synchronized void setTimerState(boolean isPaused, long elapsedRealtime) {
+        if (this.isPaused == isPaused) {
+            return;
+        }
         this.isPaused = isPaused;
         if (isPaused) {
             eventAccumulatedDuration = eventAccumulatedDuration + elapsedRealtime - startTime;
@@ -98,7 +114,20 @@ class EventTimer {
         startTime = elapsedRealtime;
     }
 
-    boolean isPaused() {
+    synchronized boolean isPaused() {
         return isPaused;
     }
+
+    /**
+     * App 进入后台，累计前台时长并重新开始计时，已暂停的计时器不处理
+     *
+     * @param elapsedRealtime 当前时间
+     * @param sessionIntervalTime Session 间隔时间，进入后台的判定延迟
+     */
+    synchronized void onEnterBackground(long elapsedRealtime, long sessionIntervalTime) {
+        if (!isPaused) {
+            eventAccumulatedDuration = eventAccumulatedDuration + elapsedRealtime - startTime - sessionIntervalTime;
+            startTime = elapsedRealtime;
+        }
+    }
 }
@@ -0,0 +1,130 @@
+/*
+ * Created by guo on 2021/11/23.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事件计时器注册表。
+ * 计时器保存在 ConcurrentHashMap 中，前后台切换时逐个更新计时器，不需要锁住整个注册表；
+ * 交叉计时器（trackTimerStart 返回的名称）在创建时记录真实事件名，结束时直接读取，不再按字符串长度截取。
+ */
+class EventTimerRegistry {
+    /* 交叉计时器名称格式：事件名_UUID_ZATimer，UUID 中的 - 替换为 _ */
+    private static final String CROSS_TIMER_SUFFIX = "_ZATimer";
+    private static final int CROSS_TIMER_TAIL_LENGTH = 1 + 36 + CROSS_TIMER_SUFFIX.length();
+    private final Map<String, EventTimer> mTimers = new ConcurrentHashMap<>();
+
+    /**
+     * 开始计时，已存在的同名计时器会被覆盖
+     *
+     * @param timerName 计时器名称
+     * @param timeUnit 时长单位
+     * @param startTime 开始时间
+     */
+    void start(String timerName, TimeUnit timeUnit, long startTime) {
+        mTimers.put(timerName, new EventTimer(getEventName(timerName), timeUnit, startTime));
+    }
+
+    EventTimer get(String timerName) {
+        return mTimers.get(timerName);
+    }
+
+    EventTimer remove(String timerName) {
+        return mTimers.remove(timerName);
+    }
+
+    void clear() {
+        mTimers.clear();
+    }
+
+    /**
+     * App 从后台恢复，所有计时器重新开始计时
+     *
+     * @param elapsedRealtime 当前时间
+     */
+    void appBecomeActive(long elapsedRealtime) {
+        for (EventTimer eventTimer : mTimers.values()) {
+            eventTimer.setStartTime(elapsedRealtime);
+        }
+    }
+
+    /**
+     * App 进入后台，除 $AppEnd 外的计时器累计前台时长
+     *
+     * @param elapsedRealtime 当前时间
+     * @param sessionIntervalTime Session 间隔时间
+     */
+    void appEnterBackground(long elapsedRealtime, long sessionIntervalTime) {
+        for (Map.Entry<String, EventTimer> entry : mTimers.entrySet()) {
+            if ("$AppEnd".equals(entry.getKey())) {
+                continue;
+            }
+            entry.getValue().onEnterBackground(elapsedRealtime, sessionIntervalTime);
+        }
+    }
+
+    /**
+     * 生成交叉计时器名称
+     *
+     * @param eventName 事件名
+     * @return 计时器名称
+     */
+    static String newCrossTimerName(String eventName) {
+        return eventName + "_" + UUID.randomUUID().toString().replace('-', '_') + CROSS_TIMER_SUFFIX;
+    }
+
+    /**
+     * 获取计时器名称对应的事件名
+     *
+     * @param timerName 计时器名称，可以是交叉计时器名称
+     * @return 事件名
+     */
+    static String getEventName(String timerName) {
+        if (isCrossTimerName(timerName)) {
+            return timerName.substring(0, timerName.length() - CROSS_TIMER_TAIL_LENGTH);
+        }
+        return timerName;
+    }
+
+    private static boolean isCrossTimerName(String timerName) {
+        int length = timerName.length();
+        if (length <= CROSS_TIMER_TAIL_LENGTH || !timerName.endsWith(CROSS_TIMER_SUFFIX)) {
+            return false;
+        }
+        int uuidStart = length - CROSS_TIMER_TAIL_LENGTH + 1;
+        if (timerName.charAt(uuidStart - 1) != '_') {
+            return false;
+        }
+        // UUID 为 8-4-4-4-12 个十六进制字符
+        for (int i = 0; i < 36; i++) {
+            char c = timerName.charAt(uuidStart + i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '_') {
+                    return false;
+                }
+            } else if (Character.digit(c, 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Created by guo on 2021/11/20.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+/**
+ * 多进程上报协调：通过对数据目录下的文件加排他锁选出唯一的上报进程。
+ * 文件锁由操作系统维护，持有锁的进程退出后自动释放，不会出现上报状态残留导致其他进程无法上报的情况；
+ * 未获取到锁的进程直接放弃本次上报，不需要轮询。
+ * 持锁进程需要在租约期内调用 {@link #heartbeat()} 续约，租约过期后本进程内其他线程可以重新获取锁，避免上报线程卡住后一直占用。
+ * 不依赖 Android API，可以在 JVM 中测试。
+ */
+class FlushCoordinator {
+    private final File mLockFile;
+    private final long mLeaseMillis;
+    private RandomAccessFile mRandomAccessFile;
+    private FileLock mFileLock;
+    private Thread mOwnerThread;
+    private long mLeaseExpireTime;
+
+    /**
+     * @param lockFile 锁文件
+     * @param leaseMillis 租约时长，单位毫秒
+     */
+    FlushCoordinator(File lockFile, long leaseMillis) {
+        mLockFile = lockFile;
+        mLeaseMillis = leaseMillis;
+    }
+
+    /**
+     * 尝试成为上报进程，不会阻塞
+     *
+     * @return 是否获取成功，获取成功后当前线程需要调用 {@link #release()}
+     */
+    synchronized boolean tryAcquire() {
+        if (mFileLock != null) {
+            if (now() < mLeaseExpireTime) {
+                return false;
+            }
+            // 租约过期，原持有线程未续约，释放后重新获取
+            releaseLock();
+        }
+        RandomAccessFile randomAccessFile = null;
+        try {
+            File parent = mLockFile.getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            randomAccessFile = new RandomAccessFile(mLockFile, "rw");
+            FileChannel channel = randomAccessFile.getChannel();
+            FileLock fileLock = channel.tryLock();
+            if (fileLock == null) {
+                randomAccessFile.close();
+                return false;
+            }
+            mRandomAccessFile = randomAccessFile;
+            mFileLock = fileLock;
+            mOwnerThread = Thread.currentThread();
+            mLeaseExpireTime = now() + mLeaseMillis;
+            return true;
+        } catch (Exception e) {
+            // OverlappingFileLockException 等异常均视为获取失败
+            closeQuietly(randomAccessFile);
+            return false;
+        }
+    }
+
+    /**
+     * 续约，持锁线程在上报每批数据前调用
+     *
+     * @return false 表示当前线程已不再持有锁，需要停止上报
+     */
+    synchronized boolean heartbeat() {
+        if (mFileLock == null || mOwnerThread != Thread.currentThread() || !mFileLock.isValid()) {
+            return false;
+        }
+        mLeaseExpireTime = now() + mLeaseMillis;
+        return true;
+    }
+
+    /**
+     * 释放锁，只有持锁线程的调用有效
+     */
+    synchronized void release() {
+        if (mOwnerThread == Thread.currentThread()) {
+            releaseLock();
+        }
+    }
+
+    /**
+     * 当前进程是否持有锁
+     *
+     * @return 是否持有锁
+     */
+    synchronized boolean isHeld() {
+        return mFileLock != null && mFileLock.isValid();
+    }
+
+    private void releaseLock() {
+        try {
+            if (mFileLock != null) {
+                mFileLock.release();
+            }
+        } catch (Exception e) {
+            //ignored
+        }
+        closeQuietly(mRandomAccessFile);
+        mFileLock = null;
+        mRandomAccessFile = null;
+        mOwnerThread = null;
+    }
+
+    private static void closeQuietly(RandomAccessFile randomAccessFile) {
+        try {
+            if (randomAccessFile != null) {
+                randomAccessFile.close();
+            }
+        } catch (Exception e) {
+            //ignored
+        }
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+}
@@ -1031,4 +1031,29 @@ public interface IZallDataAPI extends IFragmentAPI {
      * @param oaid oaid
      */
     void trackDeepLinkLaunch(String deepLinkUrl, String oaid);
+
+    /**
+     * 获取事件任务队列的过载统计，包括 queue_size（当前队列长度）、overloaded（是否过载）、
+     * dropped（被丢弃的事件数）、delayed（过载期间被延迟处理的事件数，即过载时仍进入队列、排在高于低水位的队列之后执行的事件，
+     * 只统计个数，不代表实际等待时长）
+     *
+     * @return 统计信息
+     */
+    JSONObject getTrackQueueStatistics();
+
+    /**
+     * 获取事件处理流水线的性能指标快照，包括 stages（入队、属性组装、加密、写库、读库、压缩编码、网络请求、删除数据各阶段的耗时分布，单位微秒）、
+     * counters（上报成功、失败次数等）、failure_codes（服务端返回的错误状态码次数）和 gauges（队列长度、数据库行数、数据库文件大小等即时值）
+     *
+     * @return 性能指标快照
+     */
+    JSONObject getMetricsSnapshot();
+
+    /**
+     * 获取 SDK 初始化耗时，按 critical（初始化线程上同步执行）、deferred（事件任务线程上先于事件执行）、
+     * idle（主线程空闲时执行）三个阶段返回各步骤耗时、阶段耗时和阶段完成时距初始化开始的时间，单位毫秒
+     *
+     * @return 初始化耗时
+     */
+    JSONObject getStartupTimings();
 }
@@ -0,0 +1,210 @@
+/*
+ * Created by guo on 2021/11/10.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk;
+
+import android.text.TextUtils;
+
+import com.zalldata.analytics.android.sdk.advert.utils.ChannelUtils;
+import com.zalldata.analytics.android.sdk.util.TimeUtils;
+import com.zalldata.analytics.android.sdk.util.ZallDataUtils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 预置属性快照：设备信息、运营商、$latest_utm 属性和静态公共属性合并后的结果。
+ * 快照只在输入变化时重建，track 事件直接复制快照，不再逐个事件合并。
+ */
+final class PresetPropertiesCache {
+    private final AbstractZallDataAPI mZallDataAPI;
+    /* 公共属性版本，公共属性变化时递增 */
+    private final AtomicInteger mVersion = new AtomicInteger();
+    private volatile Snapshot mSnapshot;
+
+    PresetPropertiesCache(AbstractZallDataAPI zallDataAPI) {
+        mZallDataAPI = zallDataAPI;
+    }
+
+    /**
+     * 公共属性变化后调用，下次读取时重建快照
+     */
+    void invalidate() {
+        mVersion.incrementAndGet();
+    }
+
+    /**
+     * 生成 track 事件的预置属性
+     *
+     * @param mergeLatestUtm 是否合并 $latest_utm 属性
+     * @param dynamicProperty 动态公共属性，可以为 null
+     * @return 新的 JSONObject，调用方可以修改
+     */
+    JSONObject newEventProperties(boolean mergeLatestUtm, JSONObject dynamicProperty) throws JSONException {
+        return getSnapshot().newEventProperties(mergeLatestUtm, dynamicProperty);
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot snapshot = mSnapshot;
+        int version = mVersion.get();
+        int utmVersion = ChannelUtils.getLatestUtmVersion();
+        Map<String, Object> deviceInfo = mZallDataAPI.mZAContextManager.getDeviceInfo();
+        String carrier = null;
+        if (snapshot != null && snapshot.mVersion == version && snapshot.mUtmVersion == utmVersion
+                && snapshot.mDeviceInfo == deviceInfo) {
+            if (!TextUtils.isEmpty(snapshot.mCarrier) || !isDataCollectEnable()) {
+                return snapshot;
+            }
+            //之前可能会因为没有权限无法获取运营商信息，检测再次获取
+            carrier = ZallDataUtils.getCarrier(mZallDataAPI.mContext);
+            if (TextUtils.isEmpty(carrier)) {
+                return snapshot;
+            }
+        }
+        if (TextUtils.isEmpty(carrier)) {
+            carrier = getCarrier(deviceInfo);
+        }
+        snapshot = new Snapshot(version, utmVersion, deviceInfo, carrier,
+                ChannelUtils.getLatestUtmProperties(), mZallDataAPI.mSuperProperties.get());
+        mSnapshot = snapshot;
+        return snapshot;
+    }
+
+    private String getCarrier(Map<String, Object> deviceInfo) {
+        try {
+            Object carrier = deviceInfo == null ? null : deviceInfo.get("$carrier");
+            if (carrier != null && !TextUtils.isEmpty(carrier.toString())) {
+                return carrier.toString();
+            }
+            if (isDataCollectEnable()) {
+                return ZallDataUtils.getCarrier(mZallDataAPI.mContext);
+            }
+        } catch (Exception e) {
+            ZALog.printStackTrace(e);
+        }
+        return null;
+    }
+
+    private boolean isDataCollectEnable() {
+        return AbstractZallDataAPI.mZAConfigOptions != null && AbstractZallDataAPI.mZAConfigOptions.isDataCollectEnable;
+    }
+
+    /**
+     * 不可变的预置属性快照
+     */
+    static final class Snapshot {
+        private final int mVersion;
+        private final int mUtmVersion;
+        private final Map<String, Object> mDeviceInfo;
+        private final String mCarrier;
+        /* 设备信息 + 运营商 */
+        private final Map<String, Object> mBase;
+        /* 设备信息 + 运营商 + $latest_utm */
+        private final Map<String, Object> mBaseWithUtm;
+        /* 静态公共属性 */
+        private final SuperPropertiesStore.Snapshot mSuperProperties;
+        private final Map<String, Object> mAll;
+        private final Map<String, Object> mAllWithUtm;
+
+        Snapshot(int version, int utmVersion, Map<String, Object> deviceInfo, String carrier,
+                 JSONObject latestUtmProperties, SuperPropertiesStore.Snapshot superProperties) {
+            mVersion = version;
+            mUtmVersion = utmVersion;
+            mDeviceInfo = deviceInfo;
+            mCarrier = carrier;
+            mBase = new LinkedHashMap<>();
+            if (deviceInfo != null) {
+                putAll(mBase, new JSONObject(deviceInfo));
+            }
+            if (!TextUtils.isEmpty(carrier)) {
+                mBase.put("$carrier", carrier);
+            }
+            mBaseWithUtm = new LinkedHashMap<>(mBase);
+            if (latestUtmProperties != null) {
+                putAll(mBaseWithUtm, latestUtmProperties);
+            }
+            mSuperProperties = superProperties;
+            // Date 类型的公共属性在这里格式化
+            Map<String, Object> formattedSuperProperties = new LinkedHashMap<>();
+            if (superProperties != null) {
+                putAll(formattedSuperProperties, superProperties.getProperties());
+            }
+            mAll = new LinkedHashMap<>(mBase);
+            mAll.putAll(formattedSuperProperties);
+            mAllWithUtm = new LinkedHashMap<>(mBaseWithUtm);
+            mAllWithUtm.putAll(formattedSuperProperties);
+        }
+
+        /**
+         * 复制快照，与动态公共属性合并；静态公共属性中与动态公共属性重复（忽略大小写）的 key 会被去掉
+         *
+         * @param mergeLatestUtm 是否合并 $latest_utm 属性
+         * @param dynamicProperty 动态公共属性，可以为 null
+         * @return 新的 JSONObject
+         */
+        JSONObject newEventProperties(boolean mergeLatestUtm, JSONObject dynamicProperty) throws JSONException {
+            JSONObject properties = new JSONObject(mergeLatestUtm ? mAllWithUtm : mAll);
+            if (dynamicProperty == null || dynamicProperty.length() == 0) {
+                return properties;
+            }
+            if (mSuperProperties != null) {
+                // 通过小写 key 索引查找重复的公共属性，只遍历动态公共属性
+                Map<String, Object> base = mergeLatestUtm ? mBaseWithUtm : mBase;
+                for (String key : mSuperProperties.findDuplicateKeys(dynamicProperty)) {
+                    Object baseValue = base.get(key);
+                    if (baseValue != null) {
+                        properties.put(key, baseValue);
+                    } else {
+                        properties.remove(key);
+                    }
+                }
+            }
+            ZallDataUtils.mergeJSONObject(dynamicProperty, properties);
+            return properties;
+        }
+
+        private static void putAll(Map<String, Object> dest, Map<String, Object> source) {
+            for (Map.Entry<String, Object> entry : source.entrySet()) {
+                String key = entry.getKey();
+                Object value = entry.getValue();
+                if (value instanceof Date && !"$time".equals(key)) {
+                    value = TimeUtils.formatDate((Date) value, Locale.CHINA);
+                }
+                dest.put(key, value);
+            }
+        }
+
+        private static void putAll(Map<String, Object> dest, JSONObject source) {
+            Iterator<String> iterator = source.keys();
+            while (iterator.hasNext()) {
+                String key = iterator.next();
+                Object value = source.opt(key);
+                if (value instanceof Date && !"$time".equals(key)) {
+                    value = TimeUtils.formatDate((Date) value, Locale.CHINA);
+                }
+                dest.put(key, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Created by guo on 2021/11/25.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+
+import com.zalldata.analytics.android.sdk.metrics.StartupProfiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 分阶段初始化。
+ * critical 阶段由构造方法直接执行；deferred 阶段作为第一个任务放入事件任务队列，
+ * 初始化期间调用 track 产生的事件任务排在其后，等上下文准备好后才执行；
+ * deferred 阶段完成后，idle 阶段在主线程空闲时执行，主线程一直繁忙时最多等待 {@link #IDLE_TIMEOUT}。
+ */
+final class SDKInitScheduler {
+    private static final String TAG = "ZA.SDKInitScheduler";
+    static final long IDLE_TIMEOUT = 5 * 1000;
+    private final TrackTaskManager mTrackTaskManager;
+    private final List<Step> mDeferredSteps = new ArrayList<>();
+    private final List<Step> mIdleSteps = new ArrayList<>();
+    private boolean mStarted;
+
+    SDKInitScheduler(TrackTaskManager trackTaskManager) {
+        mTrackTaskManager = trackTaskManager;
+    }
+
+    /**
+     * 添加 deferred 阶段的步骤，在事件任务线程上执行
+     *
+     * @param name 步骤名，用于记录耗时
+     * @param runnable 步骤
+     */
+    void deferred(String name, Runnable runnable) {
+        mDeferredSteps.add(new Step(name, runnable));
+    }
+
+    /**
+     * 添加 idle 阶段的步骤，在主线程空闲时执行
+     *
+     * @param name 步骤名，用于记录耗时
+     * @param runnable 步骤
+     */
+    void idle(String name, Runnable runnable) {
+        mIdleSteps.add(new Step(name, runnable));
+    }
+
+    /**
+     * 提交 deferred 阶段，只能调用一次，需要在构造方法返回之前调用
+     */
+    void start() {
+        if (mStarted) {
+            return;
+        }
+        mStarted = true;
+        final List<Step> deferredSteps = new ArrayList<>(mDeferredSteps);
+        final List<Step> idleSteps = new ArrayList<>(mIdleSteps);
+        mDeferredSteps.clear();
+        mIdleSteps.clear();
+        mTrackTaskManager.addTrackEventTask(new Runnable() {
+            @Override
+            public void run() {
+                runSteps(StartupProfiler.STAGE_DEFERRED, deferredSteps);
+                scheduleIdle(idleSteps);
+            }
+        });
+    }
+
+    private void scheduleIdle(final List<Step> idleSteps) {
+        try {
+            final AtomicBoolean executed = new AtomicBoolean();
+            final Runnable idleTask = new Runnable() {
+                @Override
+                public void run() {
+                    if (executed.compareAndSet(false, true)) {
+                        runSteps(StartupProfiler.STAGE_IDLE, idleSteps);
+                    }
+                }
+            };
+            final Handler handler = new Handler(Looper.getMainLooper());
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+                        @Override
+                        public boolean queueIdle() {
+                            idleTask.run();
+                            return false;
+                        }
+                    });
+                }
+            });
+            handler.postDelayed(idleTask, IDLE_TIMEOUT);
+        } catch (Exception e) {
+            ZALog.printStackTrace(e);
+        }
+    }
+
+    static void runSteps(int stage, List<Step> steps) {
+        long stageStart = System.nanoTime();
+        long stepStart = stageStart;
+        for (Step step : steps) {
+            try {
+                step.mRunnable.run();
+            } catch (Exception e) {
+                ZALog.printStackTrace(e);
+            }
+            stepStart = StartupProfiler.recordStep(stage, step.mName, stepStart);
+        }
+        StartupProfiler.finishStage(stage, stageStart);
+        if (stage == StartupProfiler.STAGE_IDLE && ZALog.isLogEnabled()) {
+            ZALog.i(TAG, "startup timings: " + StartupProfiler.snapshot().toString());
+        }
+    }
+
+    static final class Step {
+        private final String mName;
+        private final Runnable mRunnable;
+
+        Step(String name, Runnable runnable) {
+            mName = name;
+            mRunnable = runnable;
+        }
+    }
+}
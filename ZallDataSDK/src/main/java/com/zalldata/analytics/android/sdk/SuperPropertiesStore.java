@@ -0,0 +1,280 @@
+/*
+ * Created by guo on 2021/11/23.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk;
+
+import android.text.TextUtils;
+
+import com.zalldata.analytics.android.sdk.data.persistent.PersistentSuperProperties;
+import com.zalldata.analytics.android.sdk.util.ThreadUtils;
+import com.zalldata.analytics.android.sdk.util.TimeUtils;
+import com.zalldata.analytics.android.sdk.util.ZallDataUtils;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 静态公共属性存储。
+ * 公共属性保存为不可变快照，注册、删除时复制一份修改后整体替换（copy-on-write），读取时不加锁、不复制；
+ * 快照中预先建立小写 key 索引，与动态公共属性去重时只需遍历动态公共属性。
+ * 写入 SharedPreferences 在后台线程进行，连续修改只写入最新的快照。
+ */
+final class SuperPropertiesStore {
+    private final PersistentSuperProperties mPersistentSuperProperties;
+    private final Object mWriteLock = new Object();
+    private final AtomicBoolean mPersistPending = new AtomicBoolean();
+    private volatile Snapshot mSnapshot;
+
+    SuperPropertiesStore(PersistentSuperProperties persistentSuperProperties) {
+        mPersistentSuperProperties = persistentSuperProperties;
+    }
+
+    /**
+     * 获取当前快照，首次调用时从本地缓存加载
+     *
+     * @return 快照，不能修改
+     */
+    Snapshot get() {
+        Snapshot snapshot = mSnapshot;
+        if (snapshot == null) {
+            synchronized (mWriteLock) {
+                snapshot = mSnapshot;
+                if (snapshot == null) {
+                    snapshot = new Snapshot(toMap(mPersistentSuperProperties.get()));
+                    mSnapshot = snapshot;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * 注册公共属性，已有的同名（忽略大小写）属性会被替换，Date 类型的值（$time 除外）保存为格式化后的字符串
+     *
+     * @param superProperties 公共属性
+     */
+    void register(JSONObject superProperties) {
+        synchronized (mWriteLock) {
+            Snapshot snapshot = get();
+            LinkedHashMap<String, Object> properties = new LinkedHashMap<>(snapshot.mProperties);
+            Iterator<String> iterator = superProperties.keys();
+            while (iterator.hasNext()) {
+                String key = iterator.next();
+                if (!TextUtils.isEmpty(key)) {
+                    String existKey = snapshot.findKeyIgnoreCase(key);
+                    if (existKey != null) {
+                        properties.remove(existKey);
+                    }
+                }
+            }
+            // 先删除再赋值，同一次注册中大小写不同的 key 都会保留
+            iterator = superProperties.keys();
+            while (iterator.hasNext()) {
+                String key = iterator.next();
+                Object value = superProperties.opt(key);
+                if (value instanceof Date && !"$time".equals(key)) {
+                    value = TimeUtils.formatDate((Date) value, Locale.CHINA);
+                }
+                properties.put(key, value);
+            }
+            publish(properties);
+        }
+    }
+
+    /**
+     * 删除公共属性
+     *
+     * @param superPropertyName 属性名
+     */
+    void unregister(String superPropertyName) {
+        synchronized (mWriteLock) {
+            Snapshot snapshot = get();
+            if (superPropertyName == null || !snapshot.mProperties.containsKey(superPropertyName)) {
+                return;
+            }
+            LinkedHashMap<String, Object> properties = new LinkedHashMap<>(snapshot.mProperties);
+            properties.remove(superPropertyName);
+            publish(properties);
+        }
+    }
+
+    /**
+     * 删除所有公共属性
+     */
+    void clear() {
+        synchronized (mWriteLock) {
+            publish(new LinkedHashMap<String, Object>());
+        }
+    }
+
+    private void publish(LinkedHashMap<String, Object> properties) {
+        mSnapshot = new Snapshot(properties);
+        if (mPersistPending.compareAndSet(false, true)) {
+            ThreadUtils.getSinglePool().execute(new Runnable() {
+                @Override
+                public void run() {
+                    // 先清除标记再读取快照，之后的修改会重新提交写入任务
+                    mPersistPending.set(false);
+                    try {
+                        mPersistentSuperProperties.commit(mSnapshot.toJSONObject());
+                    } catch (Exception e) {
+                        ZALog.printStackTrace(e);
+                    }
+                }
+            });
+        }
+    }
+
+    private static LinkedHashMap<String, Object> toMap(JSONObject jsonObject) {
+        LinkedHashMap<String, Object> properties = new LinkedHashMap<>();
+        if (jsonObject != null) {
+            Iterator<String> iterator = jsonObject.keys();
+            while (iterator.hasNext()) {
+                String key = iterator.next();
+                properties.put(key, jsonObject.opt(key));
+            }
+        }
+        return properties;
+    }
+
+    private static String toLowerCase(String key) {
+        return key.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * 不可变的公共属性快照
+     */
+    static final class Snapshot {
+        private final Map<String, Object> mProperties;
+        /* 小写 key -> 原始 key */
+        private final Map<String, String> mLowerCaseKeys;
+
+        Snapshot(LinkedHashMap<String, Object> properties) {
+            mProperties = Collections.unmodifiableMap(properties);
+            mLowerCaseKeys = new HashMap<>(properties.size() * 2);
+            for (String key : properties.keySet()) {
+                if (!TextUtils.isEmpty(key)) {
+                    mLowerCaseKeys.put(toLowerCase(key), key);
+                }
+            }
+        }
+
+        /**
+         * @return 公共属性，不能修改
+         */
+        Map<String, Object> getProperties() {
+            return mProperties;
+        }
+
+        Object get(String key) {
+            return mProperties.get(key);
+        }
+
+        /**
+         * 查找忽略大小写后相同的 key
+         *
+         * @param key 属性名
+         * @return 快照中的属性名，不存在时返回 null
+         */
+        String findKeyIgnoreCase(String key) {
+            return mLowerCaseKeys.get(toLowerCase(key));
+        }
+
+        /**
+         * 获取与动态公共属性重复（忽略大小写）的 key，耗时只与动态公共属性的个数有关
+         *
+         * @param dynamicProperty 动态公共属性
+         * @return 重复的 key，没有重复时返回空集合
+         */
+        Set<String> findDuplicateKeys(JSONObject dynamicProperty) {
+            if (dynamicProperty == null || dynamicProperty.length() == 0 || mProperties.isEmpty()) {
+                return Collections.emptySet();
+            }
+            Set<String> duplicateKeys = null;
+            Iterator<String> iterator = dynamicProperty.keys();
+            while (iterator.hasNext()) {
+                String key = iterator.next();
+                if (TextUtils.isEmpty(key)) {
+                    continue;
+                }
+                String existKey = findKeyIgnoreCase(key);
+                if (existKey != null) {
+                    if (duplicateKeys == null) {
+                        duplicateKeys = new HashSet<>();
+                    }
+                    duplicateKeys.add(existKey);
+                }
+            }
+            return duplicateKeys == null ? Collections.<String>emptySet() : duplicateKeys;
+        }
+
+        /**
+         * 合并静态公共属性和动态公共属性，动态公共属性优先
+         *
+         * @param dest 保存合并结果
+         * @param dynamicProperty 动态公共属性，可以为 null
+         */
+        void mergeTo(JSONObject dest, JSONObject dynamicProperty) {
+            Set<String> duplicateKeys = findDuplicateKeys(dynamicProperty);
+            try {
+                for (Map.Entry<String, Object> entry : mProperties.entrySet()) {
+                    String key = entry.getKey();
+                    if (!duplicateKeys.contains(key)) {
+                        dest.put(key, entry.getValue());
+                    }
+                }
+            } catch (Exception e) {
+                ZALog.printStackTrace(e);
+            }
+            if (dynamicProperty != null) {
+                ZallDataUtils.mergeJSONObject(dynamicProperty, dest);
+            }
+        }
+
+        /**
+         * 复制为 JSONObject，JSONArray 类型的值同时复制，调用方可以修改
+         *
+         * @return 新的 JSONObject
+         */
+        JSONObject toJSONObject() {
+            JSONObject jsonObject = new JSONObject();
+            try {
+                for (Map.Entry<String, Object> entry : mProperties.entrySet()) {
+                    Object value = entry.getValue();
+                    if (value instanceof JSONArray) {
+                        value = new JSONArray(value.toString());
+                    }
+                    jsonObject.put(entry.getKey(), value);
+                }
+            } catch (Exception e) {
+                ZALog.printStackTrace(e);
+            }
+            return jsonObject;
+        }
+    }
+}
@@ -23,4 +23,6 @@ public interface ThreadNameConstants {
     String THREAD_SEND_DISTINCT_ID = "ZA.SendDistinctIDThread";
     String THREAD_DEEP_LINK_REQUEST = "ZA.DeepLinkRequest";
     String THREAD_PUSH_HANDLER = "ZA.PushThread";
+    String THREAD_FLUSH_REQUEST = "ZA.FlushRequestThread";
+    String THREAD_LOG_WRITER = "ZA.LogWriterThread";
 }
@@ -0,0 +1,112 @@
+/*
+ * Created by guo on 2021/11/09.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk;
+
+import com.zalldata.analytics.android.sdk.data.adapter.DbAdapter;
+import com.zalldata.analytics.android.sdk.data.adapter.DbParams;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 生成事件的 _track_id。
+ * 每个进程通过 ContentProvider 申请一段互不重叠的序号区间，区间内的序号经过可逆的位混淆后作为 _track_id，
+ * 所以同一个 ContentProvider 生命周期内各进程生成的 _track_id 不会重复，生成时也不需要再创建 SecureRandom。
+ * ContentProvider 不可用时进程随机选择最高位为 1 的区间，不会与 ContentProvider 分配的区间重叠；
+ * 但多个进程同时不可用时，随机选择的区间之间仍有 1/32768 的概率相同。
+ */
+final class TrackIdGenerator {
+    private static volatile Block sBlock;
+    private static SecureRandom sSecureRandom;
+
+    private TrackIdGenerator() {
+    }
+
+    /**
+     * 生成 _track_id
+     *
+     * @return _track_id
+     */
+    static int nextId() {
+        while (true) {
+            Block block = sBlock;
+            if (block != null) {
+                int index = block.mUsed.getAndIncrement();
+                if (index < DbParams.TRACK_ID_BLOCK_SIZE) {
+                    return mix(block.mStart + index);
+                }
+            }
+            synchronized (TrackIdGenerator.class) {
+                if (sBlock == block) {
+                    sBlock = new Block(allocateBlock());
+                }
+            }
+        }
+    }
+
+    /**
+     * 申请序号区间，ContentProvider 不可用时使用 {@link #fallbackBlock(int)}
+     *
+     * @return 区间的起始序号
+     */
+    private static int allocateBlock() {
+        try {
+            long start = DbAdapter.getInstance().allocateTrackIdBlock();
+            if (start >= 0) {
+                return (int) start;
+            }
+        } catch (Exception e) {
+            ZALog.printStackTrace(e);
+        }
+        if (sSecureRandom == null) {
+            sSecureRandom = new SecureRandom();
+        }
+        return fallbackBlock(sSecureRandom.nextInt());
+    }
+
+    /**
+     * ContentProvider 不可用时的区间起始序号，最高位为 1，ContentProvider 分配的区间最高位为 0
+     *
+     * @param random 随机数
+     * @return 区间的起始序号
+     */
+    static int fallbackBlock(int random) {
+        return (random & DbParams.TRACK_ID_BLOCK_MASK) | DbParams.TRACK_ID_FALLBACK_FLAG;
+    }
+
+    /**
+     * 32 位整数的可逆混淆（MurmurHash3 fmix32），不同的输入一定得到不同的输出
+     */
+    private static int mix(int value) {
+        value ^= value >>> 16;
+        value *= 0x85ebca6b;
+        value ^= value >>> 13;
+        value *= 0xc2b2ae35;
+        value ^= value >>> 16;
+        return value;
+    }
+
+    private static final class Block {
+        private final int mStart;
+        private final AtomicInteger mUsed = new AtomicInteger();
+
+        Block(int start) {
+            mStart = start;
+        }
+    }
+}
@@ -17,19 +17,43 @@
 
 package com.zalldata.analytics.android.sdk;
 
+import com.zalldata.analytics.android.sdk.metrics.EventMetrics;
+
+import org.json.JSONObject;
+
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class TrackTaskManager {
+    /* 普通任务，不会被丢弃 */
+    static final int PRIORITY_NORMAL = 0;
+    /* 过载时可以抽样丢弃的任务，例如 $AppClick */
+    static final int PRIORITY_SHEDDABLE = 1;
+    /* 环形队列容量 */
+    private static final int TRACK_QUEUE_CAPACITY = 1024;
+    /* 过载时可丢弃任务的保留比例：每 10 个保留 1 个 */
+    private static final int OVERLOAD_SAMPLE_INTERVAL = 10;
     private static TrackTaskManager trackTaskManager;
     private boolean mDataCollectEnable = true;
     /**
      * 请求线程队列
      */
-    private final LinkedBlockingQueue<Runnable> mTrackEventTasks;
+    private final TrackTaskQueue mTrackEventTasks;
     private final LinkedBlockingQueue<Runnable> mTrackEventTasksCache;
+    /* 队列长度高水位，达到后进入过载状态，小于等于 0 时不检测过载 */
+    private volatile int mHighWatermark;
+    /* 队列长度低水位，降到该值以下后退出过载状态 */
+    private volatile int mLowWatermark;
+    private volatile boolean mOverloaded;
+    private final AtomicInteger mSheddableCount = new AtomicInteger();
+    /* 被丢弃的任务数 */
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    /* 被延迟的任务数：过载期间仍进入队列（没有被丢弃）的任务，只统计个数，不统计等待时长 */
+    private final AtomicLong mDelayedCount = new AtomicLong();
 
-    private TrackTaskManager() {
-        mTrackEventTasks = new LinkedBlockingQueue<>();
+    TrackTaskManager() {
+        mTrackEventTasks = new TrackTaskQueue(TRACK_QUEUE_CAPACITY);
         mTrackEventTasksCache = new LinkedBlockingQueue<>();
     }
 
@@ -45,9 +69,31 @@ public class TrackTaskManager {
     }
 
     void addTrackEventTask(Runnable trackEvenTask) {
+        addTrackEventTask(trackEvenTask, PRIORITY_NORMAL);
+    }
+
+    /**
+     * 添加任务，过载时按优先级抽样丢弃
+     *
+     * @param trackEvenTask 任务
+     * @param priority {@link #PRIORITY_NORMAL} 或 {@link #PRIORITY_SHEDDABLE}
+     */
+    void addTrackEventTask(Runnable trackEvenTask, int priority) {
         try {
             if (mDataCollectEnable) {
-                mTrackEventTasks.put(trackEvenTask);
+                long startNanos = System.nanoTime();
+                if (checkOverloaded()) {
+                    if (priority == PRIORITY_SHEDDABLE && mSheddableCount.incrementAndGet() % OVERLOAD_SAMPLE_INTERVAL != 0) {
+                        mDroppedCount.incrementAndGet();
+                        return;
+                    }
+                    mDelayedCount.incrementAndGet();
+                }
+                int dropped = mTrackEventTasks.offer(trackEvenTask, priority == PRIORITY_SHEDDABLE);
+                if (dropped > 0) {
+                    mDroppedCount.addAndGet(dropped);
+                }
+                EventMetrics.recordSince(EventMetrics.STAGE_ENQUEUE, startNanos);
             } else {
                 mTrackEventTasksCache.put(trackEvenTask);
             }
@@ -63,9 +109,11 @@ public class TrackTaskManager {
     void transformTaskQueue(Runnable runnable) {
         try {
             if (mTrackEventTasks.size() < 50) {// 最多只处理 50 条
-                mTrackEventTasks.put(runnable);
+                mTrackEventTasks.offer(runnable);
+            } else {
+                mDroppedCount.incrementAndGet();
             }
-        } catch (InterruptedException e) {
+        } catch (Exception e) {
             ZALog.printStackTrace(e);
         }
     }
@@ -100,6 +148,65 @@ public class TrackTaskManager {
         return mTrackEventTasks.isEmpty();
     }
 
+    /**
+     * 设置任务队列写满后的处理策略
+     *
+     * @param overflowPolicy {@link ZallDataAPI.TrackQueueOverflowPolicy}
+     */
+    void setOverflowPolicy(int overflowPolicy) {
+        mTrackEventTasks.setOverflowPolicy(overflowPolicy);
+    }
+
+    /**
+     * 设置过载检测的队列长度水位
+     *
+     * @param highWatermark 高水位，小于等于 0 时不检测过载
+     * @param lowWatermark 低水位
+     */
+    void setWatermarks(int highWatermark, int lowWatermark) {
+        mLowWatermark = lowWatermark;
+        mHighWatermark = highWatermark;
+    }
+
+    /**
+     * 根据当前队列长度更新过载状态，高水位进入、低水位退出
+     *
+     * @return 是否过载
+     */
+    private boolean checkOverloaded() {
+        int highWatermark = mHighWatermark;
+        if (highWatermark <= 0) {
+            return false;
+        }
+        int size = mTrackEventTasks.size();
+        if (mOverloaded) {
+            if (size <= mLowWatermark) {
+                mOverloaded = false;
+            }
+        } else if (size >= highWatermark) {
+            mOverloaded = true;
+        }
+        return mOverloaded;
+    }
+
+    /**
+     * 获取任务队列的过载统计
+     *
+     * @return 统计信息
+     */
+    JSONObject getOverloadStatistics() {
+        JSONObject statistics = new JSONObject();
+        try {
+            statistics.put("queue_size", mTrackEventTasks.size());
+            statistics.put("overloaded", mOverloaded);
+            statistics.put("dropped", mDroppedCount.get());
+            statistics.put("delayed", mDelayedCount.get());
+        } catch (Exception e) {
+            ZALog.printStackTrace(e);
+        }
+        return statistics;
+    }
+
     void setDataCollectEnable(boolean isDataCollectEnable) {
         this.mDataCollectEnable = isDataCollectEnable;
         try {
@@ -111,7 +218,7 @@ public class TrackTaskManager {
                     }
                 });
             } else {
-                mTrackEventTasks.put(new Runnable() {
+                mTrackEventTasks.offer(new Runnable() {
                     @Override
                     public void run() {
 
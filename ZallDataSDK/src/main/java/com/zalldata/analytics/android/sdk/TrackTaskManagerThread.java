@@ -17,24 +17,8 @@
 
 package com.zalldata.analytics.android.sdk;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-
-
 public class TrackTaskManagerThread implements Runnable {
-    /**
-     * 创建一个可重用固定线程数的线程池
-     */
-    private static final int POOL_SIZE = 1;
-
     private TrackTaskManager mTrackTaskManager;
-    /**
-     * 创建一个可重用固定线程数的线程池
-     */
-    private ExecutorService mPool;
     /**
      * 是否停止
      */
@@ -43,14 +27,6 @@ public class TrackTaskManagerThread implements Runnable {
     TrackTaskManagerThread() {
         try {
             this.mTrackTaskManager = TrackTaskManager.getInstance();
-            mPool = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE,
-                    0L, TimeUnit.MILLISECONDS,
-                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
-                @Override
-                public Thread newThread(Runnable r) {
-                    return new Thread(r, ThreadNameConstants.THREAD_TASK_EXECUTE);
-                }
-            });
         } catch (Exception e) {
             ZALog.printStackTrace(e);
         }
@@ -60,17 +36,30 @@ public class TrackTaskManagerThread implements Runnable {
     public void run() {
         try {
             while (!isStop) {
-                Runnable downloadTask = mTrackTaskManager.takeTrackEventTask();
-                mPool.execute(downloadTask);
+                execute(mTrackTaskManager.takeTrackEventTask());
             }
             while (true) {
                 Runnable downloadTask = mTrackTaskManager.pollTrackEventTask();
                 if (downloadTask == null) {
                     break;
                 }
-                mPool.execute(downloadTask);
+                execute(downloadTask);
+            }
+        } catch (Exception e) {
+            ZALog.printStackTrace(e);
+        }
+    }
+
+    /**
+     * 在当前线程直接执行任务，单个任务异常不影响后续任务
+     *
+     * @param task 任务
+     */
+    private void execute(Runnable task) {
+        try {
+            if (task != null) {
+                task.run();
             }
-            mPool.shutdown();
         } catch (Exception e) {
             ZALog.printStackTrace(e);
         }
@@ -0,0 +1,253 @@
+/*
+ * Created by guo on 2021/11/15.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 多生产者、单消费者的有界无锁任务队列。
+ * 任务写入预分配的环形数组，每个槽位通过序号标记是否可写、可读；环形数组写满后按溢出策略处理。
+ * 任何策略下都只丢弃可丢弃的任务，不可丢弃的任务（$AppStart、登录、初始化等）不会丢失。
+ */
+class TrackTaskQueue {
+    /* BLOCK 策略下等待空闲槽位的间隔 */
+    private static final long BLOCK_WAIT_NANOS = 100 * 1000L;
+    private final int mMask;
+    private final AtomicReferenceArray<Runnable> mSlots;
+    private final AtomicLongArray mSequences;
+    /* 槽位中的任务是否可丢弃，在发布序号之前写入 */
+    private final boolean[] mSheddable;
+    private final AtomicLong mHead = new AtomicLong();
+    private final AtomicLong mTail = new AtomicLong();
+    /* 环形数组写满后溢出的任务 */
+    private final ConcurrentLinkedQueue<Runnable> mOverflowTasks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger mOverflowSize = new AtomicInteger();
+    private volatile int mOverflowPolicy = ZallDataAPI.TrackQueueOverflowPolicy.SPILL;
+    private volatile Thread mConsumerThread;
+    private volatile boolean mConsumerWaiting;
+
+    /**
+     * @param capacity 环形数组容量，会向上取整为 2 的幂
+     */
+    TrackTaskQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mMask = size - 1;
+        mSlots = new AtomicReferenceArray<>(size);
+        mSequences = new AtomicLongArray(size);
+        mSheddable = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            mSequences.set(i, i);
+        }
+    }
+
+    /**
+     * 设置环形数组写满后的处理策略
+     *
+     * @param overflowPolicy {@link ZallDataAPI.TrackQueueOverflowPolicy}
+     */
+    void setOverflowPolicy(int overflowPolicy) {
+        mOverflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * 添加不可丢弃的任务
+     *
+     * @param task 任务
+     * @return 因队列已满被丢弃的任务个数
+     */
+    int offer(Runnable task) {
+        return offer(task, false);
+    }
+
+    /**
+     * 添加任务。DROP_OLDEST 策略下写满时丢弃最早的可丢弃任务；最早的任务不可丢弃或者已有溢出的任务时，
+     * 新的可丢弃任务直接丢弃，不可丢弃的任务写入溢出队列
+     *
+     * @param task 任务
+     * @param sheddable 是否可丢弃
+     * @return 因队列已满被丢弃的任务个数
+     */
+    int offer(Runnable task, boolean sheddable) {
+        int dropped = 0;
+        int policy = mOverflowPolicy;
+        if (policy == ZallDataAPI.TrackQueueOverflowPolicy.DROP_OLDEST) {
+            boolean offered = false;
+            while (mOverflowSize.get() == 0) {
+                if (offerSlot(task, sheddable)) {
+                    offered = true;
+                    break;
+                }
+                if (!dropSheddableHead()) {
+                    break;
+                }
+                dropped++;
+            }
+            if (!offered) {
+                if (sheddable) {
+                    dropped++;
+                } else {
+                    spill(task);
+                }
+            }
+        } else if (policy == ZallDataAPI.TrackQueueOverflowPolicy.BLOCK && Thread.currentThread() != mConsumerThread) {
+            while (!offerSlot(task, sheddable)) {
+                signal();
+                LockSupport.parkNanos(BLOCK_WAIT_NANOS);
+            }
+        } else if (mOverflowSize.get() > 0 || !offerSlot(task, sheddable)) {
+            spill(task);
+        }
+        signal();
+        return dropped;
+    }
+
+    /**
+     * 写入溢出队列，已有溢出的任务时新任务也写入溢出队列，保证任务顺序
+     */
+    private void spill(Runnable task) {
+        mOverflowTasks.offer(task);
+        mOverflowSize.incrementAndGet();
+    }
+
+    /**
+     * 取出任务，队列为空时返回 null，只能在消费线程调用
+     *
+     * @return 任务
+     */
+    Runnable poll() {
+        Runnable task = pollSlot();
+        if (task == null && mOverflowSize.get() > 0) {
+            task = mOverflowTasks.poll();
+            if (task != null) {
+                mOverflowSize.decrementAndGet();
+            }
+        }
+        return task;
+    }
+
+    /**
+     * 取出任务，队列为空时等待，只能在消费线程调用
+     *
+     * @return 任务
+     * @throws InterruptedException 等待时被中断
+     */
+    Runnable take() throws InterruptedException {
+        mConsumerThread = Thread.currentThread();
+        while (true) {
+            Runnable task = poll();
+            if (task != null) {
+                return task;
+            }
+            mConsumerWaiting = true;
+            task = poll();
+            if (task != null) {
+                mConsumerWaiting = false;
+                return task;
+            }
+            LockSupport.park(this);
+            mConsumerWaiting = false;
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * 当前任务数（近似值）
+     *
+     * @return 任务数
+     */
+    int size() {
+        return (int) Math.max(0, mTail.get() - mHead.get()) + mOverflowSize.get();
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    private void signal() {
+        if (mConsumerWaiting) {
+            LockSupport.unpark(mConsumerThread);
+        }
+    }
+
+    private boolean offerSlot(Runnable task, boolean sheddable) {
+        while (true) {
+            long tail = mTail.get();
+            int index = (int) tail & mMask;
+            long diff = mSequences.get(index) - tail;
+            if (diff == 0) {
+                if (mTail.compareAndSet(tail, tail + 1)) {
+                    mSlots.set(index, task);
+                    mSheddable[index] = sheddable;
+                    mSequences.set(index, tail + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+    }
+
+    private Runnable pollSlot() {
+        while (true) {
+            long head = mHead.get();
+            int index = (int) head & mMask;
+            long diff = mSequences.get(index) - (head + 1);
+            if (diff == 0) {
+                if (mHead.compareAndSet(head, head + 1)) {
+                    Runnable task = mSlots.getAndSet(index, null);
+                    mSequences.set(index, head + mMask + 1);
+                    return task;
+                }
+            } else if (diff < 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 最早的任务可丢弃时将其丢弃
+     *
+     * @return 是否丢弃了任务
+     */
+    private boolean dropSheddableHead() {
+        while (true) {
+            long head = mHead.get();
+            int index = (int) head & mMask;
+            long diff = mSequences.get(index) - (head + 1);
+            if (diff == 0) {
+                if (!mSheddable[index]) {
+                    return false;
+                }
+                if (mHead.compareAndSet(head, head + 1)) {
+                    mSlots.set(index, null);
+                    mSequences.set(index, head + mMask + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+    }
+}
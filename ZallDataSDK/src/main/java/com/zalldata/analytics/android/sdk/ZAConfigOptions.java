@@ -132,6 +132,73 @@ public final class ZAConfigOptions extends AbstractZAConfigOptions implements Cl
         return this;
     }
 
+    /**
+     * 开启事件批量写入数据库。事件先缓存在内存中，缓存条数达到 maxBatchSize 或者缓存时长达到 maxDelay 时，在同一个事务中写入数据库；
+     * 触发 $AppEnd、$SignUp 事件或者调用 flush 时会立即写入。
+     *
+     * @param maxBatchSize 单次写入的最大条数，合法区间在 [2, 500] 之间
+     * @param maxDelay 事件在内存中的最长缓存时间，单位毫秒，合法区间在 [100, 5000] 之间
+     * @return ZAConfigOptions
+     */
+    public ZAConfigOptions enableBatchInsert(int maxBatchSize, int maxDelay) {
+        this.mBatchInsertSize = Math.min(Math.max(2, maxBatchSize), 500);
+        this.mBatchInsertDelay = Math.min(Math.max(100, maxDelay), 5000);
+        return this;
+    }
+
+    /**
+     * 设置上报数据时同时发送的最大请求数。大于 1 时使用流水线方式上报：当前批次的请求还未返回时，读取并发送下一批数据，
+     * 每批数据的条数根据数据大小动态调整。Debug 模式下不生效。
+     *
+     * @param maxInFlightRequests 同时发送的最大请求数，默认 1，合法区间在 [1, 4] 之间
+     * @return ZAConfigOptions
+     */
+    public ZAConfigOptions setMaxInFlightFlushRequests(int maxInFlightRequests) {
+        this.mMaxInFlightFlushRequests = Math.min(Math.max(1, maxInFlightRequests), 4);
+        return this;
+    }
+
+    /**
+     * 开启 SDK 性能指标自上报，按照指定间隔触发 $AppSDKMetrics 事件，属性 $metrics 为 {@link ZallDataAPI#getMetricsSnapshot()} 的内容。
+     *
+     * @param intervalSeconds 上报间隔，单位秒，最小 60 秒，小于等于 0 时不上报
+     * @return ZAConfigOptions
+     */
+    public ZAConfigOptions enableMetricsReport(int intervalSeconds) {
+        this.mMetricsReportInterval = intervalSeconds <= 0 ? 0 : Math.max(60, intervalSeconds) * 1000;
+        return this;
+    }
+
+    /**
+     * 设置事件任务队列过载检测的水位。队列长度达到高水位后进入过载状态，$AppClick 事件每 10 条只保留 1 条，
+     * 其他事件不会被丢弃；队列长度降到低水位后退出过载状态。统计信息通过 getTrackQueueStatistics 获取
+     *
+     * @param highWatermark 高水位，默认 0，小于等于 0 时不检测过载
+     * @param lowWatermark 低水位，不大于高水位
+     * @return ZAConfigOptions
+     */
+    public ZAConfigOptions setTrackQueueWatermarks(int highWatermark, int lowWatermark) {
+        this.mTrackQueueHighWatermark = Math.max(0, highWatermark);
+        this.mTrackQueueLowWatermark = Math.min(Math.max(0, lowWatermark), this.mTrackQueueHighWatermark);
+        return this;
+    }
+
+    /**
+     * 设置事件任务队列写满后的处理策略
+     *
+     * @param overflowPolicy {@link ZallDataAPI.TrackQueueOverflowPolicy}，默认 SPILL
+     * @return ZAConfigOptions
+     */
+    public ZAConfigOptions setTrackQueueOverflowPolicy(int overflowPolicy) {
+        if (overflowPolicy == ZallDataAPI.TrackQueueOverflowPolicy.DROP_OLDEST
+                || overflowPolicy == ZallDataAPI.TrackQueueOverflowPolicy.BLOCK) {
+            this.mTrackQueueOverflowPolicy = overflowPolicy;
+        } else {
+            this.mTrackQueueOverflowPolicy = ZallDataAPI.TrackQueueOverflowPolicy.SPILL;
+        }
+        return this;
+    }
+
     /**
      * 设置远程配置请求最小间隔时长
      *
@@ -19,12 +19,29 @@ package com.zalldata.analytics.android.sdk;
 
 import android.util.Log;
 
+import com.zalldata.analytics.android.sdk.util.JSONUtils;
 
+import java.io.File;
+import java.util.List;
+
+/**
+ * SDK 日志。所有日志在调用线程中只放入缓冲区，消息生成、分段和输出由后台线程按放入顺序完成，开启日志不会阻塞 track 线程；
+ * 进程崩溃时由 {@link ZallDataExceptionHandler} 调用 {@link #flush(long)} 输出缓冲区中的日志。
+ * 需要拼接或格式化的消息使用 {@link MessageSupplier}，日志关闭时不会执行。
+ */
 public class ZALog {
     private static boolean debug;
     private static boolean enableLog;
     private static boolean disableSDK;
-    private static final int CHUNK_SIZE = 4000;
+    private static final int BUFFER_CAPACITY = 512;
+    private static final ZALogWriter sWriter = new ZALogWriter(BUFFER_CAPACITY);
+
+    /**
+     * 延迟生成的日志消息，只在日志开启时由后台线程调用，不能引用之后会被修改的对象
+     */
+    public interface MessageSupplier {
+        String get();
+    }
 
     public static void d(String tag, String msg) {
         if (debug && !disableSDK) {
@@ -57,6 +74,34 @@ public class ZALog {
         }
     }
 
+    /**
+     * 打印延迟生成的日志，日志关闭时 supplier 不会被调用
+     *
+     * @param tag String
+     * @param supplier 消息
+     */
+    public static void i(String tag, MessageSupplier supplier) {
+        if (enableLog && !disableSDK && supplier != null) {
+            info(tag, supplier);
+        }
+    }
+
+    /**
+     * 日志开启时才格式化 JSON 字符串
+     *
+     * @param prefix 前缀
+     * @param json JSON 字符串
+     * @return 日志消息
+     */
+    public static MessageSupplier formatJson(final String prefix, final String json) {
+        return new MessageSupplier() {
+            @Override
+            public String get() {
+                return prefix + JSONUtils.formatJson(json);
+            }
+        };
+    }
+
     /**
      * 此方法谨慎修改
      * 插件配置 disableLog 会修改此方法
@@ -67,53 +112,25 @@ public class ZALog {
      */
     public static void info(String tag, String msg, Throwable tr) {
         try {
-            if (msg != null) {
-                byte[] bytes = msg.getBytes();
-                int length = bytes.length;
-                if (length <= CHUNK_SIZE) {
-                    Log.i(tag, msg, tr);
-                } else {
-                    int index = 0, lastIndexOfLF = 0;
-                    //当最后一次剩余值小于 CHUNK_SIZE 时，不需要再截断
-                    while (index < length - CHUNK_SIZE) {
-                        lastIndexOfLF = lastIndexOfLF(bytes, index);
-                        int chunkLength = lastIndexOfLF - index;
-                        Log.i(tag, new String(bytes, index, chunkLength), null);
-                        if (chunkLength < CHUNK_SIZE) {
-                            //跳过换行符
-                            index = lastIndexOfLF + 1;
-                        } else {
-                            index = lastIndexOfLF;
-                        }
-                    }
-                    if (length > index) {
-                        Log.i(tag, new String(bytes, index, length - index), tr);
-                    }
-                }
-            } else {
-                Log.i(tag, null, tr);
-            }
+            sWriter.offer(Log.INFO, tag, msg, null, tr);
         } catch (Exception e) {
             printStackTrace(e);
         }
     }
 
     /**
-     * 获取从 fromIndex 开始，最靠近尾部的换行符
+     * 此方法谨慎修改
+     * 插件配置 disableLog 会修改此方法
      *
-     * @param bytes 日志转化的 bytes 数组
-     * @param fromIndex 从 bytes 开始的下标
-     * @return 换行符的下标
+     * @param tag String
+     * @param supplier 消息，在后台线程中生成
      */
-    private static int lastIndexOfLF(byte[] bytes, int fromIndex) {
-        int index = Math.min(fromIndex + CHUNK_SIZE, bytes.length - 1);
-        for (int i = index; i > index - CHUNK_SIZE; i--) {
-            //返回换行符的位置
-            if (bytes[i] == (byte) 10) {
-                return i;
-            }
+    public static void info(String tag, MessageSupplier supplier) {
+        try {
+            sWriter.offer(Log.INFO, tag, null, supplier, null);
+        } catch (Exception e) {
+            printStackTrace(e);
         }
-        return index;
     }
 
     /**
@@ -124,10 +141,47 @@ public class ZALog {
      */
     public static void printStackTrace(Exception e) {
         if (enableLog && !disableSDK && e != null) {
-            Log.e("ZA.Exception", "", e);
+            sWriter.offer(Log.ERROR, "ZA.Exception", "", null, e);
         }
     }
 
+    /**
+     * 开启内存中的最近日志缓存，用于现场排查
+     *
+     * @param maxLines 保留的日志条数，小于等于 0 时关闭
+     */
+    public static void enableRecentLogs(int maxLines) {
+        sWriter.setRecentCapacity(maxLines);
+    }
+
+    /**
+     * 获取最近的日志，需要先调用 {@link #enableRecentLogs(int)}
+     *
+     * @return 按时间顺序排列的日志
+     */
+    public static List<String> getRecentLogs() {
+        return sWriter.getRecent();
+    }
+
+    /**
+     * 将最近的日志写入文件，需要先调用 {@link #enableRecentLogs(int)}
+     *
+     * @param file 目标文件
+     * @return 是否写入成功
+     */
+    public static boolean dumpRecentLogs(File file) {
+        return sWriter.dumpRecent(file);
+    }
+
+    /**
+     * 等待缓冲区中的日志输出完成
+     *
+     * @param timeoutMillis 最长等待时间，单位毫秒
+     */
+    public static void flush(long timeoutMillis) {
+        sWriter.flush(timeoutMillis);
+    }
+
     /**
      * 设置 Debug 状态
      *
@@ -0,0 +1,312 @@
+/*
+ * Created by guo on 2021/11/22.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ZALog 的后台输出线程。
+ * 调用线程只把日志放入固定容量的环形缓冲区（槽位复用，不分配新对象），延迟消息的生成、分段和 Log 输出都在后台线程完成；
+ * 带异常的日志也放入同一个缓冲区，输出顺序与调用顺序一致。缓冲区满时丢弃新日志并在之后输出丢弃条数，不会阻塞调用线程。
+ * 可选开启内存中的最近 N 条日志，用于现场排查时导出到文件。
+ */
+final class ZALogWriter implements Runnable {
+    private static final int CHUNK_SIZE = 4000;
+    private final Entry[] mEntries;
+    private final Object mLock = new Object();
+    private final Object mRecentLock = new Object();
+    private int mHead;
+    private int mSize;
+    private int mDropped;
+    private boolean mWriting;
+    private Thread mThread;
+    /* 最近的日志，未开启时为 null */
+    private String[] mRecent;
+    private int mRecentIndex;
+    private int mRecentCount;
+
+    ZALogWriter(int capacity) {
+        mEntries = new Entry[capacity];
+        for (int i = 0; i < capacity; i++) {
+            mEntries[i] = new Entry();
+        }
+    }
+
+    /**
+     * 放入一条日志，缓冲区满时丢弃
+     *
+     * @param msg 消息，supplier 不为 null 时忽略
+     * @param supplier 延迟生成的消息，在后台线程中调用
+     * @param tr 异常
+     * @return 是否放入成功
+     */
+    boolean offer(int priority, String tag, String msg, ZALog.MessageSupplier supplier, Throwable tr) {
+        synchronized (mLock) {
+            if (mSize == mEntries.length) {
+                mDropped++;
+                return false;
+            }
+            Entry entry = mEntries[(mHead + mSize) % mEntries.length];
+            entry.mPriority = priority;
+            entry.mTag = tag;
+            entry.mMsg = msg;
+            entry.mSupplier = supplier;
+            entry.mThrowable = tr;
+            mSize++;
+            if (mThread == null) {
+                mThread = new Thread(this, ThreadNameConstants.THREAD_LOG_WRITER);
+                mThread.setDaemon(true);
+                mThread.setPriority(Thread.MIN_PRIORITY);
+                mThread.start();
+            } else if (mSize == 1) {
+                mLock.notify();
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            int priority;
+            String tag, msg;
+            ZALog.MessageSupplier supplier;
+            Throwable tr;
+            int dropped;
+            synchronized (mLock) {
+                mWriting = false;
+                mLock.notifyAll();
+                while (mSize == 0) {
+                    try {
+                        mLock.wait();
+                    } catch (InterruptedException e) {
+                        //ignored
+                    }
+                }
+                Entry entry = mEntries[mHead];
+                priority = entry.mPriority;
+                tag = entry.mTag;
+                msg = entry.mMsg;
+                supplier = entry.mSupplier;
+                tr = entry.mThrowable;
+                entry.clear();
+                mHead = (mHead + 1) % mEntries.length;
+                mSize--;
+                dropped = mDropped;
+                mDropped = 0;
+                mWriting = true;
+            }
+            try {
+                if (dropped > 0) {
+                    write(Log.WARN, "ZA.ZALog", dropped + " log messages dropped because the buffer is full", null);
+                }
+                if (supplier != null) {
+                    msg = supplier.get();
+                }
+                write(priority, tag, msg, tr);
+            } catch (Throwable e) {
+                //ignored
+            }
+        }
+    }
+
+    /**
+     * 等待已放入的日志全部输出
+     *
+     * @param timeoutMillis 最长等待时间
+     */
+    void flush(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (mLock) {
+            while (mSize > 0 || mWriting) {
+                long remain = deadline - System.currentTimeMillis();
+                if (remain <= 0) {
+                    return;
+                }
+                try {
+                    mLock.wait(remain);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 开启或关闭最近日志的内存缓存
+     *
+     * @param maxLines 保留的条数，小于等于 0 时关闭
+     */
+    void setRecentCapacity(int maxLines) {
+        synchronized (mRecentLock) {
+            mRecent = maxLines > 0 ? new String[maxLines] : null;
+            mRecentIndex = 0;
+            mRecentCount = 0;
+        }
+    }
+
+    /**
+     * 获取最近的日志，按时间顺序排列
+     *
+     * @return 日志列表
+     */
+    List<String> getRecent() {
+        synchronized (mRecentLock) {
+            List<String> recent = new ArrayList<>(mRecentCount);
+            if (mRecent != null) {
+                int start = (mRecentIndex - mRecentCount + mRecent.length) % mRecent.length;
+                for (int i = 0; i < mRecentCount; i++) {
+                    recent.add(mRecent[(start + i) % mRecent.length]);
+                }
+            }
+            return recent;
+        }
+    }
+
+    /**
+     * 将最近的日志写入文件
+     *
+     * @param file 目标文件
+     * @return 是否写入成功
+     */
+    boolean dumpRecent(File file) {
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+            for (String line : getRecent()) {
+                writer.write(line);
+                writer.write('\n');
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (Exception e) {
+                    //ignored
+                }
+            }
+        }
+    }
+
+    private void write(int priority, String tag, String msg, Throwable tr) {
+        if (msg != null) {
+            byte[] bytes = msg.getBytes();
+            int length = bytes.length;
+            if (length <= CHUNK_SIZE) {
+                println(priority, tag, msg, tr);
+            } else {
+                int index = 0, lastIndexOfLF = 0;
+                //当最后一次剩余值小于 CHUNK_SIZE 时，不需要再截断
+                while (index < length - CHUNK_SIZE) {
+                    lastIndexOfLF = lastIndexOfLF(bytes, index);
+                    int chunkLength = lastIndexOfLF - index;
+                    println(priority, tag, new String(bytes, index, chunkLength), null);
+                    if (chunkLength < CHUNK_SIZE) {
+                        //跳过换行符
+                        index = lastIndexOfLF + 1;
+                    } else {
+                        index = lastIndexOfLF;
+                    }
+                }
+                if (length > index) {
+                    println(priority, tag, new String(bytes, index, length - index), tr);
+                }
+            }
+        } else {
+            println(priority, tag, "", tr);
+        }
+        record(tag, msg, tr);
+    }
+
+    /**
+     * 获取从 fromIndex 开始，最靠近尾部的换行符
+     *
+     * @param bytes 日志转化的 bytes 数组
+     * @param fromIndex 从 bytes 开始的下标
+     * @return 换行符的下标
+     */
+    private static int lastIndexOfLF(byte[] bytes, int fromIndex) {
+        int index = Math.min(fromIndex + CHUNK_SIZE, bytes.length - 1);
+        for (int i = index; i > index - CHUNK_SIZE; i--) {
+            //返回换行符的位置
+            if (bytes[i] == (byte) 10) {
+                return i;
+            }
+        }
+        return index;
+    }
+
+    private static void println(int priority, String tag, String msg, Throwable tr) {
+        if (priority == Log.ERROR) {
+            Log.e(tag, msg, tr);
+        } else if (priority == Log.WARN) {
+            Log.w(tag, msg, tr);
+        } else {
+            Log.i(tag, msg, tr);
+        }
+    }
+
+    private void record(String tag, String msg, Throwable tr) {
+        synchronized (mRecentLock) {
+            if (mRecent == null) {
+                return;
+            }
+            StringBuilder builder = new StringBuilder();
+            builder.append(System.currentTimeMillis()).append(' ').append(tag).append(": ");
+            if (msg != null) {
+                builder.append(msg);
+            }
+            if (tr != null) {
+                builder.append('\n').append(Log.getStackTraceString(tr));
+            }
+            mRecent[mRecentIndex] = builder.toString();
+            mRecentIndex = (mRecentIndex + 1) % mRecent.length;
+            if (mRecentCount < mRecent.length) {
+                mRecentCount++;
+            }
+        }
+    }
+
+    /**
+     * 环形缓冲区的槽位，输出后清空引用以便回收
+     */
+    private static final class Entry {
+        int mPriority;
+        String mTag;
+        String mMsg;
+        ZALog.MessageSupplier mSupplier;
+        Throwable mThrowable;
+
+        void clear() {
+            mTag = null;
+            mMsg = null;
+            mSupplier = null;
+            mThrowable = null;
+        }
+    }
+}
@@ -34,6 +34,8 @@ import com.zalldata.analytics.android.sdk.deeplink.ZallDataDeepLinkCallback;
 import com.zalldata.analytics.android.sdk.internal.rpc.ZallDataContentObserver;
 import com.zalldata.analytics.android.sdk.listener.ZAEventListener;
 import com.zalldata.analytics.android.sdk.listener.ZAFunctionListener;
+import com.zalldata.analytics.android.sdk.metrics.EventMetrics;
+import com.zalldata.analytics.android.sdk.metrics.StartupProfiler;
 import com.zalldata.analytics.android.sdk.remote.BaseZallDataSDKRemoteManager;
 import com.zalldata.analytics.android.sdk.util.AopUtil;
 import com.zalldata.analytics.android.sdk.util.AppInfoUtils;
@@ -1161,6 +1163,8 @@ public class ZallDataAPI extends AbstractZallDataAPI {
         if (AppInfoUtils.isTaskExecuteThread()) {
             return DbAdapter.getInstance().getLoginId();
         }
+        // 初始化的 deferred 阶段还没有读取时在当前线程读取
+        loadLoginId();
         return mLoginId;
     }
 
@@ -1227,6 +1231,7 @@ public class ZallDataAPI extends AbstractZallDataAPI {
             synchronized (mLoginIdLock) {
                 if (!loginId.equals(getAnonymousId())) {
                     mLoginId = loginId;
+                    mLoginIdLoaded = true;
                     if (ZallDataContentObserver.isLoginFromObserver) {//区分是否由 Observer 发送过来
                         ZallDataContentObserver.isLoginFromObserver = false;
                         return;
@@ -1276,7 +1281,11 @@ public class ZallDataAPI extends AbstractZallDataAPI {
     @Override
     public void logout() {
         try {
-            mLoginId = null;
+            // 与 loadLoginId 互斥，避免延迟加载读到数据库中尚未清除的 loginId 后覆盖 logout 的结果
+            synchronized (mLoginIdLock) {
+                mLoginId = null;
+                mLoginIdLoaded = true;
+            }
             mTrackTaskManager.addTrackEventTask(new Runnable() {
                 @Override
                 public void run() {
@@ -1543,9 +1552,7 @@ public class ZallDataAPI extends AbstractZallDataAPI {
             public void run() {
                 try {
                     assertKey(eventName);
-                    synchronized (mTrackTimer) {
-                        mTrackTimer.put(eventName, new EventTimer(timeUnit, startTime));
-                    }
+                    mTrackTimer.start(eventName, timeUnit, startTime);
                 } catch (Exception e) {
                     ZALog.printStackTrace(e);
                 }
@@ -1560,9 +1567,7 @@ public class ZallDataAPI extends AbstractZallDataAPI {
             public void run() {
                 try {
                     assertKey(eventName);
-                    synchronized (mTrackTimer) {
-                        mTrackTimer.remove(eventName);
-                    }
+                    mTrackTimer.remove(eventName);
                 } catch (Exception e) {
                     com.zalldata.analytics.android.sdk.ZALog.printStackTrace(e);
                 }
@@ -1573,7 +1578,7 @@ public class ZallDataAPI extends AbstractZallDataAPI {
     @Override
     public String trackTimerStart(String eventName) {
         try {
-            final String eventNameRegex = String.format("%s_%s_%s", eventName, UUID.randomUUID().toString().replace("-", "_"), "ZATimer");
+            final String eventNameRegex = EventTimerRegistry.newCrossTimerName(eventName);
             trackTimer(eventNameRegex, TimeUnit.SECONDS);
             trackTimer(eventName, TimeUnit.SECONDS);
             return eventNameRegex;
@@ -1600,11 +1605,9 @@ public class ZallDataAPI extends AbstractZallDataAPI {
             @Override
             public void run() {
                 if (eventName != null) {
-                    synchronized (mTrackTimer) {
-                        EventTimer eventTimer = mTrackTimer.get(eventName);
-                        if (eventTimer != null) {
-                            eventTimer.setEndTime(endTime);
-                        }
+                    EventTimer eventTimer = mTrackTimer.get(eventName);
+                    if (eventTimer != null) {
+                        eventTimer.setEndTime(endTime);
                     }
                 }
                 try {
@@ -1628,9 +1631,7 @@ public class ZallDataAPI extends AbstractZallDataAPI {
             @Override
             public void run() {
                 try {
-                    synchronized (mTrackTimer) {
-                        mTrackTimer.clear();
-                    }
+                    mTrackTimer.clear();
                 } catch (Exception e) {
                     com.zalldata.analytics.android.sdk.ZALog.printStackTrace(e);
                 }
@@ -1940,14 +1941,7 @@ public class ZallDataAPI extends AbstractZallDataAPI {
 
     @Override
     public JSONObject getSuperProperties() {
-        synchronized (mSuperProperties) {
-            try {
-                return new JSONObject(mSuperProperties.get().toString());
-            } catch (JSONException e) {
-                ZALog.printStackTrace(e);
-                return new JSONObject();
-            }
-        }
+        return mSuperProperties.get().toJSONObject();
     }
 
     @Override
@@ -1960,10 +1954,8 @@ public class ZallDataAPI extends AbstractZallDataAPI {
                         return;
                     }
                     assertPropertyTypes(superProperties);
-                    synchronized (mSuperProperties) {
-                        JSONObject properties = mSuperProperties.get();
-                        mSuperProperties.commit(ZallDataUtils.mergeSuperJSONObject(superProperties, properties));
-                    }
+                    mSuperProperties.register(superProperties);
+                    mPresetProperties.invalidate();
                 } catch (Exception e) {
                     ZALog.printStackTrace(e);
                 }
@@ -1977,11 +1969,8 @@ public class ZallDataAPI extends AbstractZallDataAPI {
             @Override
             public void run() {
                 try {
-                    synchronized (mSuperProperties) {
-                        JSONObject superProperties = mSuperProperties.get();
-                        superProperties.remove(superPropertyName);
-                        mSuperProperties.commit(superProperties);
-                    }
+                    mSuperProperties.unregister(superPropertyName);
+                    mPresetProperties.invalidate();
                 } catch (Exception e) {
                     ZALog.printStackTrace(e);
                 }
@@ -1994,9 +1983,8 @@ public class ZallDataAPI extends AbstractZallDataAPI {
         mTrackTaskManager.addTrackEventTask(new Runnable() {
             @Override
             public void run() {
-                synchronized (mSuperProperties) {
-                    mSuperProperties.commit(new JSONObject());
-                }
+                mSuperProperties.clear();
+                mPresetProperties.invalidate();
             }
         });
     }
@@ -2380,6 +2368,21 @@ public class ZallDataAPI extends AbstractZallDataAPI {
         });
     }
 
+    @Override
+    public JSONObject getTrackQueueStatistics() {
+        return mTrackTaskManager.getOverloadStatistics();
+    }
+
+    @Override
+    public JSONObject getMetricsSnapshot() {
+        return EventMetrics.snapshot();
+    }
+
+    @Override
+    public JSONObject getStartupTimings() {
+        return StartupProfiler.snapshot();
+    }
+
     /**
      * 获取 SDK 的版本号
      *
@@ -2503,4 +2506,13 @@ public class ZallDataAPI extends AbstractZallDataAPI {
         public static final int TYPE_5G = 1 << 4;//5G
         public static final int TYPE_ALL = 0xFF;//ALL
     }
+
+    /**
+     * 事件任务队列写满后的处理策略
+     */
+    public final class TrackQueueOverflowPolicy {
+        public static final int SPILL = 0;//写入不限长度的溢出队列，不丢弃任务
+        public static final int DROP_OLDEST = 1;//丢弃最早的可丢弃任务（如 $AppClick），其他任务不会丢弃
+        public static final int BLOCK = 2;//阻塞调用线程直到有空闲位置
+    }
 }
\ No newline at end of file
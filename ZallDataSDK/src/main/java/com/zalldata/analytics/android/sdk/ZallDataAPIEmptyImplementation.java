@@ -779,4 +779,19 @@ public class ZallDataAPIEmptyImplementation extends ZallDataAPI {
     public void trackDeepLinkLaunch(String deepLinkUrl, String oaid) {
 
     }
+
+    @Override
+    public JSONObject getTrackQueueStatistics() {
+        return new JSONObject();
+    }
+
+    @Override
+    public JSONObject getMetricsSnapshot() {
+        return new JSONObject();
+    }
+
+    @Override
+    public JSONObject getStartupTimings() {
+        return new JSONObject();
+    }
 }
\ No newline at end of file
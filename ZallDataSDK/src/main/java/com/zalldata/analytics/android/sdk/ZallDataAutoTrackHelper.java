@@ -51,6 +51,7 @@ import com.zalldata.analytics.android.sdk.util.ReflectUtil;
 import com.zalldata.analytics.android.sdk.util.ZAFragmentUtils;
 import com.zalldata.analytics.android.sdk.util.ZallDataUtils;
 import com.zalldata.analytics.android.sdk.util.ThreadUtils;
+import com.zalldata.analytics.android.sdk.util.ViewClickSnapshot;
 import com.zalldata.analytics.android.sdk.util.ViewUtil;
 import com.zalldata.analytics.android.sdk.util.WindowHelper;
 import com.zalldata.analytics.android.sdk.visual.WebViewVisualInterface;
@@ -1242,6 +1243,7 @@ public class ZallDataAutoTrackHelper {
     }
 
     public static void trackViewOnClick(View view, boolean isFromUser) {
+        long startTime = System.nanoTime();
         try {
             if (view == null) {
                 return;
@@ -1287,10 +1289,11 @@ public class ZallDataAutoTrackHelper {
                 return;
             }
 
-            JSONObject properties = new JSONObject();
-
-            if (AopUtil.injectClickInfo(view, properties, isFromUser)) {
-                ZallDataAPI.sharedInstance().trackAutoEvent(AopConstants.APP_CLICK_EVENT_NAME, properties, AopUtil.addViewPathProperties(activity, view, properties));
+            //主线程只采集快照，属性在 track 线程中生成
+            ViewClickSnapshot snapshot = ViewClickSnapshot.capture(view, activity, fragment, isFromUser);
+            if (snapshot != null) {
+                ZallDataAPI.sharedInstance().trackViewClick(snapshot);
+                ViewClickSnapshot.recordMainThreadTime(System.nanoTime() - startTime);
             }
         } catch (Exception e) {
             ZALog.printStackTrace(e);
@@ -86,6 +86,8 @@ public class ZallDataExceptionHandler implements Thread.UncaughtExceptionHandler
                 }
             }
             ZallDataAPI.sharedInstance().flush();
+            // 输出缓冲区中还未输出的日志
+            ZALog.flush(SLEEP_TIMEOUT_MS);
             try {
                 Thread.sleep(SLEEP_TIMEOUT_MS);
             } catch (InterruptedException e1) {
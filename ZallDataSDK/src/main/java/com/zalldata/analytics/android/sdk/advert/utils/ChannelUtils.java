@@ -82,6 +82,8 @@ public class ChannelUtils {
     private static Map<String, String> sUtmProperties = new HashMap<>();
 
     private static Map<String, String> sLatestUtmProperties = new HashMap<>();
+    /* $latest_utm 属性版本，属性变化时递增 */
+    private static volatile int sLatestUtmVersion;
 
     public static JSONObject getUtmProperties() {
         if (sUtmProperties.size() > 0) {
@@ -97,6 +99,15 @@ public class ChannelUtils {
         return new JSONObject();
     }
 
+    /**
+     * 获取 $latest_utm 属性版本，用于判断预置属性快照是否需要重建
+     *
+     * @return 属性版本
+     */
+    public static int getLatestUtmVersion() {
+        return sLatestUtmVersion;
+    }
+
     public static void mergeUtmToEndData(JSONObject source, JSONObject dest) {
         try {
             if (source == null || dest == null) {
@@ -230,6 +241,7 @@ public class ChannelUtils {
                     ZALog.printStackTrace(e);
                 }
             }
+            sLatestUtmVersion++;
         }
     }
 
@@ -262,6 +274,7 @@ public class ChannelUtils {
         } catch (Exception e) {
             ZALog.printStackTrace(e);
         }
+        sLatestUtmVersion++;
     }
 
     /**
@@ -284,6 +297,7 @@ public class ChannelUtils {
     public static void clearMemoryUtm() {
         sUtmProperties.clear();
         sLatestUtmProperties.clear();
+        sLatestUtmVersion++;
     }
 
     /**
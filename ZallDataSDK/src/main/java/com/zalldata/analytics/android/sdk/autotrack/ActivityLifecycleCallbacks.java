@@ -567,10 +567,6 @@ public class ActivityLifecycleCallbacks implements ZallDataActivityLifecycleCall
             DbAdapter.getInstance().commitAppStartTime(SystemClock.elapsedRealtime());
         }
 
-        if (ZallDataAPI.getConfigOptions().isMultiProcessFlush()) {
-            DbAdapter.getInstance().commitSubProcessFlushState(false);
-        }
-
         // 注意这里要重置为 0，对于跨进程的情况，如果子进程崩溃，主进程但是没崩溃，造成统计个数异常，所以要重置为 0。
         DbAdapter.getInstance().commitActivityCount(0);
     }
@@ -23,6 +23,7 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.content.UriMatcher;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.MatrixCursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
@@ -32,7 +33,6 @@ import android.net.Uri;
 import com.zalldata.analytics.android.sdk.ZALog;
 import com.zalldata.analytics.android.sdk.data.adapter.DbParams;
 import com.zalldata.analytics.android.sdk.data.persistent.PersistentAppEndData;
-import com.zalldata.analytics.android.sdk.data.persistent.PersistentFlushDataState;
 import com.zalldata.analytics.android.sdk.data.persistent.PersistentLoader;
 import com.zalldata.analytics.android.sdk.data.persistent.PersistentLoginId;
 import com.zalldata.analytics.android.sdk.data.persistent.PersistentRemoteSDKConfig;
@@ -42,13 +42,13 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.File;
+import java.security.SecureRandom;
 
 class ZAProviderHelper {
     private ContentResolver contentResolver;
     private SQLiteOpenHelper mDbHelper;
     private PersistentAppEndData persistentAppEndData;
     private PersistentLoginId persistentLoginId;
-    private PersistentFlushDataState persistentFlushDataState;
     private PersistentRemoteSDKConfig persistentRemoteSDKConfig;
     private Context mContext;
     private boolean isDbWritable = true;
@@ -56,6 +56,10 @@ class ZAProviderHelper {
     private int startActivityCount = 0;
     private long mAppStartTime = 0;
     private int mSessionTime = 30 * 1000;
+    /* 下一个 _track_id 序号区间的起始值 */
+    private Integer mNextTrackIdBlock;
+    /* Event 表数据条数，-1 表示需要重新统计 */
+    private int mEventCount = -1;
 
     public ZAProviderHelper(Context context, SQLiteOpenHelper dbHelper) {
         try {
@@ -65,7 +69,6 @@ class ZAProviderHelper {
             PersistentLoader.initLoader(context);
             persistentAppEndData = (PersistentAppEndData) PersistentLoader.loadPersistent(DbParams.TABLE_APP_END_DATA);
             persistentLoginId = (PersistentLoginId) PersistentLoader.loadPersistent(DbParams.TABLE_LOGIN_ID);
-            persistentFlushDataState = (PersistentFlushDataState) PersistentLoader.loadPersistent(DbParams.TABLE_SUB_PROCESS_FLUSH_DATA);
             persistentRemoteSDKConfig = (PersistentRemoteSDKConfig) PersistentLoader.loadPersistent(PersistentLoader.PersistentName.REMOTE_CONFIG);
         } catch (Exception e) {
             ZALog.printStackTrace(e);
@@ -101,6 +104,7 @@ class ZAProviderHelper {
                                     cv.put(DbParams.KEY_CREATED_AT, jsonObject.getString(DbParams.KEY_CREATED_AT));
                                     database.insert(DbParams.TABLE_EVENTS, "_id", cv);
                                 }
+                                resetEventCount();
                             }
                         }
                         if (isDbWritable) {
@@ -125,16 +129,17 @@ class ZAProviderHelper {
     public void appendUri(UriMatcher uriMatcher, String authority) {
         try {
             uriMatcher.addURI(authority, DbParams.TABLE_EVENTS, URI_CODE.EVENTS);
+            uriMatcher.addURI(authority, DbParams.TABLE_EVENTS_COUNT, URI_CODE.EVENTS_COUNT);
             uriMatcher.addURI(authority, DbParams.TABLE_ACTIVITY_START_COUNT, URI_CODE.ACTIVITY_START_COUNT);
             uriMatcher.addURI(authority, DbParams.TABLE_APP_START_TIME, URI_CODE.APP_START_TIME);
             uriMatcher.addURI(authority, DbParams.TABLE_APP_END_DATA, URI_CODE.APP_END_DATA);
             uriMatcher.addURI(authority, DbParams.TABLE_SESSION_INTERVAL_TIME, URI_CODE.SESSION_INTERVAL_TIME);
             uriMatcher.addURI(authority, DbParams.TABLE_LOGIN_ID, URI_CODE.LOGIN_ID);
             uriMatcher.addURI(authority, DbParams.TABLE_CHANNEL_PERSISTENT, URI_CODE.CHANNEL_PERSISTENT);
-            uriMatcher.addURI(authority, DbParams.TABLE_SUB_PROCESS_FLUSH_DATA, URI_CODE.FLUSH_DATA);
             uriMatcher.addURI(authority, DbParams.TABLE_FIRST_PROCESS_START, URI_CODE.FIRST_PROCESS_START);
             uriMatcher.addURI(authority, DbParams.TABLE_DATA_DISABLE_SDK, URI_CODE.DISABLE_SDK);
             uriMatcher.addURI(authority, DbParams.TABLE_REMOTE_CONFIG, URI_CODE.REMOTE_CONFIG);
+            uriMatcher.addURI(authority, DbParams.TABLE_TRACK_ID_BLOCK, URI_CODE.TRACK_ID_BLOCK);
         } catch (Exception ex) {
             ZALog.printStackTrace(ex);
         }
@@ -155,6 +160,9 @@ class ZAProviderHelper {
                 return uri;
             }
             long d = database.insert(DbParams.TABLE_EVENTS, "_id", values);
+            if (d != -1) {
+                increaseEventCount(1);
+            }
             return ContentUris.withAppendedId(uri, d);
         } catch (Exception e) {
             ZALog.printStackTrace(e);
@@ -176,7 +184,14 @@ class ZAProviderHelper {
         try {
             SQLiteDatabase database = getWritableDatabase();
             if (database != null) {
-                return database.delete(DbParams.TABLE_EVENTS, selection, selectionArgs);
+                int deleted = database.delete(DbParams.TABLE_EVENTS, selection, selectionArgs);
+                if (selection == null) {
+                    // 不带条件删除时部分系统版本返回 0，直接清零
+                    resetEventCount(0);
+                } else {
+                    increaseEventCount(-deleted);
+                }
+                return deleted;
             }
         } catch (SQLiteException e) {
             isDbWritable = false;
@@ -234,9 +249,6 @@ class ZAProviderHelper {
                     persistentLoginId.commit(values.getAsString(DbParams.TABLE_LOGIN_ID));
                     contentResolver.notifyChange(uri, null);
                     break;
-                case URI_CODE.FLUSH_DATA:
-                    persistentFlushDataState.commit(values.getAsBoolean(DbParams.TABLE_SUB_PROCESS_FLUSH_DATA));
-                    break;
                 case URI_CODE.FIRST_PROCESS_START:
                     isFirstProcessStarted = values.getAsBoolean(DbParams.TABLE_FIRST_PROCESS_START);
                     break;
@@ -287,53 +299,86 @@ class ZAProviderHelper {
      */
     public Cursor queryPersistent(int code) {
         try {
-            String column = null;
-            Object data = null;
-            switch (code) {
-                case URI_CODE.ACTIVITY_START_COUNT:
-                    data = startActivityCount;
-                    column = DbParams.TABLE_ACTIVITY_START_COUNT;
-                    break;
-                case URI_CODE.APP_START_TIME:
-                    data = mAppStartTime;
-                    column = DbParams.TABLE_APP_START_TIME;
-                    break;
-                case URI_CODE.APP_END_DATA:
-                    data = persistentAppEndData.get();
-                    column = DbParams.TABLE_APP_END_DATA;
-                    break;
-                case URI_CODE.SESSION_INTERVAL_TIME:
-                    data = mSessionTime;
-                    column = DbParams.TABLE_SESSION_INTERVAL_TIME;
-                    break;
-                case URI_CODE.LOGIN_ID:
-                    data = persistentLoginId.get();
-                    column = DbParams.TABLE_LOGIN_ID;
-                    break;
-                case URI_CODE.FLUSH_DATA:
-                    synchronized (ZallDataContentProvider.class) {
-                        if (persistentFlushDataState.get()) {
-                            data = 1;
-                        } else {
-                            data = 0;
-                            persistentFlushDataState.commit(true);
-                        }
-                        column = DbParams.TABLE_SUB_PROCESS_FLUSH_DATA;
+            Object data = queryPersistentValue(code);
+            MatrixCursor matrixCursor = new MatrixCursor(new String[]{getPersistentColumn(code)});
+            matrixCursor.addRow(new Object[]{data});
+            return matrixCursor;
+        } catch (Exception e) {
+            ZALog.printStackTrace(e);
+        }
+        return null;
+    }
+
+    /**
+     * 读取持久化数据，ContentProvider 所在进程内直接调用，不需要构建 Cursor
+     *
+     * @param code Uri code
+     * @return 数据，与 queryPersistent 返回的 Cursor 中的值相同
+     */
+    Object queryPersistentValue(int code) {
+        switch (code) {
+            case URI_CODE.ACTIVITY_START_COUNT:
+                return startActivityCount;
+            case URI_CODE.APP_START_TIME:
+                return mAppStartTime;
+            case URI_CODE.APP_END_DATA:
+                return persistentAppEndData.get();
+            case URI_CODE.SESSION_INTERVAL_TIME:
+                return mSessionTime;
+            case URI_CODE.LOGIN_ID:
+                return persistentLoginId.get();
+            case URI_CODE.FIRST_PROCESS_START:
+                return isFirstProcessStarted ? 1 : 0;
+            case URI_CODE.REMOTE_CONFIG:
+                return persistentRemoteSDKConfig.get();
+            case URI_CODE.TRACK_ID_BLOCK:
+                return allocateTrackIdBlock();
+            default:
+                return null;
+        }
+    }
+
+    private String getPersistentColumn(int code) {
+        switch (code) {
+            case URI_CODE.ACTIVITY_START_COUNT:
+                return DbParams.TABLE_ACTIVITY_START_COUNT;
+            case URI_CODE.APP_START_TIME:
+                return DbParams.TABLE_APP_START_TIME;
+            case URI_CODE.APP_END_DATA:
+                return DbParams.TABLE_APP_END_DATA;
+            case URI_CODE.SESSION_INTERVAL_TIME:
+                return DbParams.TABLE_SESSION_INTERVAL_TIME;
+            case URI_CODE.LOGIN_ID:
+                return DbParams.TABLE_LOGIN_ID;
+            case URI_CODE.FIRST_PROCESS_START:
+                return DbParams.TABLE_FIRST_PROCESS_START;
+            case URI_CODE.TRACK_ID_BLOCK:
+                return DbParams.TABLE_TRACK_ID_BLOCK;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 查询 Event 表数据条数，首次查询时通过 SELECT COUNT(*) 统计，之后由插入和删除操作增量维护
+     *
+     * @return Cursor
+     */
+    public Cursor queryEventCount() {
+        try {
+            int count;
+            synchronized (this) {
+                if (mEventCount < 0) {
+                    SQLiteDatabase database = getWritableDatabase();
+                    if (database == null) {
+                        return null;
                     }
-                    break;
-                case URI_CODE.FIRST_PROCESS_START:
-                    data = isFirstProcessStarted ? 1 : 0;
-                    column = DbParams.TABLE_FIRST_PROCESS_START;
-                    break;
-                case URI_CODE.REMOTE_CONFIG:
-                    data = persistentRemoteSDKConfig.get();
-                    break;
-                default:
-                    break;
+                    mEventCount = (int) DatabaseUtils.queryNumEntries(database, DbParams.TABLE_EVENTS);
+                }
+                count = mEventCount;
             }
-
-            MatrixCursor matrixCursor = new MatrixCursor(new String[]{column});
-            matrixCursor.addRow(new Object[]{data});
+            MatrixCursor matrixCursor = new MatrixCursor(new String[]{DbParams.TABLE_EVENTS_COUNT});
+            matrixCursor.addRow(new Object[]{count});
             return matrixCursor;
         } catch (Exception e) {
             ZALog.printStackTrace(e);
@@ -341,6 +386,38 @@ class ZAProviderHelper {
         return null;
     }
 
+    /**
+     * 分配一段 _track_id 序号区间，起始值在首次分配时随机生成。
+     * 区间只在最高位为 0 的范围内循环分配，与 ContentProvider 不可用时进程自选的区间不会重叠
+     *
+     * @return 区间的起始序号
+     */
+    private synchronized int allocateTrackIdBlock() {
+        if (mNextTrackIdBlock == null) {
+            mNextTrackIdBlock = new SecureRandom().nextInt() & DbParams.TRACK_ID_BLOCK_MASK;
+        }
+        int block = mNextTrackIdBlock;
+        mNextTrackIdBlock = (block + DbParams.TRACK_ID_BLOCK_SIZE) & DbParams.TRACK_ID_BLOCK_MASK;
+        return block;
+    }
+
+    private synchronized void increaseEventCount(int delta) {
+        if (mEventCount >= 0) {
+            mEventCount = Math.max(0, mEventCount + delta);
+        }
+    }
+
+    private synchronized void resetEventCount(int count) {
+        mEventCount = count;
+    }
+
+    /**
+     * 标记 Event 表数据条数需要重新统计
+     */
+    private void resetEventCount() {
+        resetEventCount(-1);
+    }
+
     /**
      * 获取数据库
      *
@@ -352,6 +429,7 @@ class ZAProviderHelper {
             if (!isDBExist()) {
                 mDbHelper.close();
                 isDbWritable = true;
+                resetEventCount();
             }
             database = mDbHelper.getWritableDatabase();
         } catch (SQLiteException e) {
@@ -377,9 +455,10 @@ class ZAProviderHelper {
         int SESSION_INTERVAL_TIME = 6;
         int LOGIN_ID = 7;
         int CHANNEL_PERSISTENT = 8;
-        int FLUSH_DATA = 9;
         int FIRST_PROCESS_START = 10;
         int DISABLE_SDK = 11;
         int REMOTE_CONFIG = 12;
+        int EVENTS_COUNT = 13;
+        int TRACK_ID_BLOCK = 14;
     }
 }
@@ -0,0 +1,97 @@
+/*
+ * Created by guo on 2021/11/19.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.data;
+
+import android.content.ContentValues;
+import android.content.UriMatcher;
+import android.net.Uri;
+
+/**
+ * ContentProvider 所在进程内访问持久化数据的快速通道。
+ * 直接调用 ZAProviderHelper，不经过 ContentResolver 和 MatrixCursor；
+ * 只有 ContentProvider 在当前进程创建后才可用，其他进程仍然走 ContentResolver。
+ * 写入时 ZAProviderHelper 仍会 notifyChange，其他进程通过 ZallDataContentObserver 收到变化。
+ */
+public final class ZAProviderLocalAccess {
+    private static volatile ZAProviderLocalAccess sInstance;
+    private final UriMatcher mUriMatcher;
+    private final ZAProviderHelper mProviderHelper;
+
+    private ZAProviderLocalAccess(UriMatcher uriMatcher, ZAProviderHelper providerHelper) {
+        mUriMatcher = uriMatcher;
+        mProviderHelper = providerHelper;
+    }
+
+    static void attach(UriMatcher uriMatcher, ZAProviderHelper providerHelper) {
+        sInstance = new ZAProviderLocalAccess(uriMatcher, providerHelper);
+    }
+
+    /**
+     * 获取当前进程的快速通道
+     *
+     * @return ContentProvider 不在当前进程时返回 null
+     */
+    public static ZAProviderLocalAccess getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * 是否支持该 Uri，只处理持久化数据，Event 表和渠道表仍然走 ContentResolver
+     *
+     * @param uri Uri
+     * @return 是否支持
+     */
+    public boolean isSupported(Uri uri) {
+        switch (mUriMatcher.match(uri)) {
+            case ZAProviderHelper.URI_CODE.ACTIVITY_START_COUNT:
+            case ZAProviderHelper.URI_CODE.APP_START_TIME:
+            case ZAProviderHelper.URI_CODE.APP_END_DATA:
+            case ZAProviderHelper.URI_CODE.SESSION_INTERVAL_TIME:
+            case ZAProviderHelper.URI_CODE.LOGIN_ID:
+            case ZAProviderHelper.URI_CODE.FIRST_PROCESS_START:
+            case ZAProviderHelper.URI_CODE.REMOTE_CONFIG:
+            case ZAProviderHelper.URI_CODE.TRACK_ID_BLOCK:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 读取持久化数据
+     *
+     * @param uri Uri
+     * @return 数据
+     */
+    public Object query(Uri uri) {
+        return mProviderHelper.queryPersistentValue(mUriMatcher.match(uri));
+    }
+
+    /**
+     * 写入持久化数据
+     *
+     * @param uri Uri
+     * @param values 数据
+     */
+    public void insert(Uri uri, ContentValues values) {
+        if (values == null || values.size() == 0) {
+            return;
+        }
+        mProviderHelper.insertPersistent(mUriMatcher.match(uri), uri, values);
+    }
+}
@@ -51,6 +51,8 @@ public class ZallDataContentProvider extends ContentProvider {
                 mProviderHelper.appendUri(uriMatcher, packageName + ".ZallDataContentProvider");
                 /* 迁移数据，并删除老的数据库 */
                 mProviderHelper.migratingDB(context, packageName);
+                /* 同进程内的持久化数据读写直接访问 ZAProviderHelper */
+                ZAProviderLocalAccess.attach(uriMatcher, mProviderHelper);
             }
         } catch (Exception e) {
             ZALog.printStackTrace(e);
@@ -132,6 +134,8 @@ public class ZallDataContentProvider extends ContentProvider {
             int code = uriMatcher.match(uri);
             if (code == ZAProviderHelper.URI_CODE.EVENTS) {
                 cursor = mProviderHelper.queryByTable(DbParams.TABLE_EVENTS, projection, selection, selectionArgs, sortOrder);
+            } else if (code == ZAProviderHelper.URI_CODE.EVENTS_COUNT) {
+                cursor = mProviderHelper.queryEventCount();
             } else if (code == ZAProviderHelper.URI_CODE.CHANNEL_PERSISTENT) {
                 cursor = mProviderHelper.queryByTable(DbParams.TABLE_CHANNEL_PERSISTENT, projection, selection, selectionArgs, sortOrder);
             } else {
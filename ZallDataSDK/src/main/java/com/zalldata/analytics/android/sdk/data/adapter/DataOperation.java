@@ -30,12 +30,14 @@ import com.zalldata.analytics.android.sdk.ZallDataAPI;
 import org.json.JSONObject;
 
 import java.io.File;
+import java.util.List;
 
 abstract class DataOperation {
     String TAG = "EventDataOperation";
     ContentResolver contentResolver;
     private final File mDatabaseFile;
     private Context mContext;
+    private final EventJsonWriter mEventJsonWriter = new EventJsonWriter();
 
     DataOperation(Context context) {
         this.mContext = context;
@@ -53,11 +55,63 @@ abstract class DataOperation {
      */
     abstract int insertData(Uri uri, ContentValues contentValues);
 
+    /**
+     * 批量保存数据，所有数据在同一个事务中写入
+     *
+     * @param uri Uri
+     * @param jsonObjects 数据集合
+     * @return 正常返回 0
+     */
+    int insertData(Uri uri, List<JSONObject> jsonObjects) {
+        try {
+            if (deleteDataLowMemory(uri) != 0) {
+                return DbParams.DB_OUT_OF_MEMORY_ERROR;
+            }
+            ContentValues[] values = new ContentValues[jsonObjects.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = buildEventValues(jsonObjects.get(i));
+            }
+            contentResolver.bulkInsert(uri, values);
+        } catch (Throwable e) {
+            ZALog.d(TAG, e.getMessage());
+        }
+        return 0;
+    }
+
+    /**
+     * 构建 Event 表的一行数据
+     *
+     * @param jsonObject 事件
+     * @return ContentValues
+     */
+    ContentValues buildEventValues(JSONObject jsonObject) throws Exception {
+        ContentValues cv = new ContentValues();
+        String data;
+        synchronized (mEventJsonWriter) {
+            data = mEventJsonWriter.write(jsonObject);
+        }
+        cv.put(DbParams.KEY_DATA, data);
+        cv.put(DbParams.KEY_CREATED_AT, System.currentTimeMillis());
+        return cv;
+    }
+
     /**
      * 查询数据
      */
     abstract String[] queryData(Uri uri, int limit);
 
+    /**
+     * 按 _id 顺序查询 afterId 之后的数据
+     *
+     * @param uri Uri
+     * @param afterId 起始 _id（不包含），为 null 时从第一条开始
+     * @param limit 条数限制
+     * @return 数据
+     */
+    String[] queryData(Uri uri, String afterId, int limit) {
+        return queryData(uri, limit);
+    }
+
     /**
      * 查询数据条数
      *
@@ -65,9 +119,34 @@ abstract class DataOperation {
      * @return 条数
      */
     int queryDataCount(Uri uri) {
+        if (DbParams.getInstance().getEventUri().equals(uri)) {
+            return queryEventCount();
+        }
         return queryDataCount(uri, null, null, null, null);
     }
 
+    /**
+     * 查询 Event 表数据条数，条数由 ContentProvider 维护，不需要遍历整个表
+     *
+     * @return 条数
+     */
+    private int queryEventCount() {
+        Cursor cursor = null;
+        try {
+            cursor = contentResolver.query(DbParams.getInstance().getEventCountUri(), null, null, null, null);
+            if (cursor != null && cursor.moveToFirst()) {
+                return cursor.getInt(0);
+            }
+        } catch (Exception ex) {
+            ZALog.printStackTrace(ex);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return 0;
+    }
+
     /**
      * 查询数据条数
      */
@@ -104,12 +183,31 @@ abstract class DataOperation {
         }
     }
 
+    /**
+     * 删除 _id 在 (fromId, lastId] 区间内的数据
+     *
+     * @param uri Uri
+     * @param fromId 起始 _id（不包含），为 null 时删除 lastId 及之前的数据
+     * @param lastId 结束 _id
+     */
+    void deleteData(Uri uri, String fromId, String lastId) {
+        if (fromId == null) {
+            deleteData(uri, lastId);
+            return;
+        }
+        try {
+            contentResolver.delete(uri, "_id > ? AND _id <= ?", new String[]{fromId, lastId});
+        } catch (Exception ex) {
+            ZALog.printStackTrace(ex);
+        }
+    }
+
     String parseData(String keyData) {
         try {
             if (TextUtils.isEmpty(keyData)) return "";
             int index = keyData.lastIndexOf("\t");
             if (index > -1) {
-                String crc = keyData.substring(index).replaceFirst("\t", "");
+                String crc = keyData.substring(index + 1);
                 keyData = keyData.substring(0, index);
                 if (TextUtils.isEmpty(keyData) || TextUtils.isEmpty(crc)
                         || !crc.equals(String.valueOf(keyData.hashCode()))) {
@@ -155,6 +253,15 @@ abstract class DataOperation {
         }
     }
 
+    /**
+     * 数据库文件大小
+     *
+     * @return 文件大小，单位字节
+     */
+    long getDatabaseSize() {
+        return mDatabaseFile.exists() ? mDatabaseFile.length() : 0;
+    }
+
     private boolean belowMemThreshold() {
         if (mDatabaseFile.exists()) {
             return mDatabaseFile.length() >= getMaxCacheSize(mContext);
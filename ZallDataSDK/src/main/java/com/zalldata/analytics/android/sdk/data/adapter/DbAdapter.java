@@ -22,10 +22,13 @@ import android.content.Context;
 
 import com.zalldata.analytics.android.sdk.ZALog;
 import com.zalldata.analytics.android.sdk.encrypt.ZallDataEncrypt;
+import com.zalldata.analytics.android.sdk.metrics.EventMetrics;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.util.List;
+
 public class DbAdapter {
     private static DbAdapter instance;
     private final DbParams mDbParams;
@@ -66,13 +69,51 @@ public class DbAdapter {
      * on failure
      */
     public int addJSON(JSONObject j) {
+        long startNanos = System.nanoTime();
         int code = mTrackEventOperation.insertData(mDbParams.getEventUri(), j);
+        EventMetrics.recordSince(EventMetrics.STAGE_DB_INSERT, startNanos);
         if (code == 0) {
             return mTrackEventOperation.queryDataCount(mDbParams.getEventUri());
         }
+        EventMetrics.increment(EventMetrics.COUNTER_DB_INSERT_FAILURE);
         return code;
     }
 
+    /**
+     * 批量保存事件，所有事件在同一个事务中写入数据库
+     *
+     * @param events 事件集合
+     * @return 表中数据条数，失败时返回 DB_OUT_OF_MEMORY_ERROR
+     */
+    public int addJSON(List<JSONObject> events) {
+        long startNanos = System.nanoTime();
+        int code = mTrackEventOperation.insertData(mDbParams.getEventUri(), events);
+        EventMetrics.recordSince(EventMetrics.STAGE_DB_INSERT, startNanos);
+        if (code == 0) {
+            return mTrackEventOperation.queryDataCount(mDbParams.getEventUri());
+        }
+        EventMetrics.increment(EventMetrics.COUNTER_DB_INSERT_FAILURE);
+        return code;
+    }
+
+    /**
+     * 获取 Event 表中的数据条数
+     *
+     * @return 数据条数
+     */
+    public int getEventCount() {
+        return mTrackEventOperation.queryDataCount(mDbParams.getEventUri());
+    }
+
+    /**
+     * 获取数据库文件大小
+     *
+     * @return 文件大小，单位字节
+     */
+    public long getDatabaseSize() {
+        return mTrackEventOperation.getDatabaseSize();
+    }
+
     /**
      * Removes all events from table
      */
@@ -87,7 +128,23 @@ public class DbAdapter {
      * @return the number of rows in the table
      */
     public int cleanupEvents(String last_id) {
+        long startNanos = System.nanoTime();
         mTrackEventOperation.deleteData(mDbParams.getEventUri(), last_id);
+        EventMetrics.recordSince(EventMetrics.STAGE_DB_DELETE, startNanos);
+        return mTrackEventOperation.queryDataCount(mDbParams.getEventUri());
+    }
+
+    /**
+     * Removes events with an _id in (from_id, last_id] from table
+     *
+     * @param from_id the exclusive lower bound, null means from the first event
+     * @param last_id the last id to delete
+     * @return the number of rows in the table
+     */
+    public int cleanupEvents(String from_id, String last_id) {
+        long startNanos = System.nanoTime();
+        mTrackEventOperation.deleteData(mDbParams.getEventUri(), from_id, last_id);
+        EventMetrics.recordSince(EventMetrics.STAGE_DB_DELETE, startNanos);
         return mTrackEventOperation.queryDataCount(mDbParams.getEventUri());
     }
 
@@ -269,26 +326,26 @@ public class DbAdapter {
     }
 
     /**
-     * 保存子进程上报数据的状态
+     * 保存首个启动进程的标记
      *
-     * @param flushState 上报状态
+     * @param isFirst 是否首个进程
      */
-    public void commitSubProcessFlushState(boolean flushState) {
+    public void commitFirstProcessState(boolean isFirst) {
         try {
-            mPersistentOperation.insertData(mDbParams.getSubProcessUri(), new JSONObject().put(DbParams.VALUE, flushState));
+            mPersistentOperation.insertData(mDbParams.getFirstProcessUri(), new JSONObject().put(DbParams.VALUE, isFirst));
         } catch (JSONException e) {
             ZALog.printStackTrace(e);
         }
     }
 
     /**
-     * 获取子进程上报数据状态
+     * 获取是否首个启动进程的标记
      *
-     * @return 上报状态
+     * @return 是否首个进程
      */
-    public boolean isSubProcessFlushing() {
+    public boolean isFirstProcess() {
         try {
-            String[] values = mPersistentOperation.queryData(mDbParams.getSubProcessUri(), 1);
+            String[] values = mPersistentOperation.queryData(mDbParams.getFirstProcessUri(), 1);
             if (values != null && values.length > 0) {
                 return Integer.parseInt(values[0]) == 1;
             }
@@ -299,33 +356,20 @@ public class DbAdapter {
     }
 
     /**
-     * 保存首个启动进程的标记
-     *
-     * @param isFirst 是否首个进程
-     */
-    public void commitFirstProcessState(boolean isFirst) {
-        try {
-            mPersistentOperation.insertData(mDbParams.getFirstProcessUri(), new JSONObject().put(DbParams.VALUE, isFirst));
-        } catch (JSONException e) {
-            ZALog.printStackTrace(e);
-        }
-    }
-
-    /**
-     * 获取是否首个启动进程的标记
+     * 申请一段 _track_id 序号区间，同一个 ContentProvider 生命周期内各进程申请到的区间互不重叠
      *
-     * @return 是否首个进程
+     * @return 区间的起始序号，取值范围 [0, 2^32)，失败时返回 -1
      */
-    public boolean isFirstProcess() {
+    public long allocateTrackIdBlock() {
         try {
-            String[] values = mPersistentOperation.queryData(mDbParams.getFirstProcessUri(), 1);
+            String[] values = mPersistentOperation.queryData(mDbParams.getTrackIdBlockUri(), 1);
             if (values != null && values.length > 0) {
-                return Integer.parseInt(values[0]) == 1;
+                return Integer.parseInt(values[0]) & 0xFFFFFFFFL;
             }
         } catch (Exception ex) {
             ZALog.printStackTrace(ex);
         }
-        return true;
+        return -1;
     }
 
     /**
@@ -366,10 +410,33 @@ public class DbAdapter {
      * @return 数据
      */
     public String[] generateDataString(String tableName, int limit) {
+        long startNanos = System.nanoTime();
         try {
             return mTrackEventOperation.queryData(mDbParams.getEventUri(), limit);
         } catch (Exception e) {
             ZALog.printStackTrace(e);
+        } finally {
+            EventMetrics.recordSince(EventMetrics.STAGE_DB_READ, startNanos);
+        }
+        return null;
+    }
+
+    /**
+     * 从 Event 表中按 _id 顺序读取 afterId 之后的上报数据
+     *
+     * @param tableName 表名
+     * @param afterId 起始 _id（不包含），为 null 时从第一条开始
+     * @param limit 条数限制
+     * @return 数据，依次为最后一条数据的 _id、数据内容、gzip 类型、数据条数
+     */
+    public String[] generateDataString(String tableName, String afterId, int limit) {
+        long startNanos = System.nanoTime();
+        try {
+            return mTrackEventOperation.queryData(mDbParams.getEventUri(), afterId, limit);
+        } catch (Exception e) {
+            ZALog.printStackTrace(e);
+        } finally {
+            EventMetrics.recordSince(EventMetrics.STAGE_DB_READ, startNanos);
         }
         return null;
     }
@@ -22,6 +22,8 @@ import android.net.Uri;
 public class DbParams {
     /* 数据库中的表名 */
     public static final String TABLE_EVENTS = "events";
+    /* Event 表数据条数，由 ContentProvider 维护 */
+    public static final String TABLE_EVENTS_COUNT = "events_count";
     public static final String TABLE_CHANNEL_PERSISTENT = "t_channel";
     public static final int DB_OUT_OF_MEMORY_ERROR = -2;
     public static final String KEY_CHANNEL_EVENT_NAME = "event_name";
@@ -33,7 +35,6 @@ public class DbParams {
     public static final String TABLE_ACTIVITY_START_COUNT = "activity_started_count";
     public static final String TABLE_APP_START_TIME = "app_start_time";
     public static final String TABLE_APP_END_DATA = "app_end_data";
-    public static final String TABLE_SUB_PROCESS_FLUSH_DATA = "sub_process_flush_data";
     public static final String TABLE_FIRST_PROCESS_START = "first_process_start";
     public static final String TABLE_SESSION_INTERVAL_TIME = "session_interval_time";
     public static final String TABLE_DATA_COLLECT = "data_collect";
@@ -41,6 +42,12 @@ public class DbParams {
     public static final String TABLE_DATA_DISABLE_SDK = "disable_SDK";
     public static final String TABLE_REMOTE_CONFIG = "remote_config";
     public static final String TABLE_LOGIN_ID = "events_login_id";
+    public static final String TABLE_TRACK_ID_BLOCK = "track_id_block";
+    /* 每次分配的 _track_id 序号个数 */
+    public static final int TRACK_ID_BLOCK_SIZE = 1 << 16;
+    /* ContentProvider 分配的序号区间最高位为 0，ContentProvider 不可用时进程自选的区间最高位为 1，两者不会重叠 */
+    public static final int TRACK_ID_BLOCK_MASK = 0x7FFFFFFF & -TRACK_ID_BLOCK_SIZE;
+    public static final int TRACK_ID_FALLBACK_FLAG = 0x80000000;
     /* Event 表字段 */
     public static final String KEY_DATA = "data";
     public static final String KEY_CREATED_AT = "created_at";
@@ -52,24 +59,25 @@ public class DbParams {
     /* 删除所有数据 */
     static final String DB_DELETE_ALL = "DB_DELETE_ALL";
     private static DbParams instance;
-    private final Uri mUri, mActivityStartCountUri, mAppStartTimeUri, mDataCollectUri,
-            mAppEndDataUri, mSessionTimeUri, mLoginIdUri, mChannelPersistentUri, mSubProcessUri,
-            mFirstProcessUri, mEnableSDKUri, mDisableSDKUri, mRemoteConfigUri;
+    private final Uri mUri, mEventCountUri, mActivityStartCountUri, mAppStartTimeUri, mDataCollectUri,
+            mAppEndDataUri, mSessionTimeUri, mLoginIdUri, mChannelPersistentUri,
+            mFirstProcessUri, mEnableSDKUri, mDisableSDKUri, mRemoteConfigUri, mTrackIdBlockUri;
 
     private DbParams(String packageName) {
         mUri = Uri.parse("content://" + packageName + ".ZallDataContentProvider/" + TABLE_EVENTS);
+        mEventCountUri = Uri.parse("content://" + packageName + ".ZallDataContentProvider/" + TABLE_EVENTS_COUNT);
         mActivityStartCountUri = Uri.parse("content://" + packageName + ".ZallDataContentProvider/" + TABLE_ACTIVITY_START_COUNT);
         mAppStartTimeUri = Uri.parse("content://" + packageName + ".ZallDataContentProvider/" + TABLE_APP_START_TIME);
         mAppEndDataUri = Uri.parse("content://" + packageName + ".ZallDataContentProvider/" + TABLE_APP_END_DATA);
         mSessionTimeUri = Uri.parse("content://" + packageName + ".ZallDataContentProvider/" + TABLE_SESSION_INTERVAL_TIME);
         mLoginIdUri = Uri.parse("content://" + packageName + ".ZallDataContentProvider/" + TABLE_LOGIN_ID);
         mChannelPersistentUri = Uri.parse("content://" + packageName + ".ZallDataContentProvider/" + TABLE_CHANNEL_PERSISTENT);
-        mSubProcessUri = Uri.parse("content://" + packageName + ".ZallDataContentProvider/" + TABLE_SUB_PROCESS_FLUSH_DATA);
         mFirstProcessUri = Uri.parse("content://" + packageName + ".ZallDataContentProvider/" + TABLE_FIRST_PROCESS_START);
         mDataCollectUri = Uri.parse("content://" + packageName + ".ZallDataContentProvider/" + TABLE_DATA_COLLECT);
         mEnableSDKUri = Uri.parse("content://" + packageName + ".ZallDataContentProvider/" + TABLE_DATA_ENABLE_SDK);
         mDisableSDKUri = Uri.parse("content://" + packageName + ".ZallDataContentProvider/" + TABLE_DATA_DISABLE_SDK);
         mRemoteConfigUri = Uri.parse("content://" + packageName + ".ZallDataContentProvider/" + TABLE_REMOTE_CONFIG);
+        mTrackIdBlockUri = Uri.parse("content://" + packageName + ".ZallDataContentProvider/" + TABLE_TRACK_ID_BLOCK);
     }
 
     public static DbParams getInstance(String packageName) {
@@ -95,6 +103,15 @@ public class DbParams {
         return mUri;
     }
 
+    /**
+     * 获取 Event 表数据条数 Uri
+     *
+     * @return Uri
+     */
+    Uri getEventCountUri() {
+        return mEventCountUri;
+    }
+
     /**
      * 获取 AppStart Uri
      *
@@ -149,15 +166,6 @@ public class DbParams {
         return mChannelPersistentUri;
     }
 
-    /**
-     * 多进程上报数据标记位 Uri
-     *
-     * @return Uri
-     */
-    Uri getSubProcessUri() {
-        return mSubProcessUri;
-    }
-
     /**
      * 是否首个启动的进程 Uri
      *
@@ -187,4 +195,13 @@ public class DbParams {
     public Uri getRemoteConfigUri() {
         return mRemoteConfigUri;
     }
+
+    /**
+     * 申请 _track_id 序号区间 Uri
+     *
+     * @return Uri
+     */
+    Uri getTrackIdBlockUri() {
+        return mTrackIdBlockUri;
+    }
 }
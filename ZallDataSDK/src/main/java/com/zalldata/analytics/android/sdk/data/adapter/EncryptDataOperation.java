@@ -25,6 +25,7 @@ import android.text.TextUtils;
 
 import com.zalldata.analytics.android.sdk.ZALog;
 import com.zalldata.analytics.android.sdk.encrypt.ZallDataEncrypt;
+import com.zalldata.analytics.android.sdk.metrics.EventMetrics;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -47,17 +48,21 @@ class EncryptDataOperation extends DataOperation {
             if (deleteDataLowMemory(uri) != 0) {
                 return DbParams.DB_OUT_OF_MEMORY_ERROR;
             }
-            jsonObject = mZallDataEncrypt.encryptTrackData(jsonObject);
-            ContentValues cv = new ContentValues();
-            cv.put(DbParams.KEY_DATA, jsonObject.toString() + "\t" + jsonObject.toString().hashCode());
-            cv.put(DbParams.KEY_CREATED_AT, System.currentTimeMillis());
-            contentResolver.insert(uri, cv);
+            contentResolver.insert(uri, buildEventValues(jsonObject));
         } catch (Throwable e) {
             ZALog.d(TAG, e.getMessage());
         }
         return 0;
     }
 
+    @Override
+    ContentValues buildEventValues(JSONObject jsonObject) throws Exception {
+        long startNanos = System.nanoTime();
+        JSONObject encryptData = mZallDataEncrypt.encryptTrackData(jsonObject);
+        EventMetrics.recordSince(EventMetrics.STAGE_ENCRYPT, startNanos);
+        return super.buildEventValues(encryptData);
+    }
+
     @Override
     int insertData(Uri uri, ContentValues contentValues) {
         try {
@@ -73,14 +78,27 @@ class EncryptDataOperation extends DataOperation {
 
     @Override
     String[] queryData(Uri uri, int limit) {
+        return queryData(uri, null, null, DbParams.KEY_CREATED_AT + " ASC LIMIT " + limit);
+    }
+
+    @Override
+    String[] queryData(Uri uri, String afterId, int limit) {
+        if (afterId == null) {
+            return queryData(uri, null, null, "_id ASC LIMIT " + limit);
+        }
+        return queryData(uri, "_id > ?", new String[]{afterId}, "_id ASC LIMIT " + limit);
+    }
+
+    private String[] queryData(Uri uri, String selection, String[] selectionArgs, String sortOrder) {
         Cursor cursor = null;
         String data = null;
         String last_id = null;
         String gzipType = DbParams.GZIP_DATA_ENCRYPT;
+        int rowCount = 0;
         try {
             Map<String, JSONArray> dataEncryptMap = new HashMap<>();
             JSONArray dataJsonArray = new JSONArray();
-            cursor = contentResolver.query(uri, null, null, null, DbParams.KEY_CREATED_AT + " ASC LIMIT " + limit);
+            cursor = contentResolver.query(uri, null, selection, selectionArgs, sortOrder);
             if (cursor != null) {
                 String keyData;
                 JSONObject jsonObject;
@@ -88,6 +106,7 @@ class EncryptDataOperation extends DataOperation {
                 final String KEY_VER = "pkv";
                 final String PAYLOADS = "payloads";
                 while (cursor.moveToNext()) {
+                    rowCount++;
                     if (cursor.isLast()) {
                         last_id = cursor.getString(cursor.getColumnIndex("_id"));
                     }
@@ -144,7 +163,7 @@ class EncryptDataOperation extends DataOperation {
             }
         }
         if (last_id != null) {
-            return new String[]{last_id, data, gzipType};
+            return new String[]{last_id, data, gzipType, String.valueOf(rowCount)};
         }
         return null;
     }
@@ -0,0 +1,108 @@
+/*
+ * Created by guo on 2021/11/02.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.data.adapter;
+
+import android.os.SystemClock;
+
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 事件批量写入，事件先缓存在内存中，缓存条数达到上限或者超过缓存时长后，在同一个事务中写入数据库
+ */
+public class EventBatchWriter {
+    /* 事件已缓存，未写入数据库；addJSON 成功时返回条数（可能为 0），失败时返回 DbParams 中的 -1、-2，这里使用不会冲突的负数 */
+    public static final int PENDING = -100;
+    private final DbAdapter mDbAdapter;
+    private final int mMaxBatchSize;
+    private final long mMaxDelay;
+    private final List<JSONObject> mPendingEvents;
+    private long mFirstPendingTime;
+
+    /**
+     * @param dbAdapter DbAdapter
+     * @param maxBatchSize 单次写入的最大条数
+     * @param maxDelay 事件在内存中的最长缓存时间，单位毫秒
+     */
+    public EventBatchWriter(DbAdapter dbAdapter, int maxBatchSize, long maxDelay) {
+        mDbAdapter = dbAdapter;
+        mMaxBatchSize = maxBatchSize;
+        mMaxDelay = maxDelay;
+        mPendingEvents = new ArrayList<>(maxBatchSize);
+    }
+
+    /**
+     * 缓存事件，满足写入条件时将缓存的事件写入数据库
+     *
+     * @param event 事件
+     * @param commitNow 是否立即写入数据库
+     * @return 未写入数据库时返回 PENDING，否则返回 DbAdapter#addJSON 的结果
+     */
+    public synchronized int write(JSONObject event, boolean commitNow) {
+        if (mPendingEvents.isEmpty()) {
+            mFirstPendingTime = SystemClock.elapsedRealtime();
+        }
+        mPendingEvents.add(event);
+        if (commitNow || mPendingEvents.size() >= mMaxBatchSize
+                || SystemClock.elapsedRealtime() - mFirstPendingTime >= mMaxDelay) {
+            return commit();
+        }
+        return PENDING;
+    }
+
+    /**
+     * 将缓存的事件写入数据库
+     *
+     * @return 没有缓存事件时返回 PENDING，否则返回 DbAdapter#addJSON 的结果
+     */
+    public synchronized int commit() {
+        if (mPendingEvents.isEmpty()) {
+            return PENDING;
+        }
+        List<JSONObject> events = new ArrayList<>(mPendingEvents);
+        mPendingEvents.clear();
+        return mDbAdapter.addJSON(events);
+    }
+
+    /**
+     * 丢弃缓存的事件
+     */
+    public synchronized void clear() {
+        mPendingEvents.clear();
+    }
+
+    /**
+     * 获取缓存的事件条数
+     *
+     * @return 缓存的事件条数
+     */
+    public synchronized int getPendingCount() {
+        return mPendingEvents.size();
+    }
+
+    /**
+     * 获取事件在内存中的最长缓存时间
+     *
+     * @return 单位毫秒
+     */
+    public long getMaxDelay() {
+        return mMaxDelay;
+    }
+}
@@ -41,10 +41,7 @@ class EventDataOperation extends DataOperation {
             if (deleteDataLowMemory(uri) != 0) {
                 return DbParams.DB_OUT_OF_MEMORY_ERROR;
             }
-            ContentValues cv = new ContentValues();
-            cv.put(DbParams.KEY_DATA, jsonObject.toString() + "\t" + jsonObject.toString().hashCode());
-            cv.put(DbParams.KEY_CREATED_AT, System.currentTimeMillis());
-            contentResolver.insert(uri, cv);
+            contentResolver.insert(uri, buildEventValues(jsonObject));
         } catch (Throwable e) {
             ZALog.d(TAG, e.getMessage());
         }
@@ -66,11 +63,24 @@ class EventDataOperation extends DataOperation {
 
     @Override
     String[] queryData(Uri uri, int limit) {
+        return queryData(uri, null, null, DbParams.KEY_CREATED_AT + " ASC LIMIT " + limit);
+    }
+
+    @Override
+    String[] queryData(Uri uri, String afterId, int limit) {
+        if (afterId == null) {
+            return queryData(uri, null, null, "_id ASC LIMIT " + limit);
+        }
+        return queryData(uri, "_id > ?", new String[]{afterId}, "_id ASC LIMIT " + limit);
+    }
+
+    private String[] queryData(Uri uri, String selection, String[] selectionArgs, String sortOrder) {
         Cursor cursor = null;
         String data = null;
         String last_id = null;
+        int rowCount = 0;
         try {
-            cursor = contentResolver.query(uri, null, null, null, DbParams.KEY_CREATED_AT + " ASC LIMIT " + limit);
+            cursor = contentResolver.query(uri, null, selection, selectionArgs, sortOrder);
             if (cursor != null) {
                 StringBuilder dataBuilder = new StringBuilder();
                 final String flush_time = ",\"_flush_time\":";
@@ -78,6 +88,7 @@ class EventDataOperation extends DataOperation {
                 dataBuilder.append("[");
                 String keyData;
                 while (cursor.moveToNext()) {
+                    rowCount++;
                     if (cursor.isLast()) {
                         suffix = "]";
                         last_id = cursor.getString(cursor.getColumnIndex("_id"));
@@ -108,7 +119,7 @@ class EventDataOperation extends DataOperation {
         }
 
         if (last_id != null) {
-            return new String[]{last_id, data, DbParams.GZIP_DATA_EVENT};
+            return new String[]{last_id, data, DbParams.GZIP_DATA_EVENT, String.valueOf(rowCount)};
         }
         return null;
     }
@@ -0,0 +1,154 @@
+/*
+ * Created by guo on 2021/11/11.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.data.adapter;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+
+/**
+ * 把事件写成 Event 表 data 列的格式：事件 JSON + "\t" + JSON 字符串的 hashCode。
+ * 事件只遍历一次，hashCode 在写入字符的同时计算，输出与 JSONObject.toString() 相同；
+ * 缓冲区在多次写入之间复用，非线程安全。
+ */
+class EventJsonWriter {
+    /* 超过该长度的缓冲区写完后不再保留 */
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private StringBuilder mBuilder = new StringBuilder(1024);
+    private int mHash;
+
+    /**
+     * 生成 data 列的值
+     *
+     * @param jsonObject 事件
+     * @return 事件 JSON + "\t" + hashCode
+     * @throws JSONException 数字不合法时抛出
+     */
+    String write(JSONObject jsonObject) throws JSONException {
+        mBuilder.setLength(0);
+        mHash = 0;
+        writeObject(jsonObject);
+        mBuilder.append('\t').append(mHash);
+        String data = mBuilder.toString();
+        if (mBuilder.capacity() > MAX_RETAINED_CAPACITY) {
+            mBuilder = new StringBuilder(1024);
+        }
+        return data;
+    }
+
+    private void writeObject(JSONObject jsonObject) throws JSONException {
+        append('{');
+        Iterator<String> keys = jsonObject.keys();
+        boolean first = true;
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (!first) {
+                append(',');
+            }
+            first = false;
+            writeString(key);
+            append(':');
+            writeValue(jsonObject.opt(key));
+        }
+        append('}');
+    }
+
+    private void writeArray(JSONArray jsonArray) throws JSONException {
+        append('[');
+        for (int i = 0; i < jsonArray.length(); i++) {
+            if (i > 0) {
+                append(',');
+            }
+            writeValue(jsonArray.opt(i));
+        }
+        append(']');
+    }
+
+    private void writeValue(Object value) throws JSONException {
+        if (value == null || value == JSONObject.NULL) {
+            appendLiteral("null");
+        } else if (value instanceof JSONObject) {
+            writeObject((JSONObject) value);
+        } else if (value instanceof JSONArray) {
+            writeArray((JSONArray) value);
+        } else if (value instanceof Boolean) {
+            appendLiteral(value.toString());
+        } else if (value instanceof Number) {
+            appendLiteral(JSONObject.numberToString((Number) value));
+        } else {
+            writeString(value.toString());
+        }
+    }
+
+    /**
+     * 与 JSONStringer 相同的转义规则
+     */
+    private void writeString(String value) {
+        append('"');
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                case '/':
+                    append('\\');
+                    append(c);
+                    break;
+                case '\t':
+                    appendLiteral("\\t");
+                    break;
+                case '\b':
+                    appendLiteral("\\b");
+                    break;
+                case '\n':
+                    appendLiteral("\\n");
+                    break;
+                case '\r':
+                    appendLiteral("\\r");
+                    break;
+                case '\f':
+                    appendLiteral("\\f");
+                    break;
+                default:
+                    if (c <= 0x1F) {
+                        appendLiteral("\\u00");
+                        append(HEX[c >> 4]);
+                        append(HEX[c & 0xF]);
+                    } else {
+                        append(c);
+                    }
+                    break;
+            }
+        }
+        append('"');
+    }
+
+    private void appendLiteral(String literal) {
+        for (int i = 0, length = literal.length(); i < length; i++) {
+            append(literal.charAt(i));
+        }
+    }
+
+    private void append(char c) {
+        mBuilder.append(c);
+        mHash = 31 * mHash + c;
+    }
+}
@@ -24,6 +24,7 @@ import android.net.Uri;
 import android.text.TextUtils;
 
 import com.zalldata.analytics.android.sdk.ZALog;
+import com.zalldata.analytics.android.sdk.data.ZAProviderLocalAccess;
 
 import org.json.JSONObject;
 
@@ -73,9 +74,6 @@ class PersistentDataOperation extends DataOperation {
                     case DbParams.TABLE_LOGIN_ID:
                         contentValues.put(DbParams.TABLE_LOGIN_ID, jsonObject.optString(DbParams.VALUE));
                         break;
-                    case DbParams.TABLE_SUB_PROCESS_FLUSH_DATA:
-                        contentValues.put(DbParams.TABLE_SUB_PROCESS_FLUSH_DATA, jsonObject.optBoolean(DbParams.VALUE));
-                        break;
                     case DbParams.TABLE_FIRST_PROCESS_START:
                         contentValues.put(DbParams.TABLE_FIRST_PROCESS_START, jsonObject.optBoolean(DbParams.VALUE));
                         break;
@@ -85,7 +83,12 @@ class PersistentDataOperation extends DataOperation {
                     default:
                         return -1;
                 }
-                contentResolver.insert(uri, contentValues);
+                ZAProviderLocalAccess localAccess = ZAProviderLocalAccess.getInstance();
+                if (localAccess != null && localAccess.isSupported(uri)) {
+                    localAccess.insert(uri, contentValues);
+                } else {
+                    contentResolver.insert(uri, contentValues);
+                }
             }
         } catch (Exception e) {
             ZALog.printStackTrace(e);
@@ -100,13 +103,18 @@ class PersistentDataOperation extends DataOperation {
         Cursor cursor = null;
         try {
             path = path.substring(1);
+            ZAProviderLocalAccess localAccess = ZAProviderLocalAccess.getInstance();
+            if (localAccess != null && localAccess.isSupported(uri)) {
+                Object value = localAccess.query(uri);
+                return new String[]{value == null ? null : String.valueOf(value)};
+            }
             cursor = contentResolver.query(uri, null, null, null, null);
             if (cursor != null && cursor.getCount() > 0) {
                 cursor.moveToNext();
                 switch (path) {
                     case DbParams.TABLE_ACTIVITY_START_COUNT:
-                    case DbParams.TABLE_SUB_PROCESS_FLUSH_DATA:
                     case DbParams.TABLE_FIRST_PROCESS_START:
+                    case DbParams.TABLE_TRACK_ID_BLOCK:
                         return new String[]{String.valueOf(cursor.getInt(0))};
                     case DbParams.TABLE_APP_END_DATA:
                     case DbParams.TABLE_LOGIN_ID:
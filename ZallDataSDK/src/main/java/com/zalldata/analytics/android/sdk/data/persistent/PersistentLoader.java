@@ -71,8 +71,6 @@ public class PersistentLoader {
                 return new PersistentRemoteSDKConfig(storedPreferences);
             case PersistentName.SUPER_PROPERTIES:
                 return new PersistentSuperProperties(storedPreferences);
-            case PersistentName.SUB_PROCESS_FLUSH_DATA:
-                return new PersistentFlushDataState(storedPreferences);
             case PersistentName.VISUAL_PROPERTIES:
                 return new PersistentVisualConfig(storedPreferences);
             default:
@@ -82,7 +80,6 @@ public class PersistentLoader {
 
     public interface PersistentName {
         String APP_END_DATA = DbParams.TABLE_APP_END_DATA;
-        String SUB_PROCESS_FLUSH_DATA = DbParams.TABLE_SUB_PROCESS_FLUSH_DATA;
         String DISTINCT_ID = "events_distinct_id";
         String FIRST_DAY = "first_day";
         String FIRST_START = "first_start";
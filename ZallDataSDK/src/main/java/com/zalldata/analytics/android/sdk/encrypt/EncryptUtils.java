@@ -31,6 +31,10 @@ import java.security.SecureRandom;
 import java.security.interfaces.ECPublicKey;
 import java.security.spec.KeySpec;
 import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
@@ -44,6 +48,16 @@ import javax.crypto.spec.SecretKeySpec;
 class EncryptUtils {
 
     private static final String TAG = "ZallDataEncrypt";
+    private static final SecureRandom sSecureRandom = new SecureRandom();
+    /* Cipher 缓存版本，密钥更新时递增，各线程缓存的 Cipher 随之失效 */
+    private static final AtomicInteger sCipherVersion = new AtomicInteger();
+    /* 每个线程独立持有已初始化过的 Cipher，Cipher 本身非线程安全 */
+    private static final ThreadLocal<Map<SymmetricEncryptMode, CipherContext>> sCipherContexts = new ThreadLocal<Map<SymmetricEncryptMode, CipherContext>>() {
+        @Override
+        protected Map<SymmetricEncryptMode, CipherContext> initialValue() {
+            return new EnumMap<>(SymmetricEncryptMode.class);
+        }
+    };
 
     /**
      * 随机生成 AES/SM4 加密秘钥
@@ -129,13 +143,12 @@ class EncryptUtils {
             return null;
         }
         try {
-            SecureRandom random = new SecureRandom();
             // 随机生成初始化向量
             byte[] ivBytes = new byte[16];
-            random.nextBytes(ivBytes);
-            SecretKeySpec secretKeySpec = new SecretKeySpec(key, mode.algorithm);
-            Cipher cipher = Cipher.getInstance(mode.transformation);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKeySpec, new IvParameterSpec(ivBytes));
+            sSecureRandom.nextBytes(ivBytes);
+            CipherContext cipherContext = getCipherContext(key, mode);
+            Cipher cipher = cipherContext.mCipher;
+            cipher.init(Cipher.ENCRYPT_MODE, cipherContext.mKeySpec, new IvParameterSpec(ivBytes));
 
             byte[] encryptedBytes = cipher.doFinal(contentBytes);
             ByteBuffer byteBuffer = ByteBuffer.allocate(ivBytes.length + encryptedBytes.length);
@@ -148,4 +161,45 @@ class EncryptUtils {
         }
         return null;
     }
+
+    /**
+     * 密钥更新后调用，各线程缓存的 Cipher 在下次使用时重新创建
+     */
+    static void invalidateCipherCache() {
+        sCipherVersion.incrementAndGet();
+    }
+
+    /**
+     * 获取当前线程缓存的 Cipher，密钥或缓存版本变化时重新创建
+     *
+     * @param key AES/SM4 加密秘钥
+     * @param mode {@link SymmetricEncryptMode} 同步加密类型
+     * @return CipherContext
+     * @throws Exception 创建 Cipher 失败
+     */
+    static CipherContext getCipherContext(byte[] key, SymmetricEncryptMode mode) throws Exception {
+        Map<SymmetricEncryptMode, CipherContext> cipherContexts = sCipherContexts.get();
+        CipherContext cipherContext = cipherContexts.get(mode);
+        int version = sCipherVersion.get();
+        if (cipherContext == null || cipherContext.mVersion != version || !Arrays.equals(cipherContext.mKey, key)) {
+            cipherContext = new CipherContext(version, key.clone(), new SecretKeySpec(key, mode.algorithm),
+                    Cipher.getInstance(mode.transformation));
+            cipherContexts.put(mode, cipherContext);
+        }
+        return cipherContext;
+    }
+
+    static class CipherContext {
+        private final int mVersion;
+        private final byte[] mKey;
+        private final SecretKeySpec mKeySpec;
+        private final Cipher mCipher;
+
+        CipherContext(int version, byte[] key, SecretKeySpec keySpec, Cipher cipher) {
+            mVersion = version;
+            mKey = key;
+            mKeySpec = keySpec;
+            mCipher = cipher;
+        }
+    }
 }
@@ -129,6 +129,7 @@ public class ZallDataEncrypt {
 
             SAEncryptListener encryptListener = getEncryptListener(secreteKey);
             if (encryptListener != null) {
+                EncryptUtils.invalidateCipherCache();
                 if (mPersistentSecretKey != null) {
                     mPersistentSecretKey.saveSecretKey(secreteKey);
                     // 同时删除本地的密钥
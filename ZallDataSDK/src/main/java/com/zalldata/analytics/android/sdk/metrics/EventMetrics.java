@@ -0,0 +1,173 @@
+/*
+ * Created by guo on 2021/11/24.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.metrics;
+
+import com.zalldata.analytics.android.sdk.ZALog;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 事件链路指标：从 track 到服务端确认的各个阶段的耗时直方图（单位微秒）、计数器、上报失败的状态码，
+ * 以及快照时读取的队列长度、数据库条数等即时值。
+ */
+public final class EventMetrics {
+    /* 事件任务放入 TrackTaskManager 队列 */
+    public static final int STAGE_ENQUEUE = 0;
+    /* trackEvent 开始到交给 AnalyticsMessages 的属性组装 */
+    public static final int STAGE_PROPERTIES = 1;
+    /* 写入数据库前的单条加密和上报前的整批加密 */
+    public static final int STAGE_ENCRYPT = 2;
+    public static final int STAGE_DB_INSERT = 3;
+    /* generateDataString 读取一批数据 */
+    public static final int STAGE_DB_READ = 4;
+    /* gzip 和 Base64 编码 */
+    public static final int STAGE_ENCODE = 5;
+    public static final int STAGE_HTTP = 6;
+    public static final int STAGE_DB_DELETE = 7;
+    private static final String[] STAGE_NAMES = {
+            "enqueue", "properties", "encrypt", "db_insert", "db_read", "encode", "http", "db_delete"
+    };
+
+    public static final String COUNTER_UPLOAD_SUCCESS = "upload_success";
+    public static final String COUNTER_UPLOAD_FAILURE = "upload_failure";
+    public static final String COUNTER_DB_INSERT_FAILURE = "db_insert_failure";
+
+    private static final Histogram[] sStages = new Histogram[STAGE_NAMES.length];
+    private static final Map<String, AtomicLong> sCounters = new ConcurrentHashMap<>();
+    private static final Map<Integer, AtomicLong> sFailureCodes = new ConcurrentHashMap<>();
+    private static final Map<String, Gauge> sGauges = new ConcurrentHashMap<>();
+
+    static {
+        for (int i = 0; i < sStages.length; i++) {
+            sStages[i] = new Histogram();
+        }
+    }
+
+    private EventMetrics() {
+    }
+
+    /**
+     * 快照时读取的即时值
+     */
+    public interface Gauge {
+        /**
+         * @return 数值、字符串或 JSONObject
+         */
+        Object value();
+    }
+
+    /**
+     * 记录阶段耗时
+     *
+     * @param stage STAGE_*
+     * @param startNanos 开始时的 System.nanoTime()
+     */
+    public static void recordSince(int stage, long startNanos) {
+        sStages[stage].record((System.nanoTime() - startNanos) / 1000);
+    }
+
+    public static Histogram getStage(int stage) {
+        return sStages[stage];
+    }
+
+    public static void increment(String counter) {
+        AtomicLong value = sCounters.get(counter);
+        if (value == null) {
+            synchronized (sCounters) {
+                value = sCounters.get(counter);
+                if (value == null) {
+                    value = new AtomicLong();
+                    sCounters.put(counter, value);
+                }
+            }
+        }
+        value.incrementAndGet();
+    }
+
+    /**
+     * 记录上报失败时服务端返回的状态码
+     *
+     * @param httpCode 状态码
+     */
+    public static void recordFailureCode(int httpCode) {
+        AtomicLong value = sFailureCodes.get(httpCode);
+        if (value == null) {
+            synchronized (sFailureCodes) {
+                value = sFailureCodes.get(httpCode);
+                if (value == null) {
+                    value = new AtomicLong();
+                    sFailureCodes.put(httpCode, value);
+                }
+            }
+        }
+        value.incrementAndGet();
+    }
+
+    /**
+     * 注册即时值，同名时覆盖
+     *
+     * @param name 名称
+     * @param gauge 即时值
+     */
+    public static void registerGauge(String name, Gauge gauge) {
+        sGauges.put(name, gauge);
+    }
+
+    /**
+     * 生成指标快照
+     *
+     * @return {"stages":{阶段名:直方图},"counters":{},"failure_codes":{},"gauges":{}}
+     */
+    public static JSONObject snapshot() {
+        JSONObject snapshot = new JSONObject();
+        try {
+            JSONObject stages = new JSONObject();
+            for (int i = 0; i < sStages.length; i++) {
+                stages.put(STAGE_NAMES[i], sStages[i].toJSON());
+            }
+            snapshot.put("stages", stages);
+            JSONObject counters = new JSONObject();
+            for (Map.Entry<String, AtomicLong> entry : sCounters.entrySet()) {
+                counters.put(entry.getKey(), entry.getValue().get());
+            }
+            snapshot.put("counters", counters);
+            JSONObject failureCodes = new JSONObject();
+            for (Map.Entry<Integer, AtomicLong> entry : sFailureCodes.entrySet()) {
+                failureCodes.put(String.valueOf(entry.getKey()), entry.getValue().get());
+            }
+            snapshot.put("failure_codes", failureCodes);
+            JSONObject gauges = new JSONObject();
+            for (Map.Entry<String, Gauge> entry : sGauges.entrySet()) {
+                try {
+                    gauges.put(entry.getKey(), entry.getValue().value());
+                } catch (Exception e) {
+                    ZALog.printStackTrace(e);
+                }
+            }
+            snapshot.put("gauges", gauges);
+        } catch (JSONException e) {
+            ZALog.printStackTrace(e);
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Created by guo on 2021/11/25.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.metrics;
+
+import com.zalldata.analytics.android.sdk.ZALog;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SDK 初始化耗时：按阶段记录每个步骤的耗时和阶段完成的时间（单位毫秒）。
+ * critical 阶段在调用初始化的线程上执行，deferred 阶段在事件任务线程上、先于所有事件执行，idle 阶段在主线程空闲时执行。
+ */
+public final class StartupProfiler {
+    public static final int STAGE_CRITICAL = 0;
+    public static final int STAGE_DEFERRED = 1;
+    public static final int STAGE_IDLE = 2;
+    private static final String[] STAGE_NAMES = {"critical", "deferred", "idle"};
+
+    private static final Object sLock = new Object();
+    /* 初始化开始时的 System.nanoTime()，0 表示未开始 */
+    private static long sStartNanos;
+    private static final Map<String, Double>[] sSteps = newSteps();
+    /* 阶段耗时，-1 表示未完成 */
+    private static final double[] sStageMillis = {-1, -1, -1};
+    /* 阶段完成时距初始化开始的时间 */
+    private static final double[] sFinishedAtMillis = {-1, -1, -1};
+
+    private StartupProfiler() {
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Double>[] newSteps() {
+        Map<String, Double>[] steps = new Map[STAGE_NAMES.length];
+        for (int i = 0; i < steps.length; i++) {
+            steps[i] = new LinkedHashMap<>();
+        }
+        return steps;
+    }
+
+    /**
+     * 开始记录，清除之前的记录
+     *
+     * @return 当前的 System.nanoTime()
+     */
+    public static long start() {
+        long now = System.nanoTime();
+        synchronized (sLock) {
+            sStartNanos = now;
+            for (int i = 0; i < STAGE_NAMES.length; i++) {
+                sSteps[i].clear();
+                sStageMillis[i] = -1;
+                sFinishedAtMillis[i] = -1;
+            }
+        }
+        return now;
+    }
+
+    /**
+     * 记录步骤耗时，同名步骤耗时累加
+     *
+     * @param stage STAGE_*
+     * @param step 步骤名
+     * @param startNanos 步骤开始时的 System.nanoTime()
+     * @return 当前的 System.nanoTime()，可以作为下一个步骤的开始时间
+     */
+    public static long recordStep(int stage, String step, long startNanos) {
+        long now = System.nanoTime();
+        double millis = toMillis(now - startNanos);
+        synchronized (sLock) {
+            Double old = sSteps[stage].get(step);
+            sSteps[stage].put(step, old == null ? millis : old + millis);
+        }
+        return now;
+    }
+
+    /**
+     * 记录阶段完成
+     *
+     * @param stage STAGE_*
+     * @param startNanos 阶段开始时的 System.nanoTime()
+     */
+    public static void finishStage(int stage, long startNanos) {
+        long now = System.nanoTime();
+        synchronized (sLock) {
+            sStageMillis[stage] = toMillis(now - startNanos);
+            if (sStartNanos != 0) {
+                sFinishedAtMillis[stage] = toMillis(now - sStartNanos);
+            }
+        }
+    }
+
+    public static boolean isFinished(int stage) {
+        synchronized (sLock) {
+            return sStageMillis[stage] >= 0;
+        }
+    }
+
+    /**
+     * 生成耗时快照
+     *
+     * @return {阶段名:{"finished":是否完成,"duration_ms":阶段耗时,"finished_at_ms":完成时距初始化开始的时间,"steps":{步骤名:耗时}}}
+     */
+    public static JSONObject snapshot() {
+        JSONObject snapshot = new JSONObject();
+        try {
+            synchronized (sLock) {
+                for (int i = 0; i < STAGE_NAMES.length; i++) {
+                    JSONObject stage = new JSONObject();
+                    boolean finished = sStageMillis[i] >= 0;
+                    stage.put("finished", finished);
+                    if (finished) {
+                        stage.put("duration_ms", sStageMillis[i]);
+                        stage.put("finished_at_ms", sFinishedAtMillis[i]);
+                    }
+                    JSONObject steps = new JSONObject();
+                    for (Map.Entry<String, Double> entry : sSteps[i].entrySet()) {
+                        steps.put(entry.getKey(), Math.round(entry.getValue() * 1000) / 1000.0);
+                    }
+                    stage.put("steps", steps);
+                    snapshot.put(STAGE_NAMES[i], stage);
+                }
+            }
+        } catch (JSONException e) {
+            ZALog.printStackTrace(e);
+        }
+        return snapshot;
+    }
+
+    private static double toMillis(long nanos) {
+        // 保留 3 位小数
+        return Math.round(nanos / 1000.0) / 1000.0;
+    }
+}
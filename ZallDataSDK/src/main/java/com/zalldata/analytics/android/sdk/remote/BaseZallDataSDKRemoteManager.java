@@ -35,7 +35,6 @@ import com.zalldata.analytics.android.sdk.util.AppInfoUtils;
 import com.zalldata.analytics.android.sdk.util.ZallDataUtils;
 
 import org.json.JSONArray;
-import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.Locale;
@@ -48,7 +47,9 @@ public abstract class BaseZallDataSDKRemoteManager {
     protected ZallDataEncrypt mZallDataEncrypt;
     protected boolean mDisableDefaultRemoteConfig;
 
-    protected static ZallDataSDKRemoteConfig mSDKRemoteConfig;
+    protected static volatile ZallDataSDKRemoteConfig mSDKRemoteConfig;
+    /* 由 mSDKRemoteConfig 编译得到的采集控制规则，配置生效时整体替换 */
+    private static volatile RemoteConfigRules sRemoteConfigRules = RemoteConfigRules.EMPTY;
     protected ZallDataAPI mZallDataAPI;
 
     protected BaseZallDataSDKRemoteManager(ZallDataAPI zallDataAPI) {
@@ -73,23 +74,40 @@ public abstract class BaseZallDataSDKRemoteManager {
 
     protected abstract void setSDKRemoteConfig(ZallDataSDKRemoteConfig sdkRemoteConfig);
 
+    /**
+     * 使在线控制配置生效，编译采集控制规则后替换当前规则
+     *
+     * @param sdkRemoteConfig 在线控制配置
+     */
+    protected void applyRemoteConfig(ZallDataSDKRemoteConfig sdkRemoteConfig) {
+        RemoteConfigRules rules = RemoteConfigRules.compile(sdkRemoteConfig);
+        mSDKRemoteConfig = sdkRemoteConfig;
+        sRemoteConfigRules = rules;
+    }
+
     public boolean ignoreEvent(String eventName) {
-        if (mSDKRemoteConfig != null && mSDKRemoteConfig.getEventBlacklist() != null) {
-            try {
-                int size = mSDKRemoteConfig.getEventBlacklist().length();
-                for (int i = 0; i < size; i++) {
-                    if (eventName.equals(mSDKRemoteConfig.getEventBlacklist().get(i))) {
-                        ZALog.i(TAG, "remote config: " + eventName + " is ignored by remote config");
-                        return true;
-                    }
-                }
-            } catch (JSONException e) {
-                ZALog.printStackTrace(e);
-            }
+        if (sRemoteConfigRules.isEventIgnored(eventName)) {
+            ZALog.i(TAG, "remote config: " + eventName + " is ignored by remote config");
+            return true;
         }
         return false;
     }
 
+    /**
+     * 按在线控制配置对事件采样和限流，需要在生成事件属性之前调用，每个事件只调用一次
+     *
+     * @param eventName 事件名
+     * @param anonymousId 匿名 ID，登录前后不变，同一设备的采样结果稳定
+     * @return 0 表示丢弃事件，否则为事件的等效采样率，小于 1 时需要添加 $sample_rate 属性
+     */
+    public double sampleEvent(String eventName, String anonymousId) {
+        double sampleRate = sRemoteConfigRules.sample(eventName, anonymousId);
+        if (sampleRate == 0 && ZALog.isLogEnabled()) {
+            ZALog.i(TAG, "remote config: " + eventName + " is dropped by sampling or rate limit");
+        }
+        return sampleRate;
+    }
+
     /**
      * 将 json 格式的字符串转成 ZallDataSDKRemoteConfig 对象，并处理默认值
      *
@@ -111,6 +129,8 @@ public abstract class BaseZallDataSDKRemoteManager {
                     sdkRemoteConfig.setDisableSDK(configObject.optBoolean("disableSDK", false));
                     sdkRemoteConfig.setAutoTrackMode(configObject.optInt("autoTrackMode", -1));
                     sdkRemoteConfig.setEventBlacklist(configObject.optJSONArray("event_blacklist"));
+                    sdkRemoteConfig.setEventSampleRate(configObject.optJSONObject("event_sample_rate"));
+                    sdkRemoteConfig.setEventRateLimit(configObject.optJSONObject("event_rate_limit"));
                     sdkRemoteConfig.setNewVersion(configObject.optString("nv", ""));
                     sdkRemoteConfig.setEffectMode(configObject.optInt("effect_mode", 0));
                     if (mZAConfigOptions.getEncryptors() != null && !mZAConfigOptions.getEncryptors().isEmpty()) {
@@ -187,22 +207,11 @@ public abstract class BaseZallDataSDKRemoteManager {
      * @return true 表示该类型被忽略，false 表示不被忽略，null 表示使用本地代码配置
      */
     public Boolean isAutoTrackEventTypeIgnored(int autoTrackEventType) {
-        if (mSDKRemoteConfig != null) {
-            if (mSDKRemoteConfig.getAutoTrackMode() != ZallDataSDKRemoteConfig.REMOTE_EVENT_TYPE_NO_USE) {
-                if (mSDKRemoteConfig.getAutoTrackMode() == 0) {
-                    return true;
-                }
-                return mSDKRemoteConfig.isAutoTrackEventTypeIgnored(autoTrackEventType);
-            }
-        }
-        return null;
+        return sRemoteConfigRules.isAutoTrackEventTypeIgnored(autoTrackEventType);
     }
 
     public static boolean isSDKDisabledByRemote() {
-        if (mSDKRemoteConfig == null) {
-            return false;
-        }
-        return mSDKRemoteConfig.isDisableSDK();
+        return sRemoteConfigRules.isDisableSDK();
     }
 
     /**
@@ -211,15 +220,11 @@ public abstract class BaseZallDataSDKRemoteManager {
      * @return false 表示全部全埋点被禁止，true 表示部分未被禁止，null 表示使用本地代码配置
      */
     public Boolean isAutoTrackEnabled() {
-        if (mSDKRemoteConfig != null) {
-            if (mSDKRemoteConfig.getAutoTrackMode() == 0) {
-                ZALog.i(TAG, "remote config: AutoTrackMode is closing by remote config");
-                return false;
-            } else if (mSDKRemoteConfig.getAutoTrackMode() > 0) {
-                return true;
-            }
+        Boolean isAutoTrackEnabled = sRemoteConfigRules.isAutoTrackEnabled();
+        if (Boolean.FALSE.equals(isAutoTrackEnabled)) {
+            ZALog.i(TAG, "remote config: AutoTrackMode is closing by remote config");
         }
-        return null;
+        return isAutoTrackEnabled;
     }
 
     /**
@@ -0,0 +1,238 @@
+/*
+ * Created by guo on 2021/11/21.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.remote;
+
+import com.zalldata.analytics.android.sdk.ZALog;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 采集控制规则，在线控制配置生效时由 {@link ZallDataSDKRemoteConfig} 编译生成，创建后不再变化。
+ * 事件黑名单使用 HashSet，全埋点类型预先计算为禁用位掩码，track 时的判断不需要加锁也不需要遍历 JSONArray。
+ * 采样按匿名 ID 和事件名哈希决定，同一设备的同一事件结果稳定，登录前后不变；限流使用每个事件独立的令牌桶，新配置生效后重新计数。
+ */
+final class RemoteConfigRules {
+    /* 没有在线控制配置时使用的规则 */
+    static final RemoteConfigRules EMPTY = new RemoteConfigRules();
+
+    private final boolean mDisableSDK;
+    private final int mAutoTrackMode;
+    /* 被禁用的全埋点类型，autoTrackMode 为 0 时全部禁用 */
+    private final int mDisabledAutoTrackTypes;
+    private final Set<String> mEventBlacklist;
+    private final Map<String, Double> mEventSampleRates;
+    private final Map<String, TokenBucket> mEventRateLimiters;
+
+    private RemoteConfigRules() {
+        mDisableSDK = false;
+        mAutoTrackMode = ZallDataSDKRemoteConfig.REMOTE_EVENT_TYPE_NO_USE;
+        mDisabledAutoTrackTypes = 0;
+        mEventBlacklist = Collections.emptySet();
+        mEventSampleRates = Collections.emptyMap();
+        mEventRateLimiters = Collections.emptyMap();
+    }
+
+    private RemoteConfigRules(ZallDataSDKRemoteConfig sdkRemoteConfig) {
+        mDisableSDK = sdkRemoteConfig.isDisableSDK();
+        mAutoTrackMode = sdkRemoteConfig.getAutoTrackMode();
+        if (mAutoTrackMode == ZallDataSDKRemoteConfig.REMOTE_EVENT_TYPE_NO_USE) {
+            mDisabledAutoTrackTypes = 0;
+        } else if (mAutoTrackMode == 0) {
+            mDisabledAutoTrackTypes = ~0;
+        } else {
+            mDisabledAutoTrackTypes = ~sdkRemoteConfig.getAutoTrackEventType();
+        }
+        mEventBlacklist = compileBlacklist(sdkRemoteConfig.getEventBlacklist());
+        mEventSampleRates = compileSampleRates(sdkRemoteConfig.getEventSampleRate());
+        mEventRateLimiters = compileRateLimiters(sdkRemoteConfig.getEventRateLimit(), now());
+    }
+
+    /**
+     * 编译在线控制配置
+     *
+     * @param sdkRemoteConfig 在线控制配置，可以为 null
+     * @return 采集控制规则
+     */
+    static RemoteConfigRules compile(ZallDataSDKRemoteConfig sdkRemoteConfig) {
+        if (sdkRemoteConfig == null) {
+            return EMPTY;
+        }
+        return new RemoteConfigRules(sdkRemoteConfig);
+    }
+
+    boolean isDisableSDK() {
+        return mDisableSDK;
+    }
+
+    /**
+     * 全埋点是否被在线控制禁止
+     *
+     * @return false 表示全部全埋点被禁止，true 表示部分未被禁止，null 表示使用本地代码配置
+     */
+    Boolean isAutoTrackEnabled() {
+        if (mAutoTrackMode == 0) {
+            return Boolean.FALSE;
+        } else if (mAutoTrackMode > 0) {
+            return Boolean.TRUE;
+        }
+        return null;
+    }
+
+    /**
+     * 全埋点类型是否被在线控制忽略
+     *
+     * @param autoTrackEventType 全埋点类型
+     * @return true 表示该类型被忽略，false 表示不被忽略，null 表示使用本地代码配置
+     */
+    Boolean isAutoTrackEventTypeIgnored(int autoTrackEventType) {
+        if (mAutoTrackMode == ZallDataSDKRemoteConfig.REMOTE_EVENT_TYPE_NO_USE) {
+            return null;
+        }
+        return (mDisabledAutoTrackTypes & autoTrackEventType) != 0;
+    }
+
+    boolean isEventIgnored(String eventName) {
+        return mEventBlacklist.contains(eventName);
+    }
+
+    /**
+     * 事件的采样率
+     *
+     * @param eventName 事件名
+     * @return 采样率，范围 [0, 1]，未配置时返回 1
+     */
+    double getEventSampleRate(String eventName) {
+        Double rate = mEventSampleRates.get(eventName);
+        return rate == null ? 1 : rate;
+    }
+
+    /**
+     * 对事件进行采样和限流
+     *
+     * @param eventName 事件名
+     * @param anonymousId 匿名 ID
+     * @return 0 表示丢弃事件，否则为事件的等效采样率：采样率乘以限流的通过比例
+     */
+    double sample(String eventName, String anonymousId) {
+        double rate = getEventSampleRate(eventName);
+        if (rate < 1 && !isSampled(eventName, anonymousId, rate)) {
+            return 0;
+        }
+        TokenBucket bucket = mEventRateLimiters.get(eventName);
+        if (bucket != null) {
+            double passRate = bucket.acquire(now());
+            if (passRate == 0) {
+                return 0;
+            }
+            rate *= passRate;
+        }
+        return rate;
+    }
+
+    /**
+     * 按匿名 ID 和事件名哈希判断是否被采样
+     *
+     * @param eventName 事件名
+     * @param anonymousId 匿名 ID
+     * @param rate 采样率
+     * @return 是否被采样
+     */
+    static boolean isSampled(String eventName, String anonymousId, double rate) {
+        if (rate <= 0) {
+            return false;
+        }
+        int hash = (anonymousId == null ? 0 : anonymousId.hashCode()) * 31 + eventName.hashCode();
+        // murmur3 fmix32，使相近的字符串得到分布均匀的结果
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return (hash >>> 8) < rate * (1 << 24);
+    }
+
+    private static Set<String> compileBlacklist(JSONArray eventBlacklist) {
+        if (eventBlacklist == null || eventBlacklist.length() == 0) {
+            return Collections.emptySet();
+        }
+        Set<String> blacklist = new HashSet<>(eventBlacklist.length() * 2);
+        for (int i = 0; i < eventBlacklist.length(); i++) {
+            Object eventName = eventBlacklist.opt(i);
+            if (eventName instanceof String) {
+                blacklist.add((String) eventName);
+            }
+        }
+        return Collections.unmodifiableSet(blacklist);
+    }
+
+    private static Map<String, Double> compileSampleRates(JSONObject eventSampleRate) {
+        if (eventSampleRate == null || eventSampleRate.length() == 0) {
+            return Collections.emptyMap();
+        }
+        Map<String, Double> sampleRates = new HashMap<>();
+        Iterator<String> iterator = eventSampleRate.keys();
+        while (iterator.hasNext()) {
+            String eventName = iterator.next();
+            double rate = eventSampleRate.optDouble(eventName, 1);
+            if (Double.isNaN(rate)) {
+                ZALog.i("ZA.RemoteConfigRules", "remote config: invalid sample rate of " + eventName);
+                continue;
+            }
+            sampleRates.put(eventName, Math.max(0, Math.min(1, rate)));
+        }
+        return Collections.unmodifiableMap(sampleRates);
+    }
+
+    private static Map<String, TokenBucket> compileRateLimiters(JSONObject eventRateLimit, long now) {
+        if (eventRateLimit == null || eventRateLimit.length() == 0) {
+            return Collections.emptyMap();
+        }
+        Map<String, TokenBucket> rateLimiters = new HashMap<>();
+        Iterator<String> iterator = eventRateLimit.keys();
+        while (iterator.hasNext()) {
+            String eventName = iterator.next();
+            JSONObject limit = eventRateLimit.optJSONObject(eventName);
+            if (limit == null) {
+                continue;
+            }
+            double rate = limit.optDouble("rate", -1);
+            if (Double.isNaN(rate) || rate < 0) {
+                ZALog.i("ZA.RemoteConfigRules", "remote config: invalid rate limit of " + eventName);
+                continue;
+            }
+            double burst = limit.optDouble("burst", Math.max(1, rate));
+            if (Double.isNaN(burst) || burst < 1) {
+                burst = 1;
+            }
+            rateLimiters.put(eventName, new TokenBucket(rate, burst, now));
+        }
+        return Collections.unmodifiableMap(rateLimiters);
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Created by guo on 2021/11/22.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.remote;
+
+/**
+ * 单个事件的令牌桶限流：每秒补充 rate 个令牌，最多累积 burst 个，每个事件消耗一个令牌。
+ * 同时按窗口统计通过比例，上一个完整窗口的通过比例作为通过事件的等效采样率，用于分析时还原事件量；
+ * 当前窗口之后的丢弃在事件通过时还未发生，不能使用当前窗口的比例
+ */
+final class TokenBucket {
+    /* 统计通过比例的窗口长度，单位毫秒 */
+    private static final long WINDOW_MILLIS = 1000;
+    private final double mTokensPerMillis;
+    private final double mBurst;
+    private double mTokens;
+    private long mLastRefillTime;
+    private long mWindowStart;
+    private int mWindowAttempts;
+    private int mWindowAcquired;
+    /* 上一个完整窗口的事件数和通过数 */
+    private int mLastWindowAttempts;
+    private int mLastWindowAcquired;
+
+    /**
+     * @param rate 每秒允许的事件数
+     * @param burst 允许的突发事件数，即桶的容量
+     * @param now 当前时间，单位毫秒
+     */
+    TokenBucket(double rate, double burst, long now) {
+        mTokensPerMillis = rate / 1000;
+        mBurst = burst;
+        mTokens = burst;
+        mLastRefillTime = now;
+        mWindowStart = now;
+    }
+
+    /**
+     * 尝试消耗一个令牌
+     *
+     * @param now 当前时间，单位毫秒，需要单调递增
+     * @return 0 表示不允许采集，否则为上一个完整窗口的通过比例，范围 (0, 1]，没有上一个窗口时为 1
+     */
+    synchronized double acquire(long now) {
+        if (now > mLastRefillTime) {
+            mTokens = Math.min(mBurst, mTokens + (now - mLastRefillTime) * mTokensPerMillis);
+            mLastRefillTime = now;
+        }
+        if (now - mWindowStart >= WINDOW_MILLIS) {
+            // 超过两个窗口没有事件时，上一个窗口为空
+            boolean adjacent = now - mWindowStart < 2 * WINDOW_MILLIS;
+            mLastWindowAttempts = adjacent ? mWindowAttempts : 0;
+            mLastWindowAcquired = adjacent ? mWindowAcquired : 0;
+            mWindowAttempts = 0;
+            mWindowAcquired = 0;
+            mWindowStart = now;
+        }
+        mWindowAttempts++;
+        if (mTokens >= 1) {
+            mTokens -= 1;
+            mWindowAcquired++;
+            if (mLastWindowAttempts == 0) {
+                return 1;
+            }
+            // 上一个窗口全部被丢弃时按 1 个通过计算，返回值大于 0
+            return (double) Math.max(1, mLastWindowAcquired) / mLastWindowAttempts;
+        }
+        return 0;
+    }
+}
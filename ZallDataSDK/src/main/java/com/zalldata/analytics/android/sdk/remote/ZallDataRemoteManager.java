@@ -271,7 +271,7 @@ public class ZallDataRemoteManager extends BaseZallDataSDKRemoteManager {
                     }
                 }
             }
-            mSDKRemoteConfig = sdkRemoteConfig;
+            applyRemoteConfig(sdkRemoteConfig);
         } catch (Exception e) {
             ZALog.printStackTrace(e);
         }
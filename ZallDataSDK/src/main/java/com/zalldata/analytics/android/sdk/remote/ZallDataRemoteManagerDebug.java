@@ -75,7 +75,7 @@ public class ZallDataRemoteManagerDebug extends BaseZallDataSDKRemoteManager {
             eventProperties.put("$app_remote_config", remoteConfigString);
             ZallDataAPI.sharedInstance().trackInternal("$AppRemoteConfigChanged", eventProperties);
             ZallDataAPI.sharedInstance().flush();
-            mSDKRemoteConfig = sdkRemoteConfig;
+            applyRemoteConfig(sdkRemoteConfig);
             ZALog.i(TAG, "remote config: The remote configuration takes effect immediately");
         } catch (Exception e) {
             ZALog.printStackTrace(e);
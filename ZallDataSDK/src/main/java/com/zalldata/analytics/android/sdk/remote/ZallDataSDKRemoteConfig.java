@@ -52,6 +52,16 @@ public class ZallDataSDKRemoteConfig {
      */
     private JSONArray eventBlacklist;
 
+    /**
+     * 事件采样率，key 为事件名，value 为 [0, 1] 之间的采样率
+     */
+    private JSONObject eventSampleRate;
+
+    /**
+     * 事件限流，key 为事件名，value 为 {"rate":每秒事件数,"burst":突发上限}
+     */
+    private JSONObject eventRateLimit;
+
     /**
      * 在线控制版本
      */
@@ -156,6 +166,8 @@ public class ZallDataSDKRemoteConfig {
             configObject.put("autoTrackMode", autoTrackMode);
             configObject.put("disableSDK", disableSDK);
             configObject.put("event_blacklist", eventBlacklist);
+            configObject.put("event_sample_rate", eventSampleRate);
+            configObject.put("event_rate_limit", eventRateLimit);
             configObject.put("nv", newVersion);
             configObject.put("effect_mode", effectMode);
             jsonObject.put("configs", configObject);
@@ -168,7 +180,7 @@ public class ZallDataSDKRemoteConfig {
     @Override
     public String toString() {
         return "{ v=" + oldVersion + ", disableDebugMode=" + disableDebugMode + ", disableSDK=" + disableSDK + ", autoTrackMode=" + autoTrackMode +
-                ", event_blacklist=" + eventBlacklist + ", nv=" + newVersion + ", effect_mode=" + effectMode + "}";
+                ", event_blacklist=" + eventBlacklist + ", event_sample_rate=" + eventSampleRate + ", event_rate_limit=" + eventRateLimit + ", nv=" + newVersion + ", effect_mode=" + effectMode + "}";
     }
 
     public JSONArray getEventBlacklist() {
@@ -179,6 +191,22 @@ public class ZallDataSDKRemoteConfig {
         this.eventBlacklist = eventArray;
     }
 
+    public JSONObject getEventSampleRate() {
+        return eventSampleRate;
+    }
+
+    public void setEventSampleRate(JSONObject eventSampleRate) {
+        this.eventSampleRate = eventSampleRate;
+    }
+
+    public JSONObject getEventRateLimit() {
+        return eventRateLimit;
+    }
+
+    public void setEventRateLimit(JSONObject eventRateLimit) {
+        this.eventRateLimit = eventRateLimit;
+    }
+
     public String getNewVersion() {
         return newVersion;
     }
@@ -30,13 +30,7 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
 import android.view.Window;
-import android.widget.Button;
-import android.widget.CheckBox;
-import android.widget.CheckedTextView;
 import android.widget.CompoundButton;
-import android.widget.EditText;
-import android.widget.ImageView;
-import android.widget.RadioButton;
 import android.widget.TextView;
 import android.widget.ToggleButton;
 
@@ -120,66 +114,29 @@ public class AopUtil {
     }
 
     public static String getViewText(View child) {
-        if (child instanceof EditText) {
+        if (child == null) {
             return "";
         }
         try {
-            Class<?> switchCompatClass = null;
-            try {
-                switchCompatClass = Class.forName("android.support.v7.widget.SwitchCompat");
-            } catch (Exception e) {
-                //ignored
-            }
-
-            if (switchCompatClass == null) {
-                try {
-                    switchCompatClass = Class.forName("androidx.appcompat.widget.SwitchCompat");
-                } catch (Exception e) {
-                    //ignored
-                }
-            }
-
+            ViewClassifier.Classification classification = ViewClassifier.classify(child.getClass());
             CharSequence viewText = null;
-
-            if (child instanceof CheckBox) {
-                CheckBox checkBox = (CheckBox) child;
-                viewText = checkBox.getText();
-            } else if (switchCompatClass != null && switchCompatClass.isInstance(child)) {
-                CompoundButton switchCompat = (CompoundButton) child;
-                Method method;
-                if (switchCompat.isChecked()) {
-                    method = child.getClass().getMethod("getTextOn");
-                } else {
-                    method = child.getClass().getMethod("getTextOff");
-                }
-                viewText = (String) method.invoke(child);
-            } else if (child instanceof RadioButton) {
-                RadioButton radioButton = (RadioButton) child;
-                viewText = radioButton.getText();
-            } else if (child instanceof ToggleButton) {
-                ToggleButton toggleButton = (ToggleButton) child;
-                boolean isChecked = toggleButton.isChecked();
-                if (isChecked) {
-                    viewText = toggleButton.getTextOn();
-                } else {
-                    viewText = toggleButton.getTextOff();
-                }
-            } else if (child instanceof Button) {
-                Button button = (Button) child;
-                viewText = button.getText();
-            } else if (child instanceof CheckedTextView) {
-                CheckedTextView textView = (CheckedTextView) child;
-                viewText = textView.getText();
-            } else if (child instanceof TextView) {
-                TextView textView = (TextView) child;
-                viewText = textView.getText();
-            } else if (child instanceof ImageView) {
-                ImageView imageView = (ImageView) child;
-                if (!TextUtils.isEmpty(imageView.getContentDescription())) {
-                    viewText = imageView.getContentDescription().toString();
-                }
-            } else {
-                viewText = child.getContentDescription();
+            switch (classification.mTextStrategy) {
+                case ViewClassifier.TEXT_EMPTY:
+                    return "";
+                case ViewClassifier.TEXT_GET_TEXT:
+                    viewText = ((TextView) child).getText();
+                    break;
+                case ViewClassifier.TEXT_ON_OFF:
+                    Method method = ((CompoundButton) child).isChecked() ? classification.mTextOnMethod : classification.mTextOffMethod;
+                    viewText = (String) method.invoke(child);
+                    break;
+                case ViewClassifier.TEXT_TOGGLE:
+                    ToggleButton toggleButton = (ToggleButton) child;
+                    viewText = toggleButton.isChecked() ? toggleButton.getTextOn() : toggleButton.getTextOff();
+                    break;
+                default:
+                    viewText = child.getContentDescription();
+                    break;
             }
             if (TextUtils.isEmpty(viewText) && child instanceof TextView) {
                 viewText = ((TextView) child).getHint();
@@ -379,12 +336,8 @@ public class AopUtil {
     public static String getCompoundButtonText(View view) {
         try {
             CompoundButton switchButton = (CompoundButton) view;
-            Method method;
-            if (switchButton.isChecked()) {
-                method = view.getClass().getMethod("getTextOn");
-            } else {
-                method = view.getClass().getMethod("getTextOff");
-            }
+            ViewClassifier.Classification classification = ViewClassifier.classify(view.getClass());
+            Method method = switchButton.isChecked() ? classification.mTextOnMethod : classification.mTextOffMethod;
             return (String) method.invoke(view);
         } catch (Exception ex) {
             return "UNKNOWN";
@@ -435,22 +388,11 @@ public class AopUtil {
      * @return viewType
      */
     public static String getViewGroupTypeByReflect(View view) {
-        Class<?> compatClass;
         String viewType = view.getClass().getCanonicalName();
-        compatClass = getClassByName("android.support.v7.widget.CardView");
-        if (compatClass != null && compatClass.isInstance(view)) {
+        if (ViewClassifier.is(view, ViewClassifier.KIND_CARD_VIEW)) {
             return getViewType(viewType, "CardView");
         }
-        compatClass = getClassByName("androidx.cardview.widget.CardView");
-        if (compatClass != null && compatClass.isInstance(view)) {
-            return getViewType(viewType, "CardView");
-        }
-        compatClass = getClassByName("android.support.design.widget.NavigationView");
-        if (compatClass != null && compatClass.isInstance(view)) {
-            return getViewType(viewType, "NavigationView");
-        }
-        compatClass = getClassByName("com.google.android.material.navigation.NavigationView");
-        if (compatClass != null && compatClass.isInstance(view)) {
+        if (ViewClassifier.is(view, ViewClassifier.KIND_NAVIGATION_VIEW)) {
             return getViewType(viewType, "NavigationView");
         }
         return viewType;
@@ -463,33 +405,16 @@ public class AopUtil {
      * @return viewType
      */
     public static String getViewTypeByReflect(View view) {
-        Class<?> compatClass;
         String viewType = view.getClass().getCanonicalName();
-        compatClass = getClassByName("android.widget.Switch");
-        if (compatClass != null && compatClass.isInstance(view)) {
+        if (ViewClassifier.is(view, ViewClassifier.KIND_SWITCH)) {
             return getViewType(viewType, "Switch");
         }
-        compatClass = getClassByName("android.support.v7.widget.SwitchCompat");
-        if (compatClass != null && compatClass.isInstance(view)) {
-            return getViewType(viewType, "SwitchCompat");
-        }
-        compatClass = getClassByName("androidx.appcompat.widget.SwitchCompat");
-        if (compatClass != null && compatClass.isInstance(view)) {
+        if (ViewClassifier.is(view, ViewClassifier.KIND_SWITCH_COMPAT)) {
             return getViewType(viewType, "SwitchCompat");
         }
         return viewType;
     }
 
-    private static Class<?> getClassByName(String name) {
-        Class<?> compatClass;
-        try {
-            compatClass = Class.forName(name);
-        } catch (ClassNotFoundException e) {
-            return null;
-        }
-        return compatClass;
-    }
-
     /**
      * ViewType 被忽略
      *
@@ -36,6 +36,7 @@ import java.lang.reflect.Method;
 
 public class AppInfoUtils {
     private static String mAppVersionName;
+    private static int mAppVersionCode;
     private static Bundle mConfigBundle;
     /**
      * 获取应用名称
@@ -87,12 +88,50 @@ public class AppInfoUtils {
             PackageManager packageManager = context.getPackageManager();
             PackageInfo packageInfo = packageManager.getPackageInfo(context.getPackageName(), 0);
             mAppVersionName = packageInfo.versionName;
+            mAppVersionCode = getVersionCode(packageInfo);
         } catch (Exception e) {
             ZALog.printStackTrace(e);
         }
         return mAppVersionName;
     }
 
+    /**
+     * 获取 App 的 versionCode
+     *
+     * @param context Context
+     * @return App 的 versionCode，获取失败时返回 0
+     */
+    public static int getAppVersionCode(Context context) {
+        if (context == null) return 0;
+        if (mAppVersionCode != 0) {
+            return mAppVersionCode;
+        }
+        try {
+            PackageManager packageManager = context.getPackageManager();
+            PackageInfo packageInfo = packageManager.getPackageInfo(context.getPackageName(), 0);
+            mAppVersionCode = getVersionCode(packageInfo);
+        } catch (Exception e) {
+            ZALog.printStackTrace(e);
+        }
+        return mAppVersionCode;
+    }
+
+    /**
+     * 读取 PackageInfo 中的 versionCode，API 28 及以上使用 getLongVersionCode
+     *
+     * @param packageInfo PackageInfo
+     * @return versionCode，不包含 versionCodeMajor
+     */
+    @SuppressWarnings("deprecation")
+    private static int getVersionCode(PackageInfo packageInfo) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            // 低 32 位即 versionCode
+            return (int) packageInfo.getLongVersionCode();
+        }
+        // API 28 以下只有已废弃的 versionCode 字段
+        return packageInfo.versionCode;
+    }
+
     /**
      * 获取主进程的名称
      *
@@ -0,0 +1,103 @@
+/*
+ * Created by guo on 2021/11/26.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.util;
+
+import android.text.TextUtils;
+
+import com.zalldata.analytics.android.sdk.ZALog;
+
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * za_mcc_mnc_mini.json 的索引：MCC + MNC 按字典序排列，与运营商名称组成两个数组，查找时二分查找。
+ * asset 只在第一次查找时读取、解析一次，之后不再持有 JSONObject；相同的运营商名称只保留一份。
+ */
+final class CarrierIndex {
+    static final CarrierIndex EMPTY = new CarrierIndex(new String[0], new String[0]);
+    private final String[] mOperators;
+    private final String[] mCarriers;
+
+    private CarrierIndex(String[] operators, String[] carriers) {
+        mOperators = operators;
+        mCarriers = carriers;
+    }
+
+    /**
+     * 由 {"MCC+MNC":"运营商名称"} 格式的 json 生成索引
+     *
+     * @param carrierJson json 字符串
+     * @return 索引，json 为空或者解析失败时返回 {@link #EMPTY}
+     */
+    static CarrierIndex parse(String carrierJson) {
+        if (TextUtils.isEmpty(carrierJson)) {
+            return EMPTY;
+        }
+        try {
+            JSONObject jsonObject = new JSONObject(carrierJson);
+            String[] operators = new String[jsonObject.length()];
+            int count = 0;
+            Iterator<String> iterator = jsonObject.keys();
+            while (iterator.hasNext()) {
+                String operator = iterator.next();
+                if (!TextUtils.isEmpty(jsonObject.optString(operator))) {
+                    operators[count++] = operator;
+                }
+            }
+            operators = Arrays.copyOf(operators, count);
+            Arrays.sort(operators);
+            String[] carriers = new String[count];
+            Map<String, String> names = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String carrier = jsonObject.optString(operators[i]);
+                String name = names.get(carrier);
+                if (name == null) {
+                    names.put(carrier, carrier);
+                    name = carrier;
+                }
+                carriers[i] = name;
+            }
+            return new CarrierIndex(operators, carriers);
+        } catch (Exception e) {
+            ZALog.printStackTrace(e);
+        }
+        return EMPTY;
+    }
+
+    /**
+     * 查找运营商名称
+     *
+     * @param operator MCC + MNC
+     * @return 运营商名称，没有时返回 null
+     */
+    String find(String operator) {
+        if (operator == null) {
+            return null;
+        }
+        int index = Arrays.binarySearch(mOperators, operator);
+        return index >= 0 ? mCarriers[index] : null;
+    }
+
+    int size() {
+        return mOperators.length;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Created by guo on 2021/11/26.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.util;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.text.TextUtils;
+
+import com.zalldata.analytics.android.sdk.ZALog;
+
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 设备信息中很少变化、但获取较慢的部分（鸿蒙系统检测、应用名称）的本地缓存。
+ * 缓存以 App versionCode、系统 Build.FINGERPRINT 和语言作为 key，保存为一个字符串，启动时读取一次；
+ * key 变化（升级 App、升级系统、切换语言）后重新获取。
+ */
+final class DeviceProfileCache {
+    private static final String SHARED_PREF_DEVICE_PROFILE = "zalldata.device.profile";
+    /* 缓存格式版本，缓存的字段变化时递增 */
+    static final int VERSION = 1;
+    private static final String KEY_VERSION = "version";
+    private static final String KEY_KEY = "key";
+    private static final String KEY_PROPERTIES = "properties";
+
+    private DeviceProfileCache() {
+    }
+
+    /**
+     * 生成缓存的 key
+     *
+     * @param context Context
+     * @return key
+     */
+    static String buildKey(Context context) {
+        return buildKey(AppInfoUtils.getAppVersionCode(context), Build.FINGERPRINT, Locale.getDefault().toString());
+    }
+
+    static String buildKey(int appVersionCode, String fingerprint, String locale) {
+        return appVersionCode + "|" + fingerprint + "|" + locale;
+    }
+
+    /**
+     * 读取缓存
+     *
+     * @param context Context
+     * @param key 当前的 key
+     * @return 缓存的属性，没有缓存、key 或者格式版本不一致时返回 null
+     */
+    static Map<String, Object> load(Context context, String key) {
+        try {
+            String profile = ZallDataUtils.getSharedPreferences(context).getString(SHARED_PREF_DEVICE_PROFILE, null);
+            return parse(profile, key);
+        } catch (Exception e) {
+            ZALog.printStackTrace(e);
+        }
+        return null;
+    }
+
+    /**
+     * 保存缓存，异步写入
+     *
+     * @param context Context
+     * @param key 当前的 key
+     * @param properties 属性，值为字符串或数字
+     */
+    static void save(Context context, String key, Map<String, Object> properties) {
+        try {
+            String profile = toString(key, properties);
+            if (profile != null) {
+                SharedPreferences.Editor editor = ZallDataUtils.getSharedPreferences(context).edit();
+                editor.putString(SHARED_PREF_DEVICE_PROFILE, profile);
+                editor.apply();
+            }
+        } catch (Exception e) {
+            ZALog.printStackTrace(e);
+        }
+    }
+
+    static Map<String, Object> parse(String profile, String key) {
+        if (TextUtils.isEmpty(profile) || key == null) {
+            return null;
+        }
+        try {
+            JSONObject jsonObject = new JSONObject(profile);
+            if (jsonObject.optInt(KEY_VERSION) != VERSION || !key.equals(jsonObject.optString(KEY_KEY))) {
+                return null;
+            }
+            JSONObject properties = jsonObject.optJSONObject(KEY_PROPERTIES);
+            if (properties == null) {
+                return null;
+            }
+            Map<String, Object> result = new HashMap<>();
+            Iterator<String> iterator = properties.keys();
+            while (iterator.hasNext()) {
+                String name = iterator.next();
+                result.put(name, properties.get(name));
+            }
+            return result;
+        } catch (Exception e) {
+            ZALog.printStackTrace(e);
+        }
+        return null;
+    }
+
+    static String toString(String key, Map<String, Object> properties) {
+        try {
+            JSONObject jsonObject = new JSONObject();
+            jsonObject.put(KEY_VERSION, VERSION);
+            jsonObject.put(KEY_KEY, key);
+            jsonObject.put(KEY_PROPERTIES, new JSONObject(properties));
+            return jsonObject.toString();
+        } catch (Exception e) {
+            ZALog.printStackTrace(e);
+        }
+        return null;
+    }
+}
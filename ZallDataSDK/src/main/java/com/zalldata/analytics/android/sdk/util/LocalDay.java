@@ -0,0 +1,143 @@
+/*
+ * Created by guo on 2021/11/24.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.util;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * 某个时区下一天的起止时间和 yyyy-MM-dd 字符，创建后不可修改。
+ * 同一天内的时间只需要做减法就能得到时分秒，不需要 Calendar 和 SimpleDateFormat。
+ */
+final class LocalDay {
+    static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+    private final TimeZone mTimeZone;
+    private final int mTimeZoneVersion;
+    /* 当天 0 点，包含 */
+    private final long mStart;
+    /* 下一天 0 点，不包含 */
+    private final long mEnd;
+    /* 当天没有夏令时切换时为 true，时分秒直接由 mStart 计算 */
+    private final boolean mFixedOffset;
+    /* yyyy-MM-dd，年份不是 4 位时为 null */
+    private final char[] mDate;
+
+    private LocalDay(TimeZone timeZone, int timeZoneVersion, long start, long end, char[] date) {
+        mTimeZone = timeZone;
+        mTimeZoneVersion = timeZoneVersion;
+        mStart = start;
+        mEnd = end;
+        int offset = timeZone.getOffset(start);
+        // 0 点不存在（夏令时在 0 点切换）或者当天有切换时，按时区偏移逐个计算
+        mFixedOffset = offset == timeZone.getOffset(end - 1) && (start + offset) % DAY_MILLIS == 0;
+        mDate = date;
+    }
+
+    /**
+     * 计算时间所在的一天
+     *
+     * @param timeMillis 时间戳
+     * @param timeZone 时区
+     * @param timeZoneVersion 时区版本，时区变化后递增
+     * @return LocalDay
+     */
+    static LocalDay of(long timeMillis, TimeZone timeZone, int timeZoneVersion) {
+        // 与 SimpleDateFormat 一致使用公历，不受默认 Locale 的历法影响
+        Calendar calendar = new GregorianCalendar(timeZone);
+        calendar.setTimeInMillis(timeMillis);
+        int year = calendar.get(Calendar.YEAR);
+        int month = calendar.get(Calendar.MONTH) + 1;
+        int day = calendar.get(Calendar.DAY_OF_MONTH);
+        char[] date = null;
+        if (year >= 1000 && year <= 9999 && calendar.get(Calendar.ERA) == GregorianCalendar.AD) {
+            date = new char[10];
+            writeDigits(date, 0, year, 4);
+            date[4] = '-';
+            writeDigits(date, 5, month, 2);
+            date[7] = '-';
+            writeDigits(date, 8, day, 2);
+        }
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long start = calendar.getTimeInMillis();
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        long end = calendar.getTimeInMillis();
+        return new LocalDay(timeZone, timeZoneVersion, start, end, date);
+    }
+
+    boolean contains(long timeMillis, int timeZoneVersion) {
+        return timeMillis >= mStart && timeMillis < mEnd && mTimeZoneVersion == timeZoneVersion;
+    }
+
+    boolean hasDate() {
+        return mDate != null;
+    }
+
+    /**
+     * 当天内的毫秒数
+     *
+     * @param timeMillis 当天内的时间戳
+     * @return 距当天 0 点的本地时间毫秒数
+     */
+    long millisOfDay(long timeMillis) {
+        if (mFixedOffset) {
+            return timeMillis - mStart;
+        }
+        long local = (timeMillis + mTimeZone.getOffset(timeMillis)) % DAY_MILLIS;
+        return local < 0 ? local + DAY_MILLIS : local;
+    }
+
+    /**
+     * 写入 yyyy-MM-dd
+     *
+     * @param buffer 目标数组，长度至少为 offset + 10
+     * @param offset 起始位置
+     */
+    void writeDate(char[] buffer, int offset) {
+        System.arraycopy(mDate, 0, buffer, offset, mDate.length);
+    }
+
+    /**
+     * 与 yyyy-MM-dd 格式的日期比较
+     *
+     * @param date 日期
+     * @return 是否相同
+     */
+    boolean isDate(String date) {
+        if (date.length() != mDate.length) {
+            return false;
+        }
+        for (int i = 0; i < mDate.length; i++) {
+            if (date.charAt(i) != mDate[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void writeDigits(char[] buffer, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Created by guo on 2021/11/24.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.util;
+
+import com.zalldata.analytics.android.sdk.AopConstants;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 属性名、事件名校验。
+ * 规则：以 ASCII 字母、_ 或 $ 开头，只包含 ASCII 字母、数字、_ 和 $，长度不超过 100，不能是保留字段（忽略大小写）。
+ * 与原正则在桌面 JVM 上的结果一致；Android 的 ICU 正则在 CASE_INSENSITIVE 下按 Unicode 大小写折叠匹配（如 "\u212A" 开尔文符号匹配 k），
+ * \d 也匹配非 ASCII 数字，这些 key 原来在 Android 上可以通过，现在有意收紧为只接受 ASCII。
+ * 逐字符扫描代替正则；SDK 生成的 $ 开头的预置属性直接跳过，其他校验通过的 key 放入有上限的缓存，重复的 key 不再扫描。
+ */
+final class PropertyKeyValidator {
+    private static final int MAX_KEY_LENGTH = 100;
+    /* 缓存上限，超过后清空重新缓存 */
+    private static final int MAX_CACHE_SIZE = 1024;
+    private static final String[] RESERVED_KEYS = {
+            "distinct_id", "original_id", "time", "properties", "id", "first_id", "second_id",
+            "users", "events", "event", "user_id", "date", "datetime"
+    };
+    private static final int MAX_RESERVED_KEY_LENGTH = 11;
+    private static final Set<String> PRESET_KEYS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "$lib", "$lib_version", "$lib_method", "$lib_detail", "$lib_plugin_version",
+            "$app_version", "$app_name", "$app_id", "$os", "$os_version", "$manufacturer", "$model", "$brand",
+            "$screen_width", "$screen_height", "$timezone_offset", "$device_id", "$carrier", "$wifi",
+            "$network_type", "$is_first_day", "$is_first_time", "$first_visit_time", "$resume_from_background",
+            "$screen_orientation", "$sample_rate", "$event_duration", "$longitude", "$latitude",
+            "$geo_coordinate_system", "$url", "$referrer", "$referrer_title", "$title",
+            AopConstants.SCREEN_NAME, AopConstants.ELEMENT_ID, AopConstants.ELEMENT_CONTENT,
+            AopConstants.ELEMENT_TYPE, AopConstants.ELEMENT_POSITION, AopConstants.ELEMENT_PATH,
+            AopConstants.ELEMENT_SELECTOR
+    )));
+    private static final Map<String, Boolean> VALID_KEYS = new ConcurrentHashMap<>();
+
+    private PropertyKeyValidator() {
+    }
+
+    /**
+     * 校验 key
+     *
+     * @param key 属性名或事件名，不能为空
+     * @return 是否合法
+     */
+    static boolean isValid(String key) {
+        if (key.charAt(0) == '$' && PRESET_KEYS.contains(key)) {
+            return true;
+        }
+        if (VALID_KEYS.containsKey(key)) {
+            return true;
+        }
+        if (!scan(key)) {
+            return false;
+        }
+        if (VALID_KEYS.size() >= MAX_CACHE_SIZE) {
+            VALID_KEYS.clear();
+        }
+        VALID_KEYS.put(key, Boolean.TRUE);
+        return true;
+    }
+
+    /**
+     * 逐字符校验，不使用缓存
+     *
+     * @param key 属性名或事件名，不能为空
+     * @return 是否合法
+     */
+    static boolean scan(String key) {
+        int length = key.length();
+        if (length > MAX_KEY_LENGTH) {
+            return false;
+        }
+        char c = key.charAt(0);
+        if (!isLetter(c) && c != '_' && c != '$') {
+            return false;
+        }
+        for (int i = 1; i < length; i++) {
+            c = key.charAt(i);
+            if (!isLetter(c) && !(c >= '0' && c <= '9') && c != '_' && c != '$') {
+                return false;
+            }
+        }
+        if (length <= MAX_RESERVED_KEY_LENGTH) {
+            for (String reservedKey : RESERVED_KEYS) {
+                if (reservedKey.equalsIgnoreCase(key)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
@@ -17,6 +17,10 @@
 
 package com.zalldata.analytics.android.sdk.util;
 
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.text.TextUtils;
 
 import com.zalldata.analytics.android.sdk.ZALog;
@@ -28,22 +32,40 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
  * 线程安全的日期格式化工具类
+ * 事件中最常用的 yyyy-MM-dd HH:mm:ss.SSS 格式和日期比较不经过 SimpleDateFormat：
+ * 缓存当天的起止时间和日期字符，跨天或者时区变化时才重新计算，时分秒按数值写入线程内复用的 char 数组，不加锁。
  * create on 2019/4/3
  *
  * @author : chenru
  */
 public class TimeUtils {
+    private static final String TAG = "ZA.TimeUtils";
     public static final String YYYY_MM_DD = "yyyy-MM-dd";
     private static final String YYYY_MM_DD_HH_MM_SS_SSS = "yyyy-MM-dd HH:mm:ss.SSS";
-    private static Map<String, ThreadLocal<SimpleDateFormat>> formatMaps = new HashMap<>();
+    /* isDateValid 的基准时间 */
+    private static final String BASE_DATE = "2015-05-15 10:24:00.000";
+    private static final Map<String, ThreadLocal<SimpleDateFormat>> formatMaps = new ConcurrentHashMap<>();
+    /* 时区版本，收到时区变化广播时递增 */
+    private static final AtomicInteger sTimeZoneVersion = new AtomicInteger();
+    private static final ThreadLocal<char[]> sTimestampBuffer = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[YYYY_MM_DD_HH_MM_SS_SSS.length()];
+        }
+    };
+    private static volatile LocalDay sToday;
+    private static volatile long[] sBaseTime;
+    private static TimeZoneReceiver sTimeZoneReceiver;
 
     /**
      * format Date 输出文本格式
@@ -122,6 +144,13 @@ public class TimeUtils {
         if (TextUtils.isEmpty(patten)) {
             patten = YYYY_MM_DD_HH_MM_SS_SSS;
         }
+        // Locale.CHINA 使用 ASCII 数字，与 SimpleDateFormat 的结果一致
+        if (date != null && Locale.CHINA.equals(locale) && YYYY_MM_DD_HH_MM_SS_SSS.equals(patten)) {
+            String formatString = formatTimestamp(date.getTime());
+            if (formatString != null) {
+                return formatString;
+            }
+        }
         String formatString = "";
         SimpleDateFormat simpleDateFormat = getDateFormat(patten, locale);
         if (null == simpleDateFormat) {
@@ -142,15 +171,7 @@ public class TimeUtils {
      * @return 是否合法
      */
     public static boolean isDateValid(Date date) {
-        try {
-            SimpleDateFormat simpleDateFormat = getDateFormat(YYYY_MM_DD_HH_MM_SS_SSS, Locale.getDefault());
-            final Date baseDate = simpleDateFormat.parse("2015-05-15 10:24:00.000");
-            return date.after(baseDate);
-        } catch (ParseException e) {
-            ZALog.printStackTrace(e);
-        }
-
-        return false;
+        return date != null && isDateValid(date.getTime());
     }
 
     /**
@@ -160,18 +181,119 @@ public class TimeUtils {
      * @return 是否合法
      */
     public static boolean isDateValid(long time) {
-        try {
-            SimpleDateFormat simpleDateFormat = getDateFormat(YYYY_MM_DD_HH_MM_SS_SSS, Locale.getDefault());
-            final Date baseDate = simpleDateFormat.parse("2015-05-15 10:24:00.000");
-            if (baseDate == null) {
+        int version = sTimeZoneVersion.get();
+        long[] baseTime = sBaseTime;
+        if (baseTime == null || baseTime[0] != version) {
+            try {
+                SimpleDateFormat simpleDateFormat = getDateFormat(YYYY_MM_DD_HH_MM_SS_SSS, Locale.getDefault());
+                final Date baseDate = simpleDateFormat.parse(BASE_DATE);
+                if (baseDate == null) {
+                    return false;
+                }
+                baseTime = new long[]{version, baseDate.getTime()};
+                sBaseTime = baseTime;
+            } catch (ParseException e) {
+                ZALog.printStackTrace(e);
                 return false;
             }
-            return baseDate.getTime() < time;
-        } catch (ParseException e) {
-            ZALog.printStackTrace(e);
         }
+        return baseTime[1] < time;
+    }
+
+    /**
+     * 判断时间戳是否在指定日期内，使用当前时区
+     *
+     * @param timeMillis 时间戳
+     * @param date yyyy-MM-dd 格式的日期
+     * @return 是否在该日期内
+     */
+    public static boolean isSameDay(long timeMillis, String date) {
+        if (date == null) {
+            return false;
+        }
+        LocalDay localDay = getLocalDay(timeMillis);
+        if (localDay.hasDate() && isAsciiDate(date)) {
+            return localDay.isDate(date);
+        }
+        return date.equals(formatTime(timeMillis, YYYY_MM_DD));
+    }
 
-        return false;
+    /**
+     * 按 yyyy-MM-dd HH:mm:ss.SSS 格式化，使用当前时区和 ASCII 数字
+     *
+     * @param timeMillis 时间戳
+     * @return 格式化后的字符串，年份不是 4 位时返回 null
+     */
+    static String formatTimestamp(long timeMillis) {
+        LocalDay localDay = getLocalDay(timeMillis);
+        if (!localDay.hasDate()) {
+            return null;
+        }
+        char[] buffer = sTimestampBuffer.get();
+        localDay.writeDate(buffer, 0);
+        int millisOfDay = (int) localDay.millisOfDay(timeMillis);
+        buffer[10] = ' ';
+        LocalDay.writeDigits(buffer, 11, millisOfDay / 3600000, 2);
+        buffer[13] = ':';
+        LocalDay.writeDigits(buffer, 14, millisOfDay / 60000 % 60, 2);
+        buffer[16] = ':';
+        LocalDay.writeDigits(buffer, 17, millisOfDay / 1000 % 60, 2);
+        buffer[19] = '.';
+        LocalDay.writeDigits(buffer, 20, millisOfDay % 1000, 3);
+        return new String(buffer);
+    }
+
+    /**
+     * 获取时间所在的一天，当天的结果会被缓存
+     */
+    private static LocalDay getLocalDay(long timeMillis) {
+        int version = sTimeZoneVersion.get();
+        LocalDay today = sToday;
+        if (today != null && today.contains(timeMillis, version)) {
+            return today;
+        }
+        LocalDay localDay = LocalDay.of(timeMillis, TimeZone.getDefault(), version);
+        // 缓存中的日期已经不是今天时才替换，格式化历史时间不影响当天的缓存
+        if (today == null || !today.contains(System.currentTimeMillis(), version)) {
+            sToday = localDay;
+        }
+        return localDay;
+    }
+
+    private static boolean isAsciiDate(String date) {
+        for (int i = 0; i < date.length(); i++) {
+            char c = date.charAt(i);
+            if ((c < '0' || c > '9') && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 时区变化后调用，重新计算日期缓存
+     */
+    public static void onTimeZoneChanged() {
+        sTimeZoneVersion.incrementAndGet();
+    }
+
+    /**
+     * 注册时区变化广播
+     *
+     * @param context Context
+     */
+    public static void registerTimeZoneListener(Context context) {
+        try {
+            synchronized (TimeUtils.class) {
+                if (sTimeZoneReceiver != null) {
+                    return;
+                }
+                sTimeZoneReceiver = new TimeZoneReceiver();
+            }
+            context.registerReceiver(sTimeZoneReceiver, new IntentFilter(Intent.ACTION_TIMEZONE_CHANGED));
+        } catch (Exception e) {
+            ZALog.printStackTrace(e);
+        }
     }
 
     /**
@@ -236,7 +358,7 @@ public class TimeUtils {
         }
     }
 
-    private synchronized static SimpleDateFormat getDateFormat(final String patten, final Locale locale) {
+    private static SimpleDateFormat getDateFormat(final String patten, final Locale locale) {
         ThreadLocal<SimpleDateFormat> dateFormatThreadLocal = formatMaps.get(patten);
         if (null == dateFormatThreadLocal) {
             dateFormatThreadLocal = new ThreadLocal<SimpleDateFormat>() {
@@ -261,4 +383,15 @@ public class TimeUtils {
         }
         return dateFormatThreadLocal.get();
     }
+
+    private static class TimeZoneReceiver extends BroadcastReceiver {
+
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction())) {
+                onTimeZoneChanged();
+                ZALog.i(TAG, "TimeZoneReceiver is receiving Intent.ACTION_TIMEZONE_CHANGED broadcast");
+            }
+        }
+    }
 }
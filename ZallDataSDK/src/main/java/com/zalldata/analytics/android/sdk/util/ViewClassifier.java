@@ -0,0 +1,218 @@
+/*
+ * Created by guo on 2021/11/16.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.util;
+
+import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.CheckedTextView;
+import android.widget.CompoundButton;
+import android.widget.EditText;
+import android.widget.RadioButton;
+import android.widget.TextView;
+import android.widget.ToggleButton;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * View 类型分类缓存。
+ * 可选依赖中的控件类（SwitchCompat、TabLayout、RecyclerView、ViewPager、X5/UC WebView 等）只通过 Class.forName 解析一次，
+ * 找不到的类同样会被记住；每个 View 的 Class 首次出现时计算所属类型和文本提取方式，之后直接读取缓存。
+ */
+public final class ViewClassifier {
+    public static final int KIND_SWITCH = 1;
+    public static final int KIND_SWITCH_COMPAT = 1 << 1;
+    public static final int KIND_TAB_VIEW = 1 << 2;
+    public static final int KIND_RECYCLER_VIEW = 1 << 3;
+    public static final int KIND_SUPPORT_VIEW_PAGER = 1 << 4;
+    public static final int KIND_ANDROIDX_VIEW_PAGER = 1 << 5;
+    public static final int KIND_X5_WEBVIEW = 1 << 6;
+    public static final int KIND_UC_WEBVIEW = 1 << 7;
+    public static final int KIND_SWIPE_REFRESH_LAYOUT = 1 << 8;
+    public static final int KIND_SUPPORT_LIST_MENU_ITEM_VIEW = 1 << 9;
+    public static final int KIND_ANDROIDX_LIST_MENU_ITEM_VIEW = 1 << 10;
+    public static final int KIND_BOTTOM_NAVIGATION_ITEM_VIEW = 1 << 11;
+    public static final int KIND_ACTION_MENU_ITEM = 1 << 12;
+    public static final int KIND_TOOLBAR = 1 << 13;
+    public static final int KIND_NAVIGATION_VIEW = 1 << 14;
+    public static final int KIND_CARD_VIEW = 1 << 15;
+
+    /* 文本提取方式，与 AopUtil.getViewText 中的判断顺序一致 */
+    static final int TEXT_EMPTY = 0;
+    static final int TEXT_GET_TEXT = 1;
+    static final int TEXT_ON_OFF = 2;
+    static final int TEXT_TOGGLE = 3;
+    static final int TEXT_CONTENT_DESCRIPTION = 4;
+
+    /* 下标与 KIND_* 的位序号对应，同一类型的多个类名按优先级排列 */
+    private static final String[][] CLASS_NAMES = {
+            {"android.widget.Switch"},
+            {"android.support.v7.widget.SwitchCompat", "androidx.appcompat.widget.SwitchCompat"},
+            {"android.support.design.widget.TabLayout$TabView", "com.google.android.material.tabs.TabLayout$TabView"},
+            {"android.support.v7.widget.RecyclerView", "androidx.recyclerview.widget.RecyclerView"},
+            {"android.support.v4.view.ViewPager"},
+            {"androidx.viewpager.widget.ViewPager"},
+            {"com.tencent.smtt.sdk.WebView"},
+            {"com.alipay.mobile.nebulauc.impl.UCWebView$WebViewEx"},
+            {"android.support.v4.widget.SwipeRefreshLayout", "androidx.swiperefreshlayout.widget.SwipeRefreshLayout"},
+            {"android.support.v7.view.menu.ListMenuItemView"},
+            {"androidx.appcompat.view.menu.ListMenuItemView"},
+            {"com.google.android.material.bottomnavigation.BottomNavigationItemView", "android.support.design.internal.NavigationMenuItemView"},
+            {"androidx.appcompat.view.menu.ActionMenuItem"},
+            {"androidx.appcompat.widget.Toolbar", "android.support.v7.widget.Toolbar", "android.widget.Toolbar"},
+            {"android.support.design.widget.NavigationView", "com.google.android.material.navigation.NavigationView"},
+            {"android.support.v7.widget.CardView", "androidx.cardview.widget.CardView"}
+    };
+
+    private static final Map<Class<?>, Classification> sClassifications = new ConcurrentHashMap<>();
+
+    private ViewClassifier() {
+    }
+
+    /**
+     * 判断对象是否属于指定类型
+     *
+     * @param object 对象，可以为 null
+     * @param kinds KIND_* 组合，满足任意一个即返回 true
+     * @return 是否属于指定类型
+     */
+    public static boolean is(Object object, int kinds) {
+        return object != null && (classify(object.getClass()).mKinds & kinds) != 0;
+    }
+
+    /**
+     * 获取对象匹配到的指定类型的类，例如用于反射读取 TabView 的字段
+     *
+     * @param object 对象，可以为 null
+     * @param kind 单个 KIND_*
+     * @return 匹配的类，不匹配时返回 null
+     */
+    public static Class<?> findClass(Object object, int kind) {
+        if (object == null) {
+            return null;
+        }
+        Class<?>[] classes = OptionalClasses.sClasses[Integer.numberOfTrailingZeros(kind)];
+        for (Class<?> clazz : classes) {
+            if (clazz != null && clazz.isAssignableFrom(object.getClass())) {
+                return clazz;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取 Class 的分类结果
+     *
+     * @param clazz View 的 Class
+     * @return 分类结果
+     */
+    static Classification classify(Class<?> clazz) {
+        Classification classification = sClassifications.get(clazz);
+        if (classification == null) {
+            classification = new Classification(clazz);
+            sClassifications.put(clazz, classification);
+        }
+        return classification;
+    }
+
+    private static int computeKinds(Class<?> clazz) {
+        int kinds = 0;
+        Class<?>[][] optionalClasses = OptionalClasses.sClasses;
+        for (int i = 0; i < optionalClasses.length; i++) {
+            for (Class<?> optionalClass : optionalClasses[i]) {
+                if (optionalClass != null && optionalClass.isAssignableFrom(clazz)) {
+                    kinds |= 1 << i;
+                    break;
+                }
+            }
+        }
+        return kinds;
+    }
+
+    private static int computeTextStrategy(Class<?> clazz, int kinds) {
+        if (EditText.class.isAssignableFrom(clazz)) {
+            return TEXT_EMPTY;
+        } else if (CheckBox.class.isAssignableFrom(clazz)) {
+            return TEXT_GET_TEXT;
+        } else if ((kinds & KIND_SWITCH_COMPAT) != 0) {
+            return TEXT_ON_OFF;
+        } else if (RadioButton.class.isAssignableFrom(clazz)) {
+            return TEXT_GET_TEXT;
+        } else if (ToggleButton.class.isAssignableFrom(clazz)) {
+            return TEXT_TOGGLE;
+        } else if (Button.class.isAssignableFrom(clazz) || CheckedTextView.class.isAssignableFrom(clazz)
+                || TextView.class.isAssignableFrom(clazz)) {
+            return TEXT_GET_TEXT;
+        }
+        return TEXT_CONTENT_DESCRIPTION;
+    }
+
+    private static Method getMethod(Class<?> clazz, String name) {
+        try {
+            return clazz.getMethod(name);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 单个 Class 的分类结果，创建后不再变化
+     */
+    static final class Classification {
+        final int mKinds;
+        final int mTextStrategy;
+        /* CompoundButton 子类的 getTextOn/getTextOff 方法，不存在时为 null */
+        final Method mTextOnMethod;
+        final Method mTextOffMethod;
+
+        Classification(Class<?> clazz) {
+            mKinds = computeKinds(clazz);
+            mTextStrategy = computeTextStrategy(clazz, mKinds);
+            if (CompoundButton.class.isAssignableFrom(clazz)) {
+                mTextOnMethod = getMethod(clazz, "getTextOn");
+                mTextOffMethod = getMethod(clazz, "getTextOff");
+            } else {
+                mTextOnMethod = null;
+                mTextOffMethod = null;
+            }
+        }
+    }
+
+    /**
+     * 首次使用时解析全部可选控件类
+     */
+    private static final class OptionalClasses {
+        static final Class<?>[][] sClasses = resolve();
+
+        private static Class<?>[][] resolve() {
+            Class<?>[][] classes = new Class<?>[CLASS_NAMES.length][];
+            for (int i = 0; i < CLASS_NAMES.length; i++) {
+                classes[i] = new Class<?>[CLASS_NAMES[i].length];
+                for (int j = 0; j < CLASS_NAMES[i].length; j++) {
+                    try {
+                        classes[i][j] = Class.forName(CLASS_NAMES[i][j]);
+                    } catch (Throwable e) {
+                        //ignored
+                    }
+                }
+            }
+            return classes;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Created by guo on 2021/11/17.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.util;
+
+import android.app.Activity;
+import android.text.TextUtils;
+import android.view.View;
+
+import com.zalldata.analytics.android.sdk.AopConstants;
+import com.zalldata.analytics.android.sdk.R;
+import com.zalldata.analytics.android.sdk.ZALog;
+import com.zalldata.analytics.android.sdk.ZallDataAPI;
+import com.zalldata.analytics.android.sdk.visual.model.ViewNode;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * $AppClick 两阶段采集：主线程只保存 View、Activity 和 Fragment 的弱引用，以及 View 的 id 和在列表中的位置；
+ * View 文本、页面标题和页面名、自定义属性、$element_selector、$element_path 的遍历和 JSON 组装都在 track 线程中完成。
+ * 列表中的 View 可能被复用，列表位置需要在点击时读取，其他数据在 track 线程中读取时是 View 的最新状态。
+ */
+public final class ViewClickSnapshot {
+    /* 主线程采集耗时统计 */
+    private static final AtomicLong sClickCount = new AtomicLong();
+    private static final AtomicLong sTotalNanos = new AtomicLong();
+    private static final AtomicLong sMaxNanos = new AtomicLong();
+    private static volatile long sLastNanos;
+
+    private final WeakReference<View> mViewReference;
+    private final WeakReference<Activity> mActivityReference;
+    private final WeakReference<Object> mFragmentReference;
+    private final String mElementId;
+    /* 点击时 View 在列表中的位置，不在列表中或没有 Activity 时为 null */
+    private final String mElementPosition;
+    /* buildProperties 时生成 */
+    private ViewNode mViewNode;
+
+    private ViewClickSnapshot(View view, Activity activity, Object fragment) {
+        mViewReference = new WeakReference<>(view);
+        mActivityReference = activity == null ? null : new WeakReference<>(activity);
+        mFragmentReference = fragment == null ? null : new WeakReference<>(fragment);
+        mElementId = AopUtil.getViewId(view);
+        mElementPosition = activity == null ? null : ViewUtil.getListPosition(view);
+    }
+
+    /**
+     * 在主线程中采集点击 View 的快照
+     *
+     * @param view 点击的 View
+     * @param activity View 所在的 Activity
+     * @param fragment View 所在的 Fragment
+     * @param isFromUser 是否是用户操作
+     * @return 快照，View 不需要采集时返回 null
+     */
+    public static ViewClickSnapshot capture(View view, Activity activity, Object fragment, boolean isFromUser) {
+        if (view == null || !ViewUtil.isTrackEvent(view, isFromUser)) {
+            return null;
+        }
+        return new ViewClickSnapshot(view, activity, fragment);
+    }
+
+    /**
+     * 在 track 线程中生成 $AppClick 的属性，与 AopUtil.injectClickInfo 和 AopUtil.addViewPathProperties 的结果一致。
+     * View 已被回收时只包含点击时采集的 id 和列表位置，以及 Activity、Fragment 仍存在时的页面信息
+     *
+     * @return 事件属性
+     */
+    public JSONObject buildProperties() {
+        JSONObject properties = new JSONObject();
+        View view = mViewReference.get();
+        Activity activity = mActivityReference == null ? null : mActivityReference.get();
+        Object fragment = mFragmentReference == null ? null : mFragmentReference.get();
+        try {
+            JSONObject eventJson = new JSONObject();
+            if (!TextUtils.isEmpty(mElementId)) {
+                eventJson.put(AopConstants.ELEMENT_ID, mElementId);
+            }
+            if (view != null) {
+                ViewNode contentNode = ViewUtil.getViewContentAndType(view);
+                if (!TextUtils.isEmpty(contentNode.getViewContent())) {
+                    eventJson.put(AopConstants.ELEMENT_CONTENT, contentNode.getViewContent());
+                }
+                eventJson.put(AopConstants.ELEMENT_TYPE, contentNode.getViewType());
+            }
+            if (activity != null) {
+                ZallDataUtils.mergeJSONObject(AopUtil.buildTitleAndScreenName(activity), eventJson);
+            }
+            if (fragment != null) {
+                AopUtil.getScreenNameAndTitleFromFragment(eventJson, fragment, activity);
+            }
+            if (view != null) {
+                Object viewProperties = view.getTag(R.id.zall_analytics_tag_view_properties);
+                if (viewProperties instanceof JSONObject) {
+                    AopUtil.mergeJSONObject((JSONObject) viewProperties, eventJson);
+                }
+            }
+            JSONUtils.mergeDistinctProperty(eventJson, properties);
+            if (view != null && activity != null) {
+                if (isHeatMapOrVisualized(activity)) {
+                    String elementSelector = ViewUtil.getElementSelector(view);
+                    if (!TextUtils.isEmpty(elementSelector)) {
+                        properties.put(AopConstants.ELEMENT_SELECTOR, elementSelector);
+                    }
+                }
+                // 不在主线程时不使用路径前缀缓存，直接遍历父 View 链
+                mViewNode = ViewUtil.getViewPathAndPosition(view);
+                if (mViewNode != null && !TextUtils.isEmpty(mViewNode.getViewPath()) && isHeatMapOrVisualizedEnabled(activity)) {
+                    properties.put(AopConstants.ELEMENT_PATH, mViewNode.getViewPath());
+                }
+            }
+            if (!TextUtils.isEmpty(mElementPosition)) {
+                properties.put(AopConstants.ELEMENT_POSITION, mElementPosition);
+            }
+        } catch (Exception e) {
+            ZALog.printStackTrace(e);
+        }
+        return properties;
+    }
+
+    /**
+     * View 在 ViewTree 中的路径信息，用于合并可视化自定义属性，需要在 {@link #buildProperties()} 之后调用
+     *
+     * @return ViewNode，可能为 null
+     */
+    public ViewNode getViewNode() {
+        return mViewNode;
+    }
+
+    /**
+     * 记录一次点击在主线程中的耗时
+     *
+     * @param nanos 耗时，单位纳秒
+     */
+    public static void recordMainThreadTime(long nanos) {
+        sLastNanos = nanos;
+        sClickCount.incrementAndGet();
+        sTotalNanos.addAndGet(nanos);
+        long max;
+        do {
+            max = sMaxNanos.get();
+        } while (nanos > max && !sMaxNanos.compareAndSet(max, nanos));
+    }
+
+    /**
+     * 获取点击事件在主线程中的耗时统计，单位微秒
+     *
+     * @return {"count":点击次数,"avg_us":平均耗时,"max_us":最大耗时,"last_us":最近一次耗时}
+     */
+    public static JSONObject getMainThreadStatistics() {
+        JSONObject statistics = new JSONObject();
+        try {
+            long count = sClickCount.get();
+            statistics.put("count", count);
+            statistics.put("avg_us", count == 0 ? 0 : sTotalNanos.get() / count / 1000);
+            statistics.put("max_us", sMaxNanos.get() / 1000);
+            statistics.put("last_us", sLastNanos / 1000);
+        } catch (JSONException e) {
+            ZALog.printStackTrace(e);
+        }
+        return statistics;
+    }
+
+    private static boolean isHeatMapOrVisualized(Activity activity) {
+        ZallDataAPI zallDataAPI = ZallDataAPI.sharedInstance();
+        return (zallDataAPI.isHeatMapEnabled() || zallDataAPI.isVisualizedAutoTrackEnabled())
+                && (zallDataAPI.isHeatMapActivity(activity.getClass()) || zallDataAPI.isVisualizedAutoTrackActivity(activity.getClass()));
+    }
+
+    private static boolean isHeatMapOrVisualizedEnabled(Activity activity) {
+        ZallDataAPI zallDataAPI = ZallDataAPI.sharedInstance();
+        return (zallDataAPI.isVisualizedAutoTrackEnabled() && zallDataAPI.isVisualizedAutoTrackActivity(activity.getClass()))
+                || (zallDataAPI.isHeatMapEnabled() && zallDataAPI.isHeatMapActivity(activity.getClass()));
+    }
+}
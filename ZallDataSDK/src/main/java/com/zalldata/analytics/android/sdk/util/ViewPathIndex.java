@@ -0,0 +1,122 @@
+/*
+ * Created by guo on 2021/11/18.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.util;
+
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import com.zalldata.analytics.android.sdk.ZALog;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * $element_path 前缀索引。
+ * 以 ViewGroup 实例为弱引用 key，缓存从根节点到该 ViewGroup 的 $element_path 前缀；
+ * 每个根 View 维护一个布局版本号，发生布局（Adapter 数据变化同样会触发布局）时递增，旧版本的前缀不再使用。
+ * 列表滚动时 item 会被复用而不一定触发布局，所以列表 item 及其内部的 ViewGroup 不缓存。
+ * 点击时只需从最近的有效祖先开始计算剩余部分。只在主线程中使用，其他线程直接完整计算。
+ */
+final class ViewPathIndex {
+    private static final Map<View, Generation> sGenerations = new WeakHashMap<>();
+    private static final Map<View, Prefix> sPrefixes = new WeakHashMap<>();
+
+    private ViewPathIndex() {
+    }
+
+    /**
+     * 获取根 View 当前的布局版本，首次调用时在根 View 上注册布局监听
+     *
+     * @param rootView 根 View
+     * @return 布局版本，不在主线程时返回 null，不使用缓存
+     */
+    static synchronized Generation getGeneration(View rootView) {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            return null;
+        }
+        Generation generation = sGenerations.get(rootView);
+        if (generation == null) {
+            generation = new Generation();
+            try {
+                rootView.getViewTreeObserver().addOnGlobalLayoutListener(generation);
+            } catch (Exception e) {
+                ZALog.printStackTrace(e);
+            }
+            sGenerations.put(rootView, generation);
+        }
+        return generation;
+    }
+
+    /**
+     * 获取 ViewGroup 的前缀，版本不一致时返回 null
+     *
+     * @param view ViewGroup
+     * @param generation 根 View 的布局版本
+     * @param version 读取到的版本号
+     * @return 前缀
+     */
+    static synchronized Prefix get(View view, Generation generation, int version) {
+        Prefix prefix = sPrefixes.get(view);
+        if (prefix != null && prefix.mGeneration == generation && prefix.mVersion == version) {
+            return prefix;
+        }
+        return null;
+    }
+
+    static synchronized void put(View view, Prefix prefix) {
+        sPrefixes.put(view, prefix);
+    }
+
+    static synchronized void clear() {
+        sPrefixes.clear();
+    }
+
+    /**
+     * 根 View 的布局版本
+     */
+    static final class Generation implements ViewTreeObserver.OnGlobalLayoutListener {
+        private volatile int mVersion;
+
+        int getVersion() {
+            return mVersion;
+        }
+
+        @Override
+        public void onGlobalLayout() {
+            mVersion++;
+        }
+    }
+
+    /**
+     * 从根节点到某个 ViewGroup（包含自身）的路径信息
+     */
+    static final class Prefix {
+        final Generation mGeneration;
+        final int mVersion;
+        final String mOriginalPath;
+        final String mPath;
+
+        Prefix(Generation generation, int version, String originalPath, String path) {
+            mGeneration = generation;
+            mVersion = version;
+            mOriginalPath = originalPath;
+            mPath = path;
+        }
+    }
+}
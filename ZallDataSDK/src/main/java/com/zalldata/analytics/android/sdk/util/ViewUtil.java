@@ -21,7 +21,6 @@ import android.graphics.Rect;
 import android.os.Build;
 import android.text.TextUtils;
 import android.util.LruCache;
-import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
@@ -51,7 +50,8 @@ import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 
 public class ViewUtil {
@@ -61,42 +61,43 @@ public class ViewUtil {
     private static Method sRecyclerViewGetChildAdapterPositionMethod;
     private static Class sRecyclerViewClass;
     private static LruCache<Class, String> sClassNameCache;
-    private static SparseArray sViewCache;
+    /* 父 View 的列表位置，key 为父 View 的父 View */
+    private static Map<View, String> sListPositionCache;
 
     private static boolean instanceOfSupportSwipeRefreshLayout(Object view) {
-        return ReflectUtil.isInstance(view, "android.support.v4.widget.SwipeRefreshLayout", "androidx.swiperefreshlayout.widget.SwipeRefreshLayout");
+        return ViewClassifier.is(view, ViewClassifier.KIND_SWIPE_REFRESH_LAYOUT);
     }
 
     static boolean instanceOfSupportListMenuItemView(Object view) {
-        return ReflectUtil.isInstance(view, "android.support.v7.view.menu.ListMenuItemView");
+        return ViewClassifier.is(view, ViewClassifier.KIND_SUPPORT_LIST_MENU_ITEM_VIEW);
     }
 
     static boolean instanceOfAndroidXListMenuItemView(Object view) {
-        return ReflectUtil.isInstance(view, "androidx.appcompat.view.menu.ListMenuItemView");
+        return ViewClassifier.is(view, ViewClassifier.KIND_ANDROIDX_LIST_MENU_ITEM_VIEW);
     }
 
     static boolean instanceOfBottomNavigationItemView(Object view) {
-        return ReflectUtil.isInstance(view, "com.google.android.material.bottomnavigation.BottomNavigationItemView", "android.support.design.internal.NavigationMenuItemView");
+        return ViewClassifier.is(view, ViewClassifier.KIND_BOTTOM_NAVIGATION_ITEM_VIEW);
     }
 
     static boolean instanceOfActionMenuItem(Object view) {
-        return ReflectUtil.isInstance(view, "androidx.appcompat.view.menu.ActionMenuItem");
+        return ViewClassifier.is(view, ViewClassifier.KIND_ACTION_MENU_ITEM);
     }
 
     static boolean instanceOfToolbar(Object view) {
-        return ReflectUtil.isInstance(view, "androidx.appcompat.widget.Toolbar", "android.support.v7.widget.Toolbar", "android.widget.Toolbar");
+        return ViewClassifier.is(view, ViewClassifier.KIND_TOOLBAR);
     }
 
     private static boolean instanceOfNavigationView(Object view) {
-        return ReflectUtil.isInstance(view, "android.support.design.widget.NavigationView", "com.google.android.material.navigation.NavigationView");
+        return ViewClassifier.is(view, ViewClassifier.KIND_NAVIGATION_VIEW);
     }
 
     private static boolean instanceOfSupportViewPager(Object view) {
-        return ReflectUtil.isInstance(view, "android.support.v4.view.ViewPager");
+        return ViewClassifier.is(view, ViewClassifier.KIND_SUPPORT_VIEW_PAGER);
     }
 
     private static boolean instanceOfAndroidXViewPager(Object view) {
-        return ReflectUtil.isInstance(view, "androidx.viewpager.widget.ViewPager");
+        return ViewClassifier.is(view, ViewClassifier.KIND_ANDROIDX_VIEW_PAGER);
     }
 
     public static boolean instanceOfWebView(Object view) {
@@ -104,15 +105,15 @@ public class ViewUtil {
     }
 
     public static boolean instanceOfX5WebView(Object view) {
-        return ReflectUtil.isInstance(view, "com.tencent.smtt.sdk.WebView");
+        return ViewClassifier.is(view, ViewClassifier.KIND_X5_WEBVIEW);
     }
 
     private static boolean instanceOfUCWebView(Object view) {
-        return ReflectUtil.isInstance(view, "com.alipay.mobile.nebulauc.impl.UCWebView$WebViewEx");
+        return ViewClassifier.is(view, ViewClassifier.KIND_UC_WEBVIEW);
     }
 
     public static boolean instanceOfRecyclerView(Object view) {
-        boolean result = ReflectUtil.isInstance(view, "android.support.v7.widget.RecyclerView", "androidx.recyclerview.widget.RecyclerView");
+        boolean result = ViewClassifier.is(view, ViewClassifier.KIND_RECYCLER_VIEW);
         if (!result) {
             result = sHaveCustomRecyclerView && view != null && sRecyclerViewClass != null && sRecyclerViewClass.isAssignableFrom(view.getClass());
         }
@@ -121,8 +122,8 @@ public class ViewUtil {
 
     private static Object instanceOfTabView(View tabView) {
         try {
-            Class<?> currentTabViewClass = ReflectUtil.getCurrentClass(new String[]{"android.support.design.widget.TabLayout$TabView", "com.google.android.material.tabs.TabLayout$TabView"});
-            if (currentTabViewClass != null && currentTabViewClass.isAssignableFrom(tabView.getClass())) {
+            Class<?> currentTabViewClass = ViewClassifier.findClass(tabView, ViewClassifier.KIND_TAB_VIEW);
+            if (currentTabViewClass != null) {
                 return ReflectUtil.findField(currentTabViewClass, tabView, "mTab", "tab");
             }
         } catch (Exception e) {
@@ -409,34 +410,82 @@ public class ViewUtil {
         }
         int endIndex = arrayList.size() - 1;
         View rootView = arrayList.get(endIndex);
+        if (!(rootView instanceof ViewGroup)) {
+            return null;
+        }
+        ViewPathIndex.Generation generation = ViewPathIndex.getGeneration(rootView);
+        int version = generation == null ? 0 : generation.getVersion();
+        // 从最近的有效祖先开始计算
+        int startIndex = endIndex;
+        ViewPathIndex.Prefix prefix = null;
+        for (int i = 1; generation != null && i < endIndex; i++) {
+            prefix = ViewPathIndex.get(arrayList.get(i), generation, version);
+            if (prefix != null) {
+                startIndex = i;
+                break;
+            }
+        }
         String listPosition = null;
         String elementContent = null;
         StringBuilder opx = new StringBuilder();
         StringBuilder px = new StringBuilder();
-        if (rootView instanceof ViewGroup) {
-            ViewGroup parentView = (ViewGroup) rootView;
-            for (int i = endIndex - 1; i >= 0; i--) {
-                final View childView = arrayList.get(i);
-                final int viewPosition = parentView.indexOfChild(childView);
-                final ViewNode viewNode = getViewNode(childView, viewPosition, fromVisual);
-                if (viewNode != null) {
-                    if (!TextUtils.isEmpty(viewNode.getViewPath()) && viewNode.getViewPath().contains("-") && !TextUtils.isEmpty(listPosition)) {
-                        int replacePosition = px.indexOf("-");
-                        if (replacePosition != -1) {
-                            px.replace(replacePosition, replacePosition + 1, String.valueOf(listPosition));
-                        }
+        if (prefix != null) {
+            opx.append(prefix.mOriginalPath);
+            px.append(prefix.mPath);
+        }
+        ViewGroup parentView = (ViewGroup) arrayList.get(startIndex);
+        for (int i = startIndex - 1; i >= 0; i--) {
+            final View childView = arrayList.get(i);
+            final int viewPosition = parentView.indexOfChild(childView);
+            final PathSegment segment = getPathSegment(childView, viewPosition, listPosition);
+            if (segment != null) {
+                if (segment.mPath.contains("-") && !TextUtils.isEmpty(listPosition)) {
+                    int replacePosition = px.indexOf("-");
+                    if (replacePosition != -1) {
+                        px.replace(replacePosition, replacePosition + 1, String.valueOf(listPosition));
                     }
-                    opx.append(viewNode.getViewOriginalPath());
-                    px.append(viewNode.getViewPath());
-                    listPosition = viewNode.getViewPosition();
-                    elementContent = viewNode.getViewContent();
                 }
-                if (!(childView instanceof ViewGroup)) {
-                    break;
+                opx.append(segment.mOriginalPath);
+                px.append(segment.mPath);
+                listPosition = segment.mListPosition;
+                if (i == 0) {
+                    elementContent = getViewContentAndType(childView, fromVisual).getViewContent();
                 }
-                parentView = (ViewGroup) childView;
             }
-            return new ViewNode(clickView, listPosition, opx.toString(), px.toString(), elementContent);
+            if (!(childView instanceof ViewGroup)) {
+                break;
+            }
+            parentView = (ViewGroup) childView;
+            if (generation != null && listPosition == null) {
+                ViewPathIndex.put(parentView, new ViewPathIndex.Prefix(generation, version, opx.toString(), px.toString()));
+            }
+        }
+        return new ViewNode(clickView, listPosition, opx.toString(), px.toString(), elementContent);
+    }
+
+    /**
+     * 获取 View 在最近的列表类型父 View 中的位置，与 {@link #getViewPathAndPosition(View)} 得到的 $element_position 相同，
+     * 不拼接路径，可以在点击时在主线程中调用
+     *
+     * @param view View
+     * @return 列表位置，不在列表中时返回 null
+     */
+    public static String getListPosition(View view) {
+        View childView = view;
+        for (ViewParent parent = view.getParent(); parent instanceof ViewGroup; parent = parent.getParent()) {
+            ViewGroup parentView = (ViewGroup) parent;
+            int viewPosition = getViewPosition(childView, parentView.indexOfChild(childView));
+            if (parentView instanceof ExpandableListView) {
+                long elp = ((ExpandableListView) parentView).getExpandableListPosition(viewPosition);
+                if (ExpandableListView.getPackedPositionType(elp) != 2) {
+                    int groupIdx = ExpandableListView.getPackedPositionGroup(elp);
+                    int childIdx = ExpandableListView.getPackedPositionChild(elp);
+                    return childIdx != -1 ? groupIdx + ":" + childIdx : String.valueOf(groupIdx);
+                }
+            } else if (ViewUtil.isListView(parentView)) {
+                return String.valueOf(viewPosition);
+            }
+            childView = parentView;
         }
         return null;
     }
@@ -483,6 +532,37 @@ public class ViewUtil {
     }
 
     public static ViewNode getViewNode(View view, int viewIndex, boolean fromVisual) {
+        ViewParent parentObject = view.getParent();
+        String parentPosition = null;
+        if (parentObject instanceof View && parentObject.getParent() instanceof View) {
+            if (sListPositionCache == null) {
+                sListPositionCache = new WeakHashMap<>();
+            }
+            parentPosition = sListPositionCache.get(parentObject.getParent());
+        }
+        PathSegment segment = getPathSegment(view, viewIndex, parentPosition);
+        if (segment == null) {
+            return null;
+        }
+        if (!TextUtils.isEmpty(segment.mListPosition)) {
+            if (sListPositionCache == null) {
+                sListPositionCache = new WeakHashMap<>();
+            }
+            sListPositionCache.put((View) parentObject, segment.mListPosition);
+        }
+        ViewNode viewNode = getViewContentAndType(view, fromVisual);
+        return new ViewNode(view, segment.mListPosition, segment.mOriginalPath, segment.mPath, viewNode.getViewContent(), viewNode.getViewType(), segment.mIsListView);
+    }
+
+    /**
+     * 计算 View 在父 View 下的一段 $element_path
+     *
+     * @param view View
+     * @param viewIndex View 在父 View 中的序号
+     * @param parentPosition 父 View 的列表位置，非列表类型的子控件继承该位置
+     * @return 路径片段，View 没有父 View 时返回 null
+     */
+    private static PathSegment getPathSegment(View view, int viewIndex, String parentPosition) {
         int viewPosition = getViewPosition(view, viewIndex);
         ViewParent parentObject = view.getParent();
         if (parentObject == null) {
@@ -498,16 +578,8 @@ public class ViewUtil {
                 String listPos = null;
                 boolean isListView = false;
                 // 处理嵌套场景，如果父 View 是列表类型控件，将父 View 的列表位置传递给非列表类型子控件; 列表类型子控件则直接用自身位置。
-                ViewParent parent = parentView.getParent();
-                if (parent instanceof View) {
-                    View listParentView = (View) parent;
-                    if (sViewCache == null) {
-                        sViewCache = new SparseArray<String>();
-                    }
-                    String parentPos = (String) sViewCache.get(listParentView.hashCode());
-                    if (!TextUtils.isEmpty(parentPos)) {
-                        listPos = parentPos;
-                    }
+                if (!TextUtils.isEmpty(parentPosition)) {
+                    listPos = parentPosition;
                 }
                 if (parentView instanceof ExpandableListView) {
                     ExpandableListView listParent = (ExpandableListView) parentView;
@@ -517,11 +589,11 @@ public class ViewUtil {
                         int groupIdx = ExpandableListView.getPackedPositionGroup(elp);
                         int childIdx = ExpandableListView.getPackedPositionChild(elp);
                         if (childIdx != -1) {
-                            listPos = String.format(Locale.CHINA, "%d:%d", groupIdx, childIdx);
+                            listPos = groupIdx + ":" + childIdx;
                             px.append(opx).append("/ELVG[").append(groupIdx).append("]/ELVC[-]/").append(viewName).append("[0]");
                             opx.append("/ELVG[").append(groupIdx).append("]/ELVC[").append(childIdx).append("]/").append(viewName).append("[0]");
                         } else {
-                            listPos = String.format(Locale.CHINA, "%d", groupIdx);
+                            listPos = String.valueOf(groupIdx);
                             px.append(opx).append("/ELVG[-]/").append(viewName).append("[0]");
                             opx.append("/ELVG[").append(groupIdx).append("]/").append(viewName).append("[0]");
                         }
@@ -535,7 +607,7 @@ public class ViewUtil {
                     }
                 } else if (ViewUtil.isListView(parentView)) {
                     isListView = true;
-                    listPos = String.format(Locale.CHINA, "%d", viewPosition);
+                    listPos = String.valueOf(viewPosition);
                     px.append(opx).append("/").append(viewName).append("[-]");
                     opx.append("/").append(viewName).append("[").append(listPos).append("]");
                 } else if (ViewUtil.instanceOfSupportSwipeRefreshLayout(parentView)) {
@@ -558,22 +630,33 @@ public class ViewUtil {
                         px.deleteCharAt(0);
                     }
                 }
-                if (!TextUtils.isEmpty(listPos)) {
-                    if (sViewCache == null) {
-                        sViewCache = new SparseArray<String>();
-                    }
-                    sViewCache.put(parentView.hashCode(), listPos);
-                }
-                ViewNode viewNode = getViewContentAndType(view, fromVisual);
-                return new ViewNode(view, listPos, opx.toString(), px.toString(), viewNode.getViewContent(), viewNode.getViewType(), isListView);
+                return new PathSegment(opx.toString(), px.toString(), listPos, isListView);
             }
         }
         return null;
     }
 
     public static void clear() {
-        if (sViewCache != null) {
-            sViewCache.clear();
+        if (sListPositionCache != null) {
+            sListPositionCache.clear();
+        }
+        ViewPathIndex.clear();
+    }
+
+    /**
+     * View 在父 View 下的一段 $element_path
+     */
+    private static final class PathSegment {
+        final String mOriginalPath;
+        final String mPath;
+        final String mListPosition;
+        final boolean mIsListView;
+
+        PathSegment(String originalPath, String path, String listPosition, boolean isListView) {
+            mOriginalPath = originalPath;
+            mPath = path;
+            mListPosition = listPosition;
+            mIsListView = isListView;
         }
     }
 
@@ -32,7 +32,8 @@ import java.util.Map;
 public class ZAContextManager {
     private final Context mContext;
     private boolean mDisableTrackDeviceId;
-    private Map<String, Object> mDeviceInfo;
+    /* 初始化的 deferred 阶段在事件任务线程上生成，其他线程可能同时读取 */
+    private volatile Map<String, Object> mDeviceInfo;
     /* AndroidID */
     private String mAndroidId;
     private boolean isAppStartSuccess;
@@ -125,16 +126,21 @@ public class ZAContextManager {
     /**
      * 获取并配置 App 的一些基本属性
      */
-    private void setupDeviceInfo() {
+    private synchronized void setupDeviceInfo() {
+        if (mDeviceInfo != null) {
+            return;
+        }
         final Map<String, Object> deviceInfo = new HashMap<>();
-        String osVersion = DeviceUtils.getHarmonyOSVersion();
-        if (!TextUtils.isEmpty(osVersion)) {
-            deviceInfo.put("$os", "HarmonyOS");
-            deviceInfo.put("$os_version", osVersion);
-        } else {
-            deviceInfo.put("$os", "Android");
-            deviceInfo.put("$os_version", DeviceUtils.getOS());
+        // 系统、应用名称优先从本地缓存读取，App、系统升级或切换语言后重新获取
+        String profileKey = DeviceProfileCache.buildKey(mContext);
+        Map<String, Object> profile = DeviceProfileCache.load(mContext, profileKey);
+        if (profile == null) {
+            profile = probeDeviceProfile();
+            if (!TextUtils.isEmpty((String) profile.get("$app_name"))) {
+                DeviceProfileCache.save(mContext, profileKey, profile);
+            }
         }
+        deviceInfo.putAll(profile);
 
         deviceInfo.put("$lib", "Android");
         deviceInfo.put("$lib_version", ZallDataAPI.sharedInstance().getSDKVersion());
@@ -162,10 +168,29 @@ public class ZAContextManager {
         }
 
         deviceInfo.put("$app_id", AppInfoUtils.getProcessName(mContext));
-        deviceInfo.put("$app_name", AppInfoUtils.getAppName(mContext));
         mDeviceInfo =  Collections.unmodifiableMap(deviceInfo);
     }
 
+    /**
+     * 获取较慢、且很少变化的设备信息：鸿蒙系统检测可能需要执行 getprop 命令，应用名称需要加载资源
+     *
+     * @return $os、$os_version、$app_name
+     */
+    private Map<String, Object> probeDeviceProfile() {
+        Map<String, Object> profile = new HashMap<>();
+        String osVersion = DeviceUtils.getHarmonyOSVersion();
+        if (!TextUtils.isEmpty(osVersion)) {
+            profile.put("$os", "HarmonyOS");
+            profile.put("$os_version", osVersion);
+        } else {
+            profile.put("$os", "Android");
+            profile.put("$os_version", DeviceUtils.getOS());
+        }
+        CharSequence appName = AppInfoUtils.getAppName(mContext);
+        profile.put("$app_name", appName == null ? "" : appName.toString());
+        return profile;
+    }
+
     public boolean isAppStartSuccess() {
         return isAppStartSuccess;
     }
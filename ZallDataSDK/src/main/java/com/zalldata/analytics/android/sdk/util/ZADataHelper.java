@@ -26,20 +26,15 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Pattern;
 
 public class ZADataHelper {
 
     private static final String TAG = "ZA.ZADataHelper";
-    private static final String[] WHITE_LIST = {"zalldata_app_visual_properties"};
-
-    private static final Pattern KEY_PATTERN = Pattern.compile(
-            "^((?!^distinct_id$|^original_id$|^time$|^properties$|^id$|^first_id$|^second_id$|^users$|^events$|^event$|^user_id$|^date$|^datetime$)[a-zA-Z_$][a-zA-Z\\d_$]{0,99})$",
-            Pattern.CASE_INSENSITIVE);
+    /* 属性值不限制长度的属性 */
+    private static final String WHITE_LIST_KEY = "zalldata_app_visual_properties";
 
     public static void assertPropertyTypes(JSONObject properties) throws InvalidDataException {
         if (properties == null) {
@@ -101,7 +96,7 @@ public class ZADataHelper {
                                 + "', value='" + value.toString() + "']");
                     }
                 } else {
-                    if (!Arrays.asList(WHITE_LIST).contains(key) && value instanceof String && ((String) value).length() > 8191) {
+                    if (value instanceof String && ((String) value).length() > 8191 && !WHITE_LIST_KEY.equals(key)) {
                         properties.put(key, ((String) value).substring(0, 8191) + "$");
                         ZALog.d(TAG, "The property value is too long. [key='" + key
                                 + "', value='" + value.toString() + "']");
@@ -117,7 +112,7 @@ public class ZADataHelper {
         if (null == key || key.length() < 1) {
             throw new InvalidDataException("The key is empty.");
         }
-        if (!(KEY_PATTERN.matcher(key).matches())) {
+        if (!PropertyKeyValidator.isValid(key)) {
             throw new InvalidDataException("The key '" + key + "' is invalid.");
         }
     }
@@ -102,6 +102,9 @@ public final class ZallDataUtils {
         }
     };
 
+    /* za_mcc_mnc_mini.json 的索引，只读取一次 */
+    private static volatile CarrierIndex sCarrierIndex;
+
     private static final List<String> mInvalidAndroidId = new ArrayList<String>() {
         {
             add("9774d56d682e549c");
@@ -246,15 +249,8 @@ public final class ZallDataUtils {
             if (sCarrierMap.containsKey(operator)) {
                 return sCarrierMap.get(operator);
             }
-            String carrierJson = getJsonFromAssets("za_mcc_mnc_mini.json", context);
-            if (TextUtils.isEmpty(carrierJson)) {
-                sCarrierMap.put(operator, alternativeName);
-                return alternativeName;
-            }
-            JSONObject jsonObject = new JSONObject(carrierJson);
-            String carrier = getCarrierFromJsonObject(jsonObject, operator);
+            String carrier = getCarrierIndex(context).find(operator);
             if (!TextUtils.isEmpty(carrier)) {
-                sCarrierMap.put(operator, carrier);
                 return carrier;
             }
         } catch (Exception e) {
@@ -263,12 +259,24 @@ public final class ZallDataUtils {
         return alternativeName;
     }
 
-    private static String getCarrierFromJsonObject(JSONObject jsonObject, String mccMnc) {
-        if (jsonObject == null || TextUtils.isEmpty(mccMnc)) {
-            return null;
+    /**
+     * 获取 za_mcc_mnc_mini.json 的索引，第一次调用时读取 asset
+     *
+     * @param context Context
+     * @return 运营商索引
+     */
+    private static CarrierIndex getCarrierIndex(Context context) {
+        CarrierIndex carrierIndex = sCarrierIndex;
+        if (carrierIndex == null) {
+            synchronized (ZallDataUtils.class) {
+                carrierIndex = sCarrierIndex;
+                if (carrierIndex == null) {
+                    carrierIndex = CarrierIndex.parse(getJsonFromAssets("za_mcc_mnc_mini.json", context));
+                    sCarrierIndex = carrierIndex;
+                }
+            }
         }
-        return jsonObject.optString(mccMnc);
-
+        return carrierIndex;
     }
 
     public static SharedPreferences getSharedPreferences(Context context) {
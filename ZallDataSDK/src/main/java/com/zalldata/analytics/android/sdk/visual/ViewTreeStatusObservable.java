@@ -20,7 +20,6 @@ package com.zalldata.analytics.android.sdk.visual;
 
 import android.app.Activity;
 import android.text.TextUtils;
-import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewTreeObserver.OnGlobalFocusChangeListener;
@@ -42,13 +41,15 @@ import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 
 public class ViewTreeStatusObservable implements OnGlobalLayoutListener, OnScrollChangedListener, OnGlobalFocusChangeListener {
     private static final String TAG = "ZA.ViewTreeStatusObservable";
     public static volatile ViewTreeStatusObservable viewTreeStatusObservable;
     private Runnable mTraverseRunnable = new TraverseRunnable();
-    private SparseArray<ViewNode> mViewNodesWithHashCode = new SparseArray<>();
+    private Map<View, ViewNode> mViewNodesWithView = new WeakHashMap<>();
     private HashMap<String, ViewNode> mViewNodesHashMap = new HashMap<>();
     private HashMap<String, ViewNode> mWebViewHashMap = new HashMap<>();
 
@@ -100,11 +101,11 @@ public class ViewTreeStatusObservable implements OnGlobalLayoutListener, OnScrol
     public ViewNode getViewNode(View view) {
         ViewNode viewNode = null;
         try {
-            viewNode = mViewNodesWithHashCode.get(view.hashCode());
+            viewNode = mViewNodesWithView.get(view);
             if (viewNode == null) {
                 viewNode = ViewUtil.getViewPathAndPosition(view);
                 if (viewNode != null) {
-                    mViewNodesWithHashCode.put(view.hashCode(), viewNode);
+                    mViewNodesWithView.put(view, viewNode);
                 }
             }
         } catch (Exception e) {
@@ -187,24 +188,23 @@ public class ViewTreeStatusObservable implements OnGlobalLayoutListener, OnScrol
 
     private void traverseNode(View rootView) {
         try {
-            SparseArray<ViewNode> tempSparseArray = new SparseArray<>();
+            Map<View, ViewNode> tempViewNodes = new WeakHashMap<>();
             HashMap<String, ViewNode> tempHashMap = new HashMap<>();
             HashMap<String, ViewNode> tempWebViewHashMap = new HashMap<>();
             // 主动遍历
             if (rootView != null) {
-                traverseNode(rootView, tempSparseArray, tempHashMap, tempWebViewHashMap);
+                traverseNode(rootView, tempViewNodes, tempHashMap, tempWebViewHashMap);
             } else {
                 // 被动缓存
                 final View[] views = WindowHelper.getSortedWindowViews();
                 for (View view : views) {
-                    traverseNode(view, tempSparseArray, tempHashMap, tempWebViewHashMap);
+                    traverseNode(view, tempViewNodes, tempHashMap, tempWebViewHashMap);
                 }
             }
             mViewNodesHashMap.clear();
-            mViewNodesWithHashCode.clear();
             mWebViewHashMap.clear();
             mViewNodesHashMap = tempHashMap;
-            mViewNodesWithHashCode = tempSparseArray;
+            mViewNodesWithView = tempViewNodes;
             mWebViewHashMap = tempWebViewHashMap;
         } catch (Exception e) {
             ZALog.printStackTrace(e);
@@ -244,7 +244,7 @@ public class ViewTreeStatusObservable implements OnGlobalLayoutListener, OnScrol
         return key.toString();
     }
 
-    private void traverseNode(final View view, final SparseArray<ViewNode> sparseArray, final HashMap<String, ViewNode> hashMap, final HashMap<String, ViewNode> webViewHashMap) {
+    private void traverseNode(final View view, final Map<View, ViewNode> viewNodes, final HashMap<String, ViewNode> hashMap, final HashMap<String, ViewNode> webViewHashMap) {
         try {
             if (view == null) {
                 return;
@@ -252,7 +252,7 @@ public class ViewTreeStatusObservable implements OnGlobalLayoutListener, OnScrol
             ViewNode viewNode = ViewUtil.getViewPathAndPosition(view, true);
             if (viewNode != null) {
                 // 缓存 ViewNode,用于获取 $element_path
-                sparseArray.put(view.hashCode(), viewNode);
+                viewNodes.put(view, viewNode);
                 if (!TextUtils.isEmpty(viewNode.getViewPath())) {
                     JSONObject jsonObject = VisualUtil.getScreenNameAndTitle(view, null);
                     if (jsonObject != null) {
@@ -274,7 +274,7 @@ public class ViewTreeStatusObservable implements OnGlobalLayoutListener, OnScrol
                 for (int i = 0; i < childCount; i++) {
                     final View child = group.getChildAt(i);
                     if (child != null) {
-                        traverseNode(child, sparseArray, hashMap, webViewHashMap);
+                        traverseNode(child, viewNodes, hashMap, webViewHashMap);
                     }
                 }
             }
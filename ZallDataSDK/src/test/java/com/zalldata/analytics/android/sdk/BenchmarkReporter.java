@@ -0,0 +1,37 @@
+/*
+ * Created by guo on 2021/11/26.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zalldata.analytics.android.sdk;
+
+/**
+ * 单元测试中的性能对比结果只在 -Pzalldata.benchmark=true 时输出，默认运行测试时不打印
+ */
+public final class BenchmarkReporter {
+    private static final boolean ENABLED = Boolean.getBoolean("zalldata.benchmark");
+
+    private BenchmarkReporter() {
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    public static void report(String format, Object... args) {
+        if (ENABLED) {
+            System.out.println(String.format(format, args));
+        }
+    }
+}
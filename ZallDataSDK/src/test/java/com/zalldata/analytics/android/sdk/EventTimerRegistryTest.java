@@ -0,0 +1,87 @@
+/*
+ * Created by guo on 2021/11/23.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 计时器注册表：交叉计时器名称解析、前后台切换和时长计算
+ */
+@RunWith(AndroidJUnit4.class)
+public class EventTimerRegistryTest {
+
+    @Test
+    public void crossTimerName() {
+        String timerName = EventTimerRegistry.newCrossTimerName("Buy");
+        assertTrue(timerName.endsWith("_ZATimer"));
+        assertEquals(45, timerName.length() - "Buy".length());
+        assertEquals("Buy", EventTimerRegistry.getEventName(timerName));
+        // 不是 UUID 格式的名称保持不变
+        String plain = "Event_with_a_very_long_name_that_ends_with_the_ZATimer";
+        assertEquals(plain, EventTimerRegistry.getEventName(plain));
+
+        EventTimerRegistry registry = new EventTimerRegistry();
+        registry.start(timerName, TimeUnit.SECONDS, 0);
+        assertEquals("Buy", registry.remove(timerName).getEventName());
+        assertNull(registry.remove(timerName));
+    }
+
+    @Test
+    public void durationAndBackground() {
+        EventTimerRegistry registry = new EventTimerRegistry();
+        registry.start("Read", TimeUnit.SECONDS, 1000);
+        registry.start("$AppEnd", TimeUnit.SECONDS, 1000);
+        // 前台 5 秒后进入后台，Session 间隔 1 秒
+        registry.appEnterBackground(6000, 1000);
+        // 后台 100 秒后恢复，再计时 2.5 秒
+        registry.appBecomeActive(106000);
+        EventTimer read = registry.remove("Read");
+        read.setEndTime(108500);
+        assertEquals(6.5, read.duration(), 0);
+
+        EventTimer appEnd = registry.get("$AppEnd");
+        appEnd.setEndTime(108500);
+        assertEquals(2.5, appEnd.duration(), 0);
+    }
+
+    @Test
+    public void pauseAndUnits() {
+        EventTimerRegistry registry = new EventTimerRegistry();
+        registry.start("Video", TimeUnit.MILLISECONDS, 0);
+        EventTimer timer = registry.get("Video");
+        timer.setTimerState(true, 1234);
+        timer.setTimerState(true, 5000);
+        timer.setTimerState(false, 9000);
+        timer.setEndTime(9100);
+        assertEquals(1334, timer.duration(), 0);
+
+        registry.start("Minutes", TimeUnit.MINUTES, 0);
+        EventTimer minutes = registry.get("Minutes");
+        minutes.setEndTime(100000);
+        assertEquals(1.667, minutes.duration(), 0);
+    }
+}
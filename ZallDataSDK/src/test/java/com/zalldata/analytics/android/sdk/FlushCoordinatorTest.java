@@ -0,0 +1,151 @@
+/*
+ * Created by guo on 2021/11/20.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 多进程上报协调，在 JVM 中启动多个子进程验证
+ */
+public class FlushCoordinatorTest {
+    private static final long LEASE_MILLIS = 60 * 1000;
+    private static final int PROCESS_COUNT = 4;
+    private static final int ITERATIONS = 500;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void releasedWhenProcessDies() throws Exception {
+        File lockFile = new File(mFolder.getRoot(), "flush.lock");
+        Process child = startChild(lockFile.getAbsolutePath(), "hold");
+        BufferedReader reader = new BufferedReader(new InputStreamReader(child.getInputStream()));
+        assertEquals("acquired", reader.readLine());
+
+        FlushCoordinator coordinator = new FlushCoordinator(lockFile, LEASE_MILLIS);
+        assertFalse(coordinator.tryAcquire());
+        child.destroy();
+        child.waitFor();
+        assertTrue(coordinator.tryAcquire());
+        assertTrue(coordinator.heartbeat());
+        coordinator.release();
+        assertFalse(coordinator.isHeld());
+    }
+
+    @Test
+    public void exclusiveAcrossProcesses() throws Exception {
+        File lockFile = new File(mFolder.getRoot(), "flush.lock");
+        File marker = new File(mFolder.getRoot(), "uploading");
+        List<Process> children = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < PROCESS_COUNT; i++) {
+            children.add(startChild(lockFile.getAbsolutePath(), "contend", marker.getAbsolutePath(), String.valueOf(ITERATIONS)));
+        }
+        int acquired = 0;
+        for (Process child : children) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(child.getInputStream()));
+            String[] result = reader.readLine().split(",");
+            assertEquals(0, child.waitFor());
+            acquired += Integer.parseInt(result[0]);
+            assertEquals("overlap", 0, Integer.parseInt(result[1]));
+        }
+        long cost = System.nanoTime() - start;
+        assertTrue(acquired > 0);
+        BenchmarkReporter.report("%d processes: %d of %d attempts acquired, %d ms",
+                PROCESS_COUNT, acquired, PROCESS_COUNT * ITERATIONS, cost / 1000000);
+    }
+
+    @Test
+    public void leaseExpiresInProcess() throws Exception {
+        final FlushCoordinator coordinator = new FlushCoordinator(new File(mFolder.getRoot(), "flush.lock"), 50);
+        final boolean[] results = new boolean[2];
+        Thread stuck = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                results[0] = coordinator.tryAcquire();
+            }
+        });
+        stuck.start();
+        stuck.join();
+        assertTrue(results[0]);
+        assertFalse(coordinator.tryAcquire());
+        Thread.sleep(100);
+        assertTrue(coordinator.tryAcquire());
+        assertTrue(coordinator.heartbeat());
+        coordinator.release();
+    }
+
+    private static Process startChild(String... args) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getAbsolutePath());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ChildProcess.class.getName());
+        for (String arg : args) {
+            command.add(arg);
+        }
+        return new ProcessBuilder(command).redirectErrorStream(false).start();
+    }
+
+    /**
+     * 子进程入口
+     */
+    public static class ChildProcess {
+        public static void main(String[] args) throws Exception {
+            FlushCoordinator coordinator = new FlushCoordinator(new File(args[0]), LEASE_MILLIS);
+            if ("hold".equals(args[1])) {
+                if (coordinator.tryAcquire()) {
+                    System.out.println("acquired");
+                    System.out.flush();
+                    Thread.sleep(60 * 1000);
+                }
+                return;
+            }
+            File marker = new File(args[2]);
+            int iterations = Integer.parseInt(args[3]);
+            int acquired = 0;
+            int overlap = 0;
+            for (int i = 0; i < iterations; i++) {
+                if (coordinator.tryAcquire()) {
+                    acquired++;
+                    // 持锁期间只有当前进程可以创建标记文件
+                    if (!marker.createNewFile()) {
+                        overlap++;
+                    }
+                    coordinator.heartbeat();
+                    marker.delete();
+                    coordinator.release();
+                }
+                Thread.yield();
+            }
+            System.out.println(acquired + "," + overlap);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Created by guo on 2021/11/10.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.zalldata.analytics.android.sdk.util.ZallDataUtils;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 预置属性快照与逐个事件合并的结果一致，且分配更少
+ */
+@RunWith(AndroidJUnit4.class)
+public class PresetPropertiesCacheTest {
+    private static final int EVENT_COUNT = 20000;
+
+    @Test
+    public void sameAsMerge() throws Exception {
+        JSONObject dynamic = new JSONObject().put("Dynamic_Key", "dynamic").put("$os", "dynamic-os")
+                .put("$APP_VERSION", "dynamic-version");
+        PresetPropertiesCache.Snapshot snapshot = newSnapshot();
+        assertEquals(merge(null).toString(), snapshot.newEventProperties(true, null).toString());
+        assertEquals(merge(dynamic).toString(), snapshot.newEventProperties(true, dynamic).toString());
+    }
+
+    @Test
+    public void allocationBenchmark() throws Exception {
+        PresetPropertiesCache.Snapshot snapshot = newSnapshot();
+        int sink = 0;
+        long allocated = allocatedBytes();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            sink += merge(null).length();
+        }
+        long mergeBytes = allocatedBytes() - allocated;
+        allocated = allocatedBytes();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            sink += snapshot.newEventProperties(true, null).length();
+        }
+        long snapshotBytes = allocatedBytes() - allocated;
+        BenchmarkReporter.report("merge: %d bytes/event, snapshot: %d bytes/event (%d)",
+                mergeBytes / EVENT_COUNT, snapshotBytes / EVENT_COUNT, sink & 1);
+    }
+
+    private static PresetPropertiesCache.Snapshot newSnapshot() throws Exception {
+        LinkedHashMap<String, Object> superProperties = new LinkedHashMap<>();
+        JSONObject jsonObject = superProperties();
+        Iterator<String> iterator = jsonObject.keys();
+        while (iterator.hasNext()) {
+            String key = iterator.next();
+            superProperties.put(key, jsonObject.get(key));
+        }
+        return new PresetPropertiesCache.Snapshot(0, 0, deviceInfo(), "中国移动", latestUtm(),
+                new SuperPropertiesStore.Snapshot(superProperties));
+    }
+
+    /**
+     * 与快照之前 trackEvent 的合并逻辑一致
+     */
+    private static JSONObject merge(JSONObject dynamic) throws Exception {
+        JSONObject properties = new JSONObject(deviceInfo());
+        properties.put("$carrier", "中国移动");
+        ZallDataUtils.mergeJSONObject(latestUtm(), properties);
+        JSONObject superProperties = new JSONObject(superProperties().toString());
+        ZallDataUtils.mergeJSONObject(ZallDataUtils.mergeSuperJSONObject(dynamic, superProperties), properties);
+        return properties;
+    }
+
+    private static Map<String, Object> deviceInfo() {
+        Map<String, Object> deviceInfo = new HashMap<>();
+        deviceInfo.put("$lib", "Android");
+        deviceInfo.put("$lib_version", "1.0.0");
+        deviceInfo.put("$os", "Android");
+        deviceInfo.put("$os_version", "11");
+        deviceInfo.put("$manufacturer", "Google");
+        deviceInfo.put("$model", "Pixel");
+        deviceInfo.put("$brand", "Google");
+        deviceInfo.put("$app_version", "2.0.0");
+        deviceInfo.put("$screen_width", 1080);
+        deviceInfo.put("$screen_height", 1920);
+        deviceInfo.put("$timezone_offset", -480);
+        deviceInfo.put("$app_id", "com.zalldata.demo");
+        deviceInfo.put("$app_name", "demo");
+        return Collections.unmodifiableMap(deviceInfo);
+    }
+
+    private static JSONObject latestUtm() throws Exception {
+        return new JSONObject().put("$latest_utm_source", "source").put("$latest_utm_campaign", "campaign");
+    }
+
+    private static JSONObject superProperties() throws Exception {
+        return new JSONObject().put("platform", "android").put("dynamic_key", "super").put("channel", "store")
+                .put("$app_version", "3.0.0");
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
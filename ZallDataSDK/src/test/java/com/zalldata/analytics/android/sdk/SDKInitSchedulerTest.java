@@ -0,0 +1,104 @@
+/*
+ * Created by guo on 2021/11/25.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zalldata.analytics.android.sdk;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.zalldata.analytics.android.sdk.metrics.StartupProfiler;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * deferred 阶段先于之后提交的事件任务执行，idle 阶段在 deferred 之后执行，各阶段耗时可以读取
+ */
+@RunWith(AndroidJUnit4.class)
+public class SDKInitSchedulerTest {
+
+    @Test
+    public void stagesRunInOrder() throws Exception {
+        final List<String> calls = new ArrayList<>();
+        TrackTaskManager trackTaskManager = TrackTaskManager.getInstance();
+        StartupProfiler.start();
+        SDKInitScheduler scheduler = new SDKInitScheduler(trackTaskManager);
+        scheduler.deferred("first", record(calls, "first"));
+        scheduler.deferred("second", record(calls, "second"));
+        scheduler.idle("idle", record(calls, "idle"));
+        scheduler.start();
+        // 初始化期间调用 track 产生的任务
+        trackTaskManager.addTrackEventTask(record(calls, "track"));
+        assertFalse(StartupProfiler.isFinished(StartupProfiler.STAGE_DEFERRED));
+
+        Runnable task;
+        while ((task = trackTaskManager.pollTrackEventTask()) != null) {
+            task.run();
+        }
+        assertEquals("[first, second, track]", calls.toString());
+        assertTrue(StartupProfiler.isFinished(StartupProfiler.STAGE_DEFERRED));
+        assertFalse(StartupProfiler.isFinished(StartupProfiler.STAGE_IDLE));
+
+        // 主线程空闲或者等待超时后执行
+        ShadowLooper.idleMainLooper(SDKInitScheduler.IDLE_TIMEOUT, TimeUnit.MILLISECONDS);
+        assertEquals("[first, second, track, idle]", calls.toString());
+        assertTrue(StartupProfiler.isFinished(StartupProfiler.STAGE_IDLE));
+
+        JSONObject timings = StartupProfiler.snapshot();
+        assertFalse(timings.getJSONObject("critical").getBoolean("finished"));
+        JSONObject deferred = timings.getJSONObject("deferred");
+        assertTrue(deferred.getBoolean("finished"));
+        assertTrue(deferred.getDouble("duration_ms") >= 0);
+        assertTrue(deferred.getJSONObject("steps").has("first"));
+        assertTrue(deferred.getJSONObject("steps").has("second"));
+        assertTrue(timings.getJSONObject("idle").getJSONObject("steps").has("idle"));
+    }
+
+    @Test
+    public void stepFailureDoesNotStopStage() {
+        final List<String> calls = new ArrayList<>();
+        List<SDKInitScheduler.Step> steps = new ArrayList<>();
+        steps.add(new SDKInitScheduler.Step("fail", new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("fail");
+            }
+        }));
+        steps.add(new SDKInitScheduler.Step("next", record(calls, "next")));
+        StartupProfiler.start();
+        SDKInitScheduler.runSteps(StartupProfiler.STAGE_DEFERRED, steps);
+        assertEquals("[next]", calls.toString());
+        assertTrue(StartupProfiler.isFinished(StartupProfiler.STAGE_DEFERRED));
+    }
+
+    private static Runnable record(final List<String> calls, final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                calls.add(name);
+            }
+        };
+    }
+}
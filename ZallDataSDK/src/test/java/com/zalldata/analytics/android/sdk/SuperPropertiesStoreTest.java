@@ -0,0 +1,109 @@
+/*
+ * Created by guo on 2021/11/23.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.zalldata.analytics.android.sdk.data.persistent.PersistentLoader;
+import com.zalldata.analytics.android.sdk.data.persistent.PersistentSuperProperties;
+import com.zalldata.analytics.android.sdk.util.TimeUtils;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 公共属性修改时替换快照，忽略大小写去重与之前的合并逻辑一致
+ */
+@RunWith(AndroidJUnit4.class)
+public class SuperPropertiesStoreTest {
+
+    @Test
+    public void copyOnWrite() throws Exception {
+        SuperPropertiesStore store = newStore("{\"Platform\":\"android\",\"channel\":\"store\"}");
+        SuperPropertiesStore.Snapshot before = store.get();
+        assertSame(before, store.get());
+
+        store.register(new JSONObject().put("platform", "ios").put("version", 2));
+        SuperPropertiesStore.Snapshot after = store.get();
+        assertNotSame(before, after);
+        assertEquals("android", before.get("Platform"));
+        assertNull(after.get("Platform"));
+        assertEquals("ios", after.get("platform"));
+        assertEquals(2, after.get("version"));
+        assertEquals("{\"channel\":\"store\",\"platform\":\"ios\",\"version\":2}", after.toJSONObject().toString());
+
+        store.unregister("channel");
+        assertFalse(store.get().getProperties().containsKey("channel"));
+        assertTrue(after.getProperties().containsKey("channel"));
+
+        store.clear();
+        assertTrue(store.get().getProperties().isEmpty());
+    }
+
+    @Test
+    public void mergeDynamicProperties() throws Exception {
+        SuperPropertiesStore store = newStore("{\"platform\":\"android\",\"Channel\":\"store\"}");
+        JSONObject dynamic = new JSONObject().put("CHANNEL", "dynamic");
+        assertEquals(1, store.get().findDuplicateKeys(dynamic).size());
+        assertTrue(store.get().findDuplicateKeys(dynamic).contains("Channel"));
+
+        JSONObject properties = new JSONObject().put("$os", "Android");
+        store.get().mergeTo(properties, dynamic);
+        assertEquals("{\"$os\":\"Android\",\"platform\":\"android\",\"CHANNEL\":\"dynamic\"}", properties.toString());
+    }
+
+    @Test
+    public void registerFormatsDate() throws Exception {
+        SuperPropertiesStore store = newStore("{}");
+        Date date = new Date(1637798400000L);
+        store.register(new JSONObject().put("first_visit", date).put("$time", date));
+        assertEquals(TimeUtils.formatDate(date, Locale.CHINA), store.get().get("first_visit"));
+        assertSame(date, store.get().get("$time"));
+    }
+
+    private static SuperPropertiesStore newStore(String superProperties) {
+        final SharedPreferences sharedPreferences = ApplicationProvider.getApplicationContext()
+                .getSharedPreferences("super_properties_test", Context.MODE_PRIVATE);
+        sharedPreferences.edit().putString(PersistentLoader.PersistentName.SUPER_PROPERTIES, superProperties).commit();
+        FutureTask<SharedPreferences> future = new FutureTask<>(new Callable<SharedPreferences>() {
+            @Override
+            public SharedPreferences call() {
+                return sharedPreferences;
+            }
+        });
+        future.run();
+        return new SuperPropertiesStore(new PersistentSuperProperties(future));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Created by guo on 2021/11/09.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.zalldata.analytics.android.sdk.data.ZallDataContentProvider;
+import com.zalldata.analytics.android.sdk.data.adapter.DbAdapter;
+import com.zalldata.analytics.android.sdk.data.adapter.DbParams;
+
+import org.json.JSONObject;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.lang.reflect.Method;
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * _track_id 生成不重复，ContentProvider 不可用时的区间与 ContentProvider 分配的区间不重叠
+ */
+@RunWith(AndroidJUnit4.class)
+public class TrackIdGeneratorTest {
+    private static final int ID_COUNT = 200000;
+    private static final int BLOCK_COUNT = 1000;
+    private static final int EVENT_COUNT = 2000;
+
+    @BeforeClass
+    public static void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        Robolectric.buildContentProvider(ZallDataContentProvider.class)
+                .create(context.getPackageName() + ".ZallDataContentProvider");
+        DbAdapter.getInstance(context, context.getPackageName(), null);
+    }
+
+    @Test
+    public void uniqueIds() {
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < ID_COUNT; i++) {
+            assertTrue(ids.add(TrackIdGenerator.nextId()));
+        }
+    }
+
+    @Test
+    public void fallbackBlockNeverOverlapsProviderBlock() {
+        for (int i = 0; i < BLOCK_COUNT; i++) {
+            long block = DbAdapter.getInstance().allocateTrackIdBlock();
+            assertTrue(block >= 0 && block < Integer.MAX_VALUE);
+            assertEquals(0, block % DbParams.TRACK_ID_BLOCK_SIZE);
+        }
+        int[] randoms = {0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, new SecureRandom().nextInt()};
+        for (int random : randoms) {
+            int block = TrackIdGenerator.fallbackBlock(random);
+            assertTrue(block < 0);
+            assertEquals(0, block % DbParams.TRACK_ID_BLOCK_SIZE);
+            // 区间都按 TRACK_ID_BLOCK_SIZE 对齐，最高位不同即不重叠
+            assertNotEquals(random & DbParams.TRACK_ID_BLOCK_MASK, block);
+        }
+    }
+
+    @Test
+    public void fallbackBlocksMayCollide() {
+        // 多个进程同时无法访问 ContentProvider 时，只有随机数的高 15 位参与区间选择
+        assertEquals(TrackIdGenerator.fallbackBlock(0x12340000), TrackIdGenerator.fallbackBlock(0x1234FFFF));
+        assertEquals(TrackIdGenerator.fallbackBlock(0x12340000), TrackIdGenerator.fallbackBlock(0x92340000));
+    }
+
+    /**
+     * trackEventInternal 的耗时，并给出旧实现中每个事件 new SecureRandom() 的额外耗时
+     */
+    @Test
+    public void trackEventBenchmark() throws Exception {
+        Assume.assumeTrue(BenchmarkReporter.isEnabled());
+        Context context = ApplicationProvider.getApplicationContext();
+        ZallDataAPI.startWithConfigOptions(context, new ZAConfigOptions("http://localhost/sa"));
+        ZallDataAPI api = ZallDataAPI.sharedInstance(context);
+        Method trackEventInternal = AbstractZallDataAPI.class.getDeclaredMethod("trackEventInternal", EventType.class,
+                String.class, JSONObject.class, JSONObject.class, String.class, String.class, String.class,
+                EventTimer.class, long.class);
+        trackEventInternal.setAccessible(true);
+        String distinctId = api.getAnonymousId();
+        long start = System.nanoTime();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            trackEventInternal.invoke(api, EventType.TRACK, "TrackIdBenchmark", new JSONObject(), new JSONObject(),
+                    distinctId, null, distinctId, null, System.nanoTime());
+        }
+        long trackCost = System.nanoTime() - start;
+        int sink = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            sink += new SecureRandom().nextInt();
+        }
+        long secureRandomCost = System.nanoTime() - start;
+        BenchmarkReporter.report("trackEventInternal: %d ns/event, before (+ new SecureRandom()): %d ns/event (%d)",
+                trackCost / EVENT_COUNT, (trackCost + secureRandomCost) / EVENT_COUNT, sink & 1);
+    }
+}
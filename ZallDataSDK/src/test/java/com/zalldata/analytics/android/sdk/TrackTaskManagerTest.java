@@ -0,0 +1,121 @@
+/*
+ * Created by guo on 2021/11/26.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 任务队列达到高水位进入过载、降到低水位退出，过载时只抽样丢弃可丢弃的任务
+ */
+@RunWith(AndroidJUnit4.class)
+public class TrackTaskManagerTest {
+    private static final int HIGH_WATERMARK = 20;
+    private static final int LOW_WATERMARK = 10;
+
+    private static final Runnable TASK = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    @Test
+    public void enterOverloadAtHighWatermark() throws Exception {
+        TrackTaskManager manager = createManager();
+        addTasks(manager, HIGH_WATERMARK, TrackTaskManager.PRIORITY_NORMAL);
+        // 入队前检测，第 HIGH_WATERMARK 个任务入队时队列长度还未达到高水位
+        assertFalse(statistics(manager).getBoolean("overloaded"));
+        manager.addTrackEventTask(TASK);
+        JSONObject statistics = statistics(manager);
+        assertTrue(statistics.getBoolean("overloaded"));
+        assertEquals(HIGH_WATERMARK + 1, statistics.getInt("queue_size"));
+        assertEquals(1, statistics.getLong("delayed"));
+        assertEquals(0, statistics.getLong("dropped"));
+    }
+
+    @Test
+    public void exitOverloadAtLowWatermark() throws Exception {
+        TrackTaskManager manager = createManager();
+        addTasks(manager, HIGH_WATERMARK + 1, TrackTaskManager.PRIORITY_NORMAL);
+        assertTrue(statistics(manager).getBoolean("overloaded"));
+        // 低于高水位、高于低水位时保持过载
+        pollTasks(manager, HIGH_WATERMARK + 1 - (LOW_WATERMARK + 1));
+        manager.addTrackEventTask(TASK);
+        assertTrue(statistics(manager).getBoolean("overloaded"));
+        pollTasks(manager, 2);
+        manager.addTrackEventTask(TASK);
+        JSONObject statistics = statistics(manager);
+        assertFalse(statistics.getBoolean("overloaded"));
+        assertEquals(2, statistics.getLong("delayed"));
+        // 退出后要再次达到高水位才会进入过载
+        addTasks(manager, HIGH_WATERMARK - LOW_WATERMARK - 1, TrackTaskManager.PRIORITY_SHEDDABLE);
+        assertFalse(statistics(manager).getBoolean("overloaded"));
+    }
+
+    @Test
+    public void shedOnlySheddableTasks() throws Exception {
+        TrackTaskManager manager = createManager();
+        addTasks(manager, HIGH_WATERMARK, TrackTaskManager.PRIORITY_NORMAL);
+        addTasks(manager, 30, TrackTaskManager.PRIORITY_SHEDDABLE);
+        addTasks(manager, 5, TrackTaskManager.PRIORITY_NORMAL);
+        JSONObject statistics = statistics(manager);
+        // 每 10 个可丢弃的任务保留 1 个，普通任务不丢弃
+        assertEquals(27, statistics.getLong("dropped"));
+        assertEquals(HIGH_WATERMARK + 3 + 5, statistics.getInt("queue_size"));
+        assertEquals(3 + 5, statistics.getLong("delayed"));
+    }
+
+    @Test
+    public void noOverloadWithoutWatermarks() throws Exception {
+        TrackTaskManager manager = new TrackTaskManager();
+        addTasks(manager, 200, TrackTaskManager.PRIORITY_SHEDDABLE);
+        JSONObject statistics = statistics(manager);
+        assertFalse(statistics.getBoolean("overloaded"));
+        assertEquals(200, statistics.getInt("queue_size"));
+        assertEquals(0, statistics.getLong("dropped"));
+    }
+
+    private static TrackTaskManager createManager() {
+        TrackTaskManager manager = new TrackTaskManager();
+        manager.setWatermarks(HIGH_WATERMARK, LOW_WATERMARK);
+        return manager;
+    }
+
+    private static void addTasks(TrackTaskManager manager, int count, int priority) {
+        for (int i = 0; i < count; i++) {
+            manager.addTrackEventTask(TASK, priority);
+        }
+    }
+
+    private static void pollTasks(TrackTaskManager manager, int count) {
+        for (int i = 0; i < count; i++) {
+            manager.pollTrackEventTask();
+        }
+    }
+
+    private static JSONObject statistics(TrackTaskManager manager) {
+        return manager.getOverloadStatistics();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Created by guo on 2021/11/15.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 多生产者写入时任务不丢失，写满后按策略处理
+ */
+public class TrackTaskQueueTest {
+    private static final int PRODUCER_COUNT = 4;
+    private static final int TASK_COUNT = 50000;
+
+    @Test
+    public void multiProducerSpill() throws Exception {
+        final TrackTaskQueue queue = new TrackTaskQueue(64);
+        final AtomicInteger executed = new AtomicInteger();
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                executed.incrementAndGet();
+            }
+        };
+        final CountDownLatch latch = new CountDownLatch(PRODUCER_COUNT);
+        for (int i = 0; i < PRODUCER_COUNT; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < TASK_COUNT; j++) {
+                        queue.offer(task);
+                    }
+                    latch.countDown();
+                }
+            }).start();
+        }
+        int total = PRODUCER_COUNT * TASK_COUNT;
+        for (int i = 0; i < total; i++) {
+            queue.take().run();
+        }
+        latch.await();
+        assertEquals(total, executed.get());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void dropOldest() {
+        TrackTaskQueue queue = new TrackTaskQueue(4);
+        queue.setOverflowPolicy(ZallDataAPI.TrackQueueOverflowPolicy.DROP_OLDEST);
+        Runnable[] tasks = new Runnable[6];
+        int dropped = 0;
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = new Runnable() {
+                @Override
+                public void run() {
+                }
+            };
+            dropped += queue.offer(tasks[i], true);
+        }
+        assertEquals(2, dropped);
+        for (int i = 2; i < tasks.length; i++) {
+            assertEquals(tasks[i], queue.poll());
+        }
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void dropOldestKeepsCriticalTasks() {
+        TrackTaskQueue queue = new TrackTaskQueue(4);
+        queue.setOverflowPolicy(ZallDataAPI.TrackQueueOverflowPolicy.DROP_OLDEST);
+        Runnable sheddable1 = newTask(), critical1 = newTask(), sheddable2 = newTask(), sheddable3 = newTask();
+        queue.offer(sheddable1, true);
+        queue.offer(critical1, false);
+        queue.offer(sheddable2, true);
+        queue.offer(sheddable3, true);
+        // 最早的任务可丢弃时丢弃它
+        Runnable sheddable4 = newTask();
+        assertEquals(1, queue.offer(sheddable4, true));
+        // 最早的任务不可丢弃：新的可丢弃任务被丢弃，不可丢弃的任务写入溢出队列
+        assertEquals(1, queue.offer(newTask(), true));
+        Runnable critical2 = newTask();
+        assertEquals(0, queue.offer(critical2, false));
+        assertEquals(1, queue.offer(newTask(), true));
+
+        assertEquals(critical1, queue.poll());
+        assertEquals(sheddable2, queue.poll());
+        assertEquals(sheddable3, queue.poll());
+        assertEquals(sheddable4, queue.poll());
+        assertEquals(critical2, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    private static Runnable newTask() {
+        return new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Created by guo on 2021/11/26.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zalldata.analytics.android.sdk;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 上报结果按读取顺序确认，失败批次之后的数据不删除；每批条数按数据大小调整
+ */
+@RunWith(AndroidJUnit4.class)
+public class UploadBatchTest {
+
+    @Test
+    public void deleteInOrderWhenMiddleBatchFails() {
+        final List<String> deleted = new ArrayList<>();
+        AnalyticsMessages.BatchAcknowledger acknowledger = new AnalyticsMessages.BatchAcknowledger(
+                new AnalyticsMessages.BatchAcknowledger.Cleaner() {
+                    @Override
+                    public int cleanupEvents(String fromId, String lastId) {
+                        deleted.add(fromId + "-" + lastId);
+                        return 0;
+                    }
+                });
+        // 批次 (null,50]、(50,100]、(100,150]、(150,200]，第二批失败，之后的批次先返回成功
+        assertEquals(0, acknowledger.acknowledge(null, "50", true));
+        assertEquals(-1, acknowledger.acknowledge("50", "100", false));
+        assertTrue(acknowledger.isFailed());
+        assertEquals(-1, acknowledger.acknowledge("100", "150", true));
+        assertEquals(-1, acknowledger.acknowledge("150", "200", true));
+        assertEquals("[null-50]", deleted.toString());
+    }
+
+    @Test
+    public void deleteAllWhenNoBatchFails() {
+        final List<String> deleted = new ArrayList<>();
+        AnalyticsMessages.BatchAcknowledger acknowledger = new AnalyticsMessages.BatchAcknowledger(
+                new AnalyticsMessages.BatchAcknowledger.Cleaner() {
+                    @Override
+                    public int cleanupEvents(String fromId, String lastId) {
+                        deleted.add(fromId + "-" + lastId);
+                        return 0;
+                    }
+                });
+        acknowledger.acknowledge(null, "50", true);
+        acknowledger.acknowledge("50", "100", true);
+        assertFalse(acknowledger.isFailed());
+        assertEquals("[null-50, 50-100]", deleted.toString());
+    }
+
+    @Test
+    public void adaptiveBatchSize() {
+        // 50 条共 64KB，平均每条 1.3KB，256KB 约 200 条
+        assertEquals(200, AnalyticsMessages.nextUploadBatchSize(batch(50, 64 * 1024), 50));
+        // 50 条共 256KB，下一批仍为 50 条
+        assertEquals(50, AnalyticsMessages.nextUploadBatchSize(batch(50, AnalyticsMessages.UPLOAD_BATCH_BYTES), 50));
+        // 50 条共 512KB，减半
+        assertEquals(25, AnalyticsMessages.nextUploadBatchSize(batch(50, 2 * AnalyticsMessages.UPLOAD_BATCH_BYTES), 50));
+        // 单条很大时不低于下限，很小时不超过上限
+        assertEquals(AnalyticsMessages.MIN_UPLOAD_BATCH_SIZE,
+                AnalyticsMessages.nextUploadBatchSize(batch(1, AnalyticsMessages.UPLOAD_BATCH_BYTES), 50));
+        assertEquals(AnalyticsMessages.MAX_UPLOAD_BATCH_SIZE,
+                AnalyticsMessages.nextUploadBatchSize(batch(50, 100), 50));
+        // 数据不完整时保持不变
+        assertEquals(50, AnalyticsMessages.nextUploadBatchSize(null, 50));
+        assertEquals(50, AnalyticsMessages.nextUploadBatchSize(new String[]{"1", "data", "1"}, 50));
+        assertEquals(50, AnalyticsMessages.nextUploadBatchSize(new String[]{"1", "data", "1", "0"}, 50));
+    }
+
+    private static String[] batch(int rowCount, int length) {
+        StringBuilder data = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            data.append('a');
+        }
+        return new String[]{String.valueOf(rowCount), data.toString(), "1", String.valueOf(rowCount)};
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Created by guo on 2021/11/22.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.shadows.ShadowLog;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 异步日志：调用线程不阻塞，输出内容与同步版本一致，延迟消息在后台线程生成，带异常的日志按调用顺序输出
+ */
+@RunWith(AndroidJUnit4.class)
+public class ZALogTest {
+    private static final String TAG = "ZA.ZALogTest";
+
+    @After
+    public void tearDown() {
+        ZALog.flush(5000);
+        ZALog.setEnableLog(false);
+        ZALog.enableRecentLogs(0);
+    }
+
+    @Test
+    public void supplierSkippedWhenDisabled() {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+        ZALog.MessageSupplier supplier = new ZALog.MessageSupplier() {
+            @Override
+            public String get() {
+                calls.incrementAndGet();
+                thread.set(Thread.currentThread());
+                return "lazy";
+            }
+        };
+        ZALog.setEnableLog(false);
+        ZALog.i(TAG, supplier);
+        ZALog.flush(5000);
+        assertEquals(0, calls.get());
+
+        ZALog.setEnableLog(true);
+        ZALog.i(TAG, supplier);
+        ZALog.flush(5000);
+        assertEquals(1, calls.get());
+        assertNotSame(Thread.currentThread(), thread.get());
+        assertEquals("lazy", last(ShadowLog.getLogsForTag(TAG)).msg);
+    }
+
+    @Test
+    public void throwableKeepsCallOrder() {
+        ZALog.setEnableLog(true);
+        ShadowLog.clear();
+        ZALog.i(TAG, "first");
+        ZALog.i(TAG, "with throwable", new IllegalStateException("crash"));
+        ZALog.i(TAG, "last");
+        ZALog.printStackTrace(new IllegalStateException("crash"));
+        ZALog.flush(5000);
+        List<ShadowLog.LogItem> items = ShadowLog.getLogsForTag(TAG);
+        assertEquals(3, items.size());
+        assertEquals("first", items.get(0).msg);
+        assertEquals("with throwable", items.get(1).msg);
+        assertNotNull(items.get(1).throwable);
+        assertEquals("last", items.get(2).msg);
+        assertEquals(1, ShadowLog.getLogsForTag("ZA.Exception").size());
+    }
+
+    @Test
+    public void longMessageIsChunked() {
+        ZALog.setEnableLog(true);
+        ShadowLog.clear();
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            if (i > 0) {
+                builder.append('\n');
+            }
+            builder.append("line ").append(i).append(" 0123456789");
+        }
+        ZALog.i(TAG, builder.toString());
+        ZALog.flush(5000);
+        List<ShadowLog.LogItem> items = ShadowLog.getLogsForTag(TAG);
+        assertTrue(items.size() > 1);
+        StringBuilder joined = new StringBuilder();
+        for (ShadowLog.LogItem item : items) {
+            assertTrue(item.msg.length() <= 4000);
+            if (joined.length() > 0) {
+                joined.append('\n');
+            }
+            joined.append(item.msg);
+        }
+        assertEquals(builder.toString(), joined.toString());
+    }
+
+    @Test
+    public void callerIsNotBlocked() {
+        ZALog.setEnableLog(true);
+        final String json = "{\"a\":1,\"b\":[1,2,3],\"c\":{\"d\":\"e\"}}";
+        long start = System.nanoTime();
+        for (int i = 0; i < 20000; i++) {
+            ZALog.i(TAG, ZALog.formatJson("track event:\n", json));
+        }
+        long cost = System.nanoTime() - start;
+        ZALog.flush(10000);
+        BenchmarkReporter.report("20000 log calls on caller thread: %d ms", cost / 1000000);
+    }
+
+    @Test
+    public void recentLogsDump() throws Exception {
+        ZALog.setEnableLog(true);
+        ZALog.enableRecentLogs(3);
+        for (int i = 0; i < 5; i++) {
+            ZALog.i(TAG, "message " + i);
+        }
+        ZALog.flush(5000);
+        List<String> recent = ZALog.getRecentLogs();
+        assertEquals(3, recent.size());
+        assertTrue(recent.get(0).endsWith(TAG + ": message 2"));
+        assertTrue(recent.get(2).endsWith(TAG + ": message 4"));
+        File file = File.createTempFile("zalog", ".txt");
+        assertTrue(ZALog.dumpRecentLogs(file));
+        assertTrue(file.length() > 0);
+        file.delete();
+    }
+
+    private static ShadowLog.LogItem last(List<ShadowLog.LogItem> items) {
+        return items.get(items.size() - 1);
+    }
+}
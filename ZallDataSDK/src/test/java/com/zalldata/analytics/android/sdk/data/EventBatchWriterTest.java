@@ -0,0 +1,126 @@
+/*
+ * Created by guo on 2021/11/02.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.data;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.zalldata.analytics.android.sdk.BenchmarkReporter;
+import com.zalldata.analytics.android.sdk.data.adapter.DbAdapter;
+import com.zalldata.analytics.android.sdk.data.adapter.DbParams;
+import com.zalldata.analytics.android.sdk.data.adapter.EventBatchWriter;
+
+import org.json.JSONObject;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 对比逐条写入与批量写入的吞吐量
+ */
+@RunWith(AndroidJUnit4.class)
+public class EventBatchWriterTest {
+    private static final int EVENT_COUNT = 2000;
+    private static final int BATCH_SIZE = 50;
+
+    @BeforeClass
+    public static void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        Robolectric.buildContentProvider(ZallDataContentProvider.class)
+                .create(context.getPackageName() + ".ZallDataContentProvider");
+        DbAdapter.getInstance(context, context.getPackageName(), null);
+    }
+
+    @Test
+    public void batchInsertBenchmark() throws Exception {
+        DbAdapter dbAdapter = DbAdapter.getInstance();
+        dbAdapter.deleteAllEvents();
+        long start = System.nanoTime();
+        int count = 0;
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            count = dbAdapter.addJSON(createEvent(i));
+        }
+        long singleCost = System.nanoTime() - start;
+        assertEquals(EVENT_COUNT, count);
+
+        dbAdapter.deleteAllEvents();
+        EventBatchWriter writer = new EventBatchWriter(dbAdapter, BATCH_SIZE, 1000);
+        start = System.nanoTime();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            int ret = writer.write(createEvent(i), false);
+            if (ret != EventBatchWriter.PENDING) {
+                count = ret;
+            }
+        }
+        int ret = writer.commit();
+        if (ret != EventBatchWriter.PENDING) {
+            count = ret;
+        }
+        long batchCost = System.nanoTime() - start;
+        assertEquals(EVENT_COUNT, count);
+        assertEquals(0, writer.getPendingCount());
+
+        BenchmarkReporter.report("single insert: %.1f events/s, batch insert(%d): %.1f events/s",
+                EVENT_COUNT * 1e9 / singleCost, BATCH_SIZE, EVENT_COUNT * 1e9 / batchCost);
+    }
+
+    @Test
+    public void commitImmediately() throws Exception {
+        DbAdapter dbAdapter = DbAdapter.getInstance();
+        dbAdapter.deleteAllEvents();
+        EventBatchWriter writer = new EventBatchWriter(dbAdapter, BATCH_SIZE, 60 * 1000);
+        assertEquals(EventBatchWriter.PENDING, writer.write(createEvent(0), false));
+        assertEquals(1, writer.getPendingCount());
+        assertEquals(2, writer.write(createEvent(1), true));
+        assertEquals(0, writer.getPendingCount());
+    }
+
+    @Test
+    public void pendingDoesNotCollideWithInsertResult() throws Exception {
+        DbAdapter dbAdapter = DbAdapter.getInstance();
+        dbAdapter.deleteAllEvents();
+        EventBatchWriter writer = new EventBatchWriter(dbAdapter, BATCH_SIZE, 60 * 1000);
+        // 没有缓存事件
+        assertEquals(EventBatchWriter.PENDING, writer.commit());
+        assertTrue(EventBatchWriter.PENDING < 0);
+        assertNotEquals(DbParams.DB_OUT_OF_MEMORY_ERROR, EventBatchWriter.PENDING);
+        assertNotEquals(-1, EventBatchWriter.PENDING);
+        assertEquals(1, writer.write(createEvent(0), true));
+    }
+
+    private JSONObject createEvent(int index) throws Exception {
+        JSONObject properties = new JSONObject();
+        properties.put("$screen_name", "com.zalldata.demo.MainActivity");
+        properties.put("$element_content", "button_" + index);
+        properties.put("$element_type", "Button");
+        JSONObject event = new JSONObject();
+        event.put("event", "$AppClick");
+        event.put("type", "track");
+        event.put("time", System.currentTimeMillis());
+        event.put("distinct_id", "benchmark_distinct_id");
+        event.put("properties", properties);
+        return event;
+    }
+}
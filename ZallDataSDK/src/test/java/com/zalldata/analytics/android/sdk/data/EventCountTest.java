@@ -0,0 +1,105 @@
+/*
+ * Created by guo on 2021/11/04.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.data;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.zalldata.analytics.android.sdk.BenchmarkReporter;
+import com.zalldata.analytics.android.sdk.data.adapter.DbAdapter;
+
+import org.json.JSONObject;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Event 表数据条数由 ContentProvider 维护，插入耗时不随积压条数增长
+ */
+@RunWith(AndroidJUnit4.class)
+public class EventCountTest {
+    private static final int SAMPLE_COUNT = 200;
+    private static final int[] BACKLOG_SIZES = {0, 5000, 10000, 20000};
+
+    @BeforeClass
+    public static void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        Robolectric.buildContentProvider(ZallDataContentProvider.class)
+                .create(context.getPackageName() + ".ZallDataContentProvider");
+        DbAdapter.getInstance(context, context.getPackageName(), null);
+    }
+
+    @Test
+    public void countAfterInsertAndCleanup() throws Exception {
+        DbAdapter dbAdapter = DbAdapter.getInstance();
+        dbAdapter.deleteAllEvents();
+        assertEquals(1, dbAdapter.addJSON(createEvent()));
+        assertEquals(2, dbAdapter.addJSON(createEvent()));
+        String[] data = dbAdapter.generateDataString("events", 1);
+        assertEquals(1, dbAdapter.cleanupEvents(data[0]));
+        dbAdapter.deleteAllEvents();
+        assertEquals(1, dbAdapter.addJSON(createEvent()));
+    }
+
+    @Test
+    public void insertCostBenchmark() throws Exception {
+        DbAdapter dbAdapter = DbAdapter.getInstance();
+        dbAdapter.deleteAllEvents();
+        int backlog = 0;
+        for (int size : BACKLOG_SIZES) {
+            List<JSONObject> events = new ArrayList<>();
+            for (int i = backlog; i < size; i++) {
+                events.add(createEvent());
+            }
+            if (!events.isEmpty()) {
+                dbAdapter.addJSON(events);
+            }
+            backlog = size;
+
+            long start = System.nanoTime();
+            int count = 0;
+            for (int i = 0; i < SAMPLE_COUNT; i++) {
+                count = dbAdapter.addJSON(createEvent());
+            }
+            long cost = System.nanoTime() - start;
+            backlog += SAMPLE_COUNT;
+            assertEquals(backlog, count);
+            BenchmarkReporter.report("backlog %d: %.1f us/event", size, cost / 1000.0 / SAMPLE_COUNT);
+        }
+    }
+
+    private JSONObject createEvent() throws Exception {
+        JSONObject properties = new JSONObject();
+        properties.put("$screen_name", "com.zalldata.demo.MainActivity");
+        properties.put("$element_content", "button");
+        JSONObject event = new JSONObject();
+        event.put("event", "$AppClick");
+        event.put("type", "track");
+        event.put("time", System.currentTimeMillis());
+        event.put("properties", properties);
+        return event;
+    }
+}
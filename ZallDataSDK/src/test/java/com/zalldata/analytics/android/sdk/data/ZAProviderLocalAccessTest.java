@@ -0,0 +1,133 @@
+/*
+ * Created by guo on 2021/11/19.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.data;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.zalldata.analytics.android.sdk.BenchmarkReporter;
+import com.zalldata.analytics.android.sdk.data.adapter.DbAdapter;
+import com.zalldata.analytics.android.sdk.data.adapter.DbParams;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * 同进程内持久化数据读写与 ContentResolver 结果一致，并对比页面切换时的耗时
+ */
+@RunWith(AndroidJUnit4.class)
+public class ZAProviderLocalAccessTest {
+    private static final int TRANSITION_COUNT = 2000;
+
+    @BeforeClass
+    public static void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        Robolectric.buildContentProvider(ZallDataContentProvider.class)
+                .create(context.getPackageName() + ".ZallDataContentProvider");
+        DbAdapter.getInstance(context, context.getPackageName(), null);
+    }
+
+    @Test
+    public void sameAsContentResolver() {
+        assertNotNull(ZAProviderLocalAccess.getInstance());
+        DbAdapter dbAdapter = DbAdapter.getInstance();
+        DbParams dbParams = DbParams.getInstance();
+        dbAdapter.commitActivityCount(3);
+        dbAdapter.commitAppStartTime(123456789L);
+        dbAdapter.commitAppEndData("{\"app_end\":1}");
+        assertEquals(3, dbAdapter.getActivityCount());
+        assertEquals("3", queryByResolver(dbParams.getActivityStartCountUri(), false));
+        assertEquals(123456789L, dbAdapter.getAppStartTime());
+        assertEquals("123456789", queryByResolver(uri(DbParams.TABLE_APP_START_TIME), true));
+        assertEquals("{\"app_end\":1}", dbAdapter.getAppEndData());
+
+        ContentValues values = new ContentValues();
+        values.put(DbParams.TABLE_ACTIVITY_START_COUNT, 5);
+        resolver().insert(dbParams.getActivityStartCountUri(), values);
+        assertEquals(5, dbAdapter.getActivityCount());
+    }
+
+    @Test
+    public void activityTransitionBenchmark() {
+        DbAdapter dbAdapter = DbAdapter.getInstance();
+        DbParams dbParams = DbParams.getInstance();
+        long start = System.nanoTime();
+        for (int i = 0; i < TRANSITION_COUNT; i++) {
+            // onActivityStarted + onActivityStopped 中的读写
+            int count = dbAdapter.getActivityCount();
+            dbAdapter.commitActivityCount(count + 1);
+            dbAdapter.getAppStartTime();
+            dbAdapter.commitAppStartTime(i);
+            dbAdapter.getAppEndData();
+            dbAdapter.commitActivityCount(count);
+        }
+        long local = System.nanoTime() - start;
+
+        ContentResolver resolver = resolver();
+        start = System.nanoTime();
+        for (int i = 0; i < TRANSITION_COUNT; i++) {
+            int count = Integer.parseInt(queryByResolver(dbParams.getActivityStartCountUri(), false));
+            ContentValues values = new ContentValues();
+            values.put(DbParams.TABLE_ACTIVITY_START_COUNT, count + 1);
+            resolver.insert(dbParams.getActivityStartCountUri(), values);
+            queryByResolver(uri(DbParams.TABLE_APP_START_TIME), true);
+            values = new ContentValues();
+            values.put(DbParams.TABLE_APP_START_TIME, (long) i);
+            resolver.insert(uri(DbParams.TABLE_APP_START_TIME), values);
+            queryByResolver(uri(DbParams.TABLE_APP_END_DATA), false);
+            values = new ContentValues();
+            values.put(DbParams.TABLE_ACTIVITY_START_COUNT, count);
+            resolver.insert(dbParams.getActivityStartCountUri(), values);
+        }
+        long resolverCost = System.nanoTime() - start;
+        BenchmarkReporter.report("local: %.1f us/transition, ContentResolver: %.1f us/transition",
+                local / 1000.0 / TRANSITION_COUNT, resolverCost / 1000.0 / TRANSITION_COUNT);
+    }
+
+    private static ContentResolver resolver() {
+        return ApplicationProvider.getApplicationContext().getContentResolver();
+    }
+
+    private static Uri uri(String table) {
+        return Uri.parse("content://" + ApplicationProvider.getApplicationContext().getPackageName() + ".ZallDataContentProvider/" + table);
+    }
+
+    private static String queryByResolver(Uri uri, boolean isLong) {
+        Cursor cursor = resolver().query(uri, null, null, null, null);
+        try {
+            cursor.moveToNext();
+            if (isLong) {
+                return String.valueOf(cursor.getLong(0));
+            }
+            return cursor.getString(0);
+        } finally {
+            cursor.close();
+        }
+    }
+}
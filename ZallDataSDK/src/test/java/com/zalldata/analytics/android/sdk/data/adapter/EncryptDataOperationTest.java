@@ -0,0 +1,128 @@
+/*
+ * Created by guo on 2021/11/26.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.data.adapter;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.zalldata.analytics.android.sdk.data.ZallDataContentProvider;
+import com.zalldata.analytics.android.sdk.encrypt.IPersistentSecretKey;
+import com.zalldata.analytics.android.sdk.encrypt.SAEncryptListener;
+import com.zalldata.analytics.android.sdk.encrypt.SecreteKey;
+import com.zalldata.analytics.android.sdk.encrypt.ZallDataEncrypt;
+import com.zalldata.analytics.android.sdk.util.Base64Coder;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 加密上报时，相同密钥的事件合并为一条数据，无法还原的数据被跳过，不会阻塞之后的上报
+ */
+@RunWith(AndroidJUnit4.class)
+public class EncryptDataOperationTest {
+    private static SecreteKey sSecreteKey;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        Robolectric.buildContentProvider(ZallDataContentProvider.class)
+                .create(context.getPackageName() + ".ZallDataContentProvider");
+        DbAdapter.getInstance(context, context.getPackageName(), null);
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        String publicKey = new String(Base64Coder.encode(generator.generateKeyPair().getPublic().getEncoded()));
+        sSecreteKey = new SecreteKey(publicKey, 1, "AES", "RSA");
+    }
+
+    @Test
+    public void onePayloadPerEvent() throws Exception {
+        Uri uri = DbParams.getInstance().getEventUri();
+        DbAdapter.getInstance().deleteAllEvents();
+        EncryptDataOperation operation = new EncryptDataOperation(ApplicationProvider.getApplicationContext(), createEncrypt());
+        for (int i = 0; i < 3; i++) {
+            operation.insertData(uri, createEvent(i));
+        }
+        String[] result = operation.queryData(uri, null, 10);
+        assertNotNull(result);
+        assertEquals("3", result[3]);
+        assertEquals(DbParams.GZIP_DATA_ENCRYPT, result[2]);
+        JSONArray envelopes = new JSONArray(result[1]);
+        assertEquals(1, envelopes.length());
+        assertEquals(3, envelopes.getJSONObject(0).getJSONArray("payloads").length());
+    }
+
+    @Test
+    public void skipUndecryptableRows() throws Exception {
+        Uri uri = DbParams.getInstance().getEventUri();
+        DbAdapter.getInstance().deleteAllEvents();
+        EncryptDataOperation operation = new EncryptDataOperation(ApplicationProvider.getApplicationContext(), createEncrypt());
+        // 第一条数据无法还原
+        ContentValues values = new ContentValues();
+        values.put(DbParams.KEY_DATA, "{\"ekey\":\t0");
+        values.put(DbParams.KEY_CREATED_AT, System.currentTimeMillis());
+        operation.insertData(uri, values);
+        operation.insertData(uri, createEvent(1));
+        operation.insertData(uri, createEvent(2));
+
+        // 跳过无法还原的数据，批次包含之后的数据，删除时一起删除
+        String[] result = operation.queryData(uri, null, 10);
+        assertNotNull(result);
+        assertEquals("3", result[3]);
+        assertEquals(2, new JSONArray(result[1]).getJSONObject(0).getJSONArray("payloads").length());
+        operation.deleteData(uri, result[0]);
+        assertEquals(0, DbAdapter.getInstance().getEventCount());
+        assertNull(operation.queryData(uri, null, 10));
+    }
+
+    private static ZallDataEncrypt createEncrypt() {
+        return new ZallDataEncrypt(ApplicationProvider.getApplicationContext(), new IPersistentSecretKey() {
+            @Override
+            public void saveSecretKey(SecreteKey secreteKey) {
+            }
+
+            @Override
+            public SecreteKey loadSecretKey() {
+                return sSecreteKey;
+            }
+        }, new ArrayList<SAEncryptListener>());
+    }
+
+    private static JSONObject createEvent(int index) throws Exception {
+        return new JSONObject()
+                .put("_track_id", index)
+                .put("time", 1636600000000L + index)
+                .put("type", "track")
+                .put("event", "$AppClick")
+                .put("properties", new JSONObject().put("$element_content", "button " + index));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Created by guo on 2021/11/11.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.data.adapter;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.zalldata.analytics.android.sdk.BenchmarkReporter;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * EventJsonWriter 的输出与 JSONObject.toString() + "\t" + hashCode 一致
+ */
+@RunWith(AndroidJUnit4.class)
+public class EventJsonWriterTest {
+    private static final int EVENT_COUNT = 20000;
+
+    @Test
+    public void sameAsToString() throws Exception {
+        EventJsonWriter writer = new EventJsonWriter();
+        JSONObject event = createEvent();
+        String expected = event.toString() + "\t" + event.toString().hashCode();
+        assertEquals(expected, writer.write(event));
+        // 复用缓冲区
+        assertEquals(expected, writer.write(event));
+    }
+
+    @Test
+    public void writeBenchmark() throws Exception {
+        EventJsonWriter writer = new EventJsonWriter();
+        JSONObject event = createEvent();
+        int sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            sink += (event.toString() + "\t" + event.toString().hashCode()).length();
+        }
+        long toStringCost = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            sink += writer.write(event).length();
+        }
+        long writerCost = System.nanoTime() - start;
+        BenchmarkReporter.report("toString x2: %d ns/event, EventJsonWriter: %d ns/event (%d)",
+                toStringCost / EVENT_COUNT, writerCost / EVENT_COUNT, sink & 1);
+    }
+
+    private static JSONObject createEvent() throws Exception {
+        JSONObject properties = new JSONObject()
+                .put("$os", "Android")
+                .put("$screen_width", 1080)
+                .put("$wifi", true)
+                .put("price", 12.5)
+                .put("count", 3.0)
+                .put("url", "https://www.zalldata.com/a?b=\"c\"")
+                .put("text", "line1\nline2\t\u0001中文")
+                .put("tags", new JSONArray().put("a").put(1).put(JSONObject.NULL))
+                .put("empty", new JSONObject());
+        return new JSONObject()
+                .put("_track_id", 123456789)
+                .put("time", 1636600000000L)
+                .put("type", "track")
+                .put("event", "$AppClick")
+                .put("properties", properties)
+                .put("lib", new JSONObject().put("$lib", "Android").put("$lib_method", "code"));
+    }
+}
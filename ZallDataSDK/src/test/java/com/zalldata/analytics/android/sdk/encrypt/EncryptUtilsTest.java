@@ -0,0 +1,87 @@
+/*
+ * Created by guo on 2021/11/26.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.encrypt;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 对称加密复用当前线程已创建的 Cipher，密钥变化、密钥更新或换线程时重新创建
+ */
+@RunWith(AndroidJUnit4.class)
+public class EncryptUtilsTest {
+
+    @Test
+    public void reuseCipherForSameKey() throws Exception {
+        byte[] key = EncryptUtils.generateSymmetricKey(SymmetricEncryptMode.AES);
+        EncryptUtils.CipherContext cipherContext = EncryptUtils.getCipherContext(key, SymmetricEncryptMode.AES);
+        assertSame(cipherContext, EncryptUtils.getCipherContext(key.clone(), SymmetricEncryptMode.AES));
+        byte[] content = "{\"event\":\"$AppClick\"}".getBytes("UTF-8");
+        String first = EncryptUtils.symmetricEncrypt(key, content, SymmetricEncryptMode.AES);
+        String second = EncryptUtils.symmetricEncrypt(key, content, SymmetricEncryptMode.AES);
+        assertSame(cipherContext, EncryptUtils.getCipherContext(key, SymmetricEncryptMode.AES));
+        // 复用 Cipher 时每次使用新的 IV
+        assertNotEquals(first, second);
+        assertArrayEquals(content, EncryptUtils.symmetricDecrypt(key, first, SymmetricEncryptMode.AES));
+        assertArrayEquals(content, EncryptUtils.symmetricDecrypt(key, second, SymmetricEncryptMode.AES));
+    }
+
+    @Test
+    public void recreateCipherWhenKeyChanges() throws Exception {
+        byte[] key = EncryptUtils.generateSymmetricKey(SymmetricEncryptMode.AES);
+        byte[] otherKey = EncryptUtils.generateSymmetricKey(SymmetricEncryptMode.AES);
+        EncryptUtils.CipherContext cipherContext = EncryptUtils.getCipherContext(key, SymmetricEncryptMode.AES);
+        assertNotSame(cipherContext, EncryptUtils.getCipherContext(otherKey, SymmetricEncryptMode.AES));
+        byte[] content = "{\"event\":\"$AppClick\"}".getBytes("UTF-8");
+        String encrypted = EncryptUtils.symmetricEncrypt(otherKey, content, SymmetricEncryptMode.AES);
+        assertArrayEquals(content, EncryptUtils.symmetricDecrypt(otherKey, encrypted, SymmetricEncryptMode.AES));
+
+        cipherContext = EncryptUtils.getCipherContext(key, SymmetricEncryptMode.AES);
+        EncryptUtils.invalidateCipherCache();
+        assertNotSame(cipherContext, EncryptUtils.getCipherContext(key, SymmetricEncryptMode.AES));
+    }
+
+    @Test
+    public void cipherPerThread() throws Exception {
+        final byte[] key = EncryptUtils.generateSymmetricKey(SymmetricEncryptMode.AES);
+        EncryptUtils.CipherContext cipherContext = EncryptUtils.getCipherContext(key, SymmetricEncryptMode.AES);
+        final AtomicReference<EncryptUtils.CipherContext> otherContext = new AtomicReference<>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    otherContext.set(EncryptUtils.getCipherContext(key, SymmetricEncryptMode.AES));
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        assertNotSame(cipherContext, otherContext.get());
+    }
+}
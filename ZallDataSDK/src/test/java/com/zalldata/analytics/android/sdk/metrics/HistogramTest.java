@@ -0,0 +1,95 @@
+/*
+ * Created by guo on 2021/11/23.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.metrics;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 直方图的百分位误差不超过 1/8，指标快照结构完整
+ */
+@RunWith(AndroidJUnit4.class)
+public class HistogramTest {
+
+    @Test
+    public void bucketBounds() {
+        for (long value = 0; value < 1 << 20; value += 7) {
+            int index = Histogram.bucketIndex(value);
+            long upperBound = Histogram.bucketUpperBound(index);
+            assertTrue(upperBound >= value);
+            assertTrue(upperBound - value <= value / 8);
+            if (index > 0) {
+                assertTrue(Histogram.bucketUpperBound(index - 1) < value);
+            }
+        }
+        assertTrue(Histogram.bucketIndex(Long.MAX_VALUE >>> 22) < Histogram.BUCKET_COUNT);
+    }
+
+    @Test
+    public void percentiles() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentile(50));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-1);
+        assertEquals(1001, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertNear(500, histogram.getPercentile(50));
+        assertNear(900, histogram.getPercentile(90));
+        assertNear(990, histogram.getPercentile(99));
+        assertEquals(1000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void snapshot() throws Exception {
+        EventMetrics.getStage(EventMetrics.STAGE_HTTP).record(1200);
+        EventMetrics.increment(EventMetrics.COUNTER_UPLOAD_FAILURE);
+        EventMetrics.recordFailureCode(503);
+        EventMetrics.registerGauge("db_row_count", new EventMetrics.Gauge() {
+            @Override
+            public Object value() {
+                return 42;
+            }
+        });
+        EventMetrics.registerGauge("broken", new EventMetrics.Gauge() {
+            @Override
+            public Object value() {
+                throw new IllegalStateException();
+            }
+        });
+        JSONObject snapshot = EventMetrics.snapshot();
+        JSONObject http = snapshot.getJSONObject("stages").getJSONObject("http");
+        assertTrue(http.getLong("count") >= 1);
+        assertTrue(http.getLong("max") >= 1200);
+        assertTrue(snapshot.getJSONObject("counters").getLong(EventMetrics.COUNTER_UPLOAD_FAILURE) >= 1);
+        assertTrue(snapshot.getJSONObject("failure_codes").getLong("503") >= 1);
+        assertEquals(42, snapshot.getJSONObject("gauges").getInt("db_row_count"));
+        assertTrue(snapshot.getJSONObject("stages").has("enqueue"));
+    }
+
+    private static void assertNear(long expected, long actual) {
+        assertTrue("expected " + expected + " but was " + actual, actual >= expected && actual - expected <= expected / 8);
+    }
+}
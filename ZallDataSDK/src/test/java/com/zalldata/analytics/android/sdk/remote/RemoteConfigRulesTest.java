@@ -0,0 +1,175 @@
+/*
+ * Created by guo on 2021/11/21.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.remote;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.zalldata.analytics.android.sdk.ZallAnalyticsAutoTrackEventType;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 编译后的采集控制规则与原始配置的判断结果一致
+ */
+@RunWith(AndroidJUnit4.class)
+public class RemoteConfigRulesTest {
+    private static final int[] EVENT_TYPES = {
+            ZallAnalyticsAutoTrackEventType.APP_START,
+            ZallAnalyticsAutoTrackEventType.APP_END,
+            ZallAnalyticsAutoTrackEventType.APP_CLICK,
+            ZallAnalyticsAutoTrackEventType.APP_VIEW_SCREEN,
+            ZallAnalyticsAutoTrackEventType.APP_START | ZallAnalyticsAutoTrackEventType.APP_CLICK
+    };
+
+    @Test
+    public void autoTrackTypesMatchConfig() {
+        for (int mode = -1; mode < 16; mode++) {
+            ZallDataSDKRemoteConfig config = new ZallDataSDKRemoteConfig();
+            config.setAutoTrackMode(mode);
+            RemoteConfigRules rules = RemoteConfigRules.compile(config);
+            for (int eventType : EVENT_TYPES) {
+                Boolean ignored = rules.isAutoTrackEventTypeIgnored(eventType);
+                if (mode == ZallDataSDKRemoteConfig.REMOTE_EVENT_TYPE_NO_USE) {
+                    assertNull(ignored);
+                } else {
+                    assertEquals("mode " + mode + " type " + eventType, config.isAutoTrackEventTypeIgnored(eventType), ignored);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void blacklistAndSampleRate() throws Exception {
+        ZallDataSDKRemoteConfig config = new ZallDataSDKRemoteConfig();
+        config.setEventBlacklist(new JSONArray().put("Blocked").put(1).put("$AppEnd"));
+        config.setEventSampleRate(new JSONObject().put("$AppClick", 0.25).put("TooLarge", 3).put("Invalid", "abc"));
+        config.setDisableSDK(true);
+        RemoteConfigRules rules = RemoteConfigRules.compile(config);
+        assertTrue(rules.isEventIgnored("Blocked"));
+        assertTrue(rules.isEventIgnored("$AppEnd"));
+        assertFalse(rules.isEventIgnored("Allowed"));
+        assertEquals(0.25, rules.getEventSampleRate("$AppClick"), 0);
+        assertEquals(1, rules.getEventSampleRate("TooLarge"), 0);
+        assertEquals(1, rules.getEventSampleRate("Invalid"), 0);
+        assertEquals(1, rules.getEventSampleRate("Other"), 0);
+        assertTrue(rules.isDisableSDK());
+
+
+        RemoteConfigRules empty = RemoteConfigRules.compile(null);
+        assertFalse(empty.isEventIgnored("Blocked"));
+        assertFalse(empty.isDisableSDK());
+        assertNull(empty.isAutoTrackEnabled());
+        assertEquals(1, empty.sample("$AppClick", "user"), 0);
+    }
+
+    @Test
+    public void samplingIsDeterministicPerAnonymousId() throws Exception {
+        ZallDataSDKRemoteConfig config = new ZallDataSDKRemoteConfig();
+        config.setEventSampleRate(new JSONObject().put("$AppClick", 0.1).put("Never", 0));
+        RemoteConfigRules rules = RemoteConfigRules.compile(config);
+        int sampled = 0;
+        int users = 100000;
+        for (int i = 0; i < users; i++) {
+            String anonymousId = "anonymous_" + i;
+            double rate = rules.sample("$AppClick", anonymousId);
+            assertEquals(rate, rules.sample("$AppClick", anonymousId), 0);
+            if (rate > 0) {
+                assertEquals(0.1, rate, 0);
+                sampled++;
+            }
+            assertEquals(0, rules.sample("Never", anonymousId), 0);
+            assertEquals(1, rules.sample("Other", anonymousId), 0);
+        }
+        assertEquals(0.1, sampled / (double) users, 0.01);
+    }
+
+    @Test
+    public void tokenBucketCapsBurst() {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+        int acquired = 0;
+        for (int i = 0; i < 100; i++) {
+            if (bucket.acquire(0) > 0) {
+                acquired++;
+            }
+        }
+        assertEquals(5, acquired);
+        // 100 毫秒补充 1 个令牌
+        assertEquals(0, bucket.acquire(50), 0);
+        assertTrue(bucket.acquire(100) > 0);
+        assertEquals(0, bucket.acquire(100), 0);
+        // 长时间空闲后最多累积 burst 个
+        acquired = 0;
+        for (int i = 0; i < 100; i++) {
+            if (bucket.acquire(60000) > 0) {
+                acquired++;
+            }
+        }
+        assertEquals(5, acquired);
+    }
+
+    @Test
+    public void rateLimitedEventsCarryPassRate() {
+        // 每 10 毫秒一个事件，每秒补充 10 个令牌，稳定后约 1/10 的事件通过
+        TokenBucket bucket = new TokenBucket(10, 10, 0);
+        double lastRate = 0;
+        for (long now = 0; now < 3000; now += 10) {
+            double rate = bucket.acquire(now);
+            if (rate > 0) {
+                lastRate = rate;
+            }
+        }
+        assertEquals(0.1, lastRate, 0.02);
+        // 空闲超过两个窗口后不再沿用之前的通过比例
+        assertEquals(1, bucket.acquire(60000), 0);
+    }
+
+    @Test
+    public void passRateFromLastCompletedWindow() {
+        // 突发窗口中先通过的事件还不知道之后的丢弃，按 1 计算
+        TokenBucket bucket = new TokenBucket(1, 20, 0);
+        for (int i = 0; i < 100; i++) {
+            double rate = bucket.acquire(0);
+            assertTrue(rate == 0 || rate == 1);
+        }
+        // 下一个窗口使用突发窗口完整的通过比例 20/100
+        assertEquals(0.2, bucket.acquire(1000), 0.0001);
+    }
+
+    @Test
+    public void rateLimitFromConfig() throws Exception {
+        ZallDataSDKRemoteConfig config = new ZallDataSDKRemoteConfig();
+        config.setEventRateLimit(new JSONObject().put("Scroll", new JSONObject().put("rate", 0.001).put("burst", 3)));
+        RemoteConfigRules rules = RemoteConfigRules.compile(config);
+        int acquired = 0;
+        for (int i = 0; i < 100; i++) {
+            if (rules.sample("Scroll", "user") > 0) {
+                acquired++;
+            }
+        }
+        assertEquals(3, acquired);
+        assertEquals(1, rules.sample("Other", "user"), 0);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Created by guo on 2021/11/26.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.util;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 设备信息缓存只在 key 一致时命中；运营商索引的查找结果与 json 一致
+ */
+@RunWith(AndroidJUnit4.class)
+public class DeviceProfileCacheTest {
+
+    @Test
+    public void loadOnlyWithSameKey() {
+        Context context = ApplicationProvider.getApplicationContext();
+        String key = DeviceProfileCache.buildKey(10, "brand/product/device:11/RQ1A/1:user/release-keys", "zh_CN");
+        Map<String, Object> profile = new HashMap<>();
+        profile.put("$os", "HarmonyOS");
+        profile.put("$os_version", "2.0.0");
+        profile.put("$app_name", "Demo");
+        DeviceProfileCache.save(context, key, profile);
+
+        assertEquals(profile, DeviceProfileCache.load(context, key));
+        // 升级 App、升级系统、切换语言
+        assertNull(DeviceProfileCache.load(context, DeviceProfileCache.buildKey(11, "brand/product/device:11/RQ1A/1:user/release-keys", "zh_CN")));
+        assertNull(DeviceProfileCache.load(context, DeviceProfileCache.buildKey(10, "brand/product/device:12/SQ1A/2:user/release-keys", "zh_CN")));
+        assertNull(DeviceProfileCache.load(context, DeviceProfileCache.buildKey(10, "brand/product/device:11/RQ1A/1:user/release-keys", "en_US")));
+    }
+
+    @Test
+    public void rejectOtherVersionOrBrokenProfile() {
+        String key = DeviceProfileCache.buildKey(1, "fingerprint", "zh_CN");
+        assertNull(DeviceProfileCache.parse(null, key));
+        assertNull(DeviceProfileCache.parse("{", key));
+        assertNull(DeviceProfileCache.parse("{\"version\":" + (DeviceProfileCache.VERSION + 1)
+                + ",\"key\":\"" + key + "\",\"properties\":{\"$os\":\"Android\"}}", key));
+        assertNotNull(DeviceProfileCache.parse("{\"version\":" + DeviceProfileCache.VERSION
+                + ",\"key\":\"" + key + "\",\"properties\":{\"$os\":\"Android\"}}", key));
+    }
+
+    @Test
+    public void carrierIndex() {
+        CarrierIndex index = CarrierIndex.parse("{\"46000\":\"中国移动\",\"310260\":\"T-Mobile\",\"46002\":\"中国移动\","
+                + "\"20801\":\"Orange\",\"99999\":\"\"}");
+        assertEquals(4, index.size());
+        assertEquals("中国移动", index.find("46000"));
+        assertEquals("T-Mobile", index.find("310260"));
+        assertEquals("Orange", index.find("20801"));
+        assertNull(index.find("99999"));
+        assertNull(index.find("46001"));
+        assertNull(index.find(null));
+        // 相同的运营商名称只保留一份
+        assertSame(index.find("46000"), index.find("46002"));
+        assertSame(CarrierIndex.EMPTY, CarrierIndex.parse(""));
+        assertSame(CarrierIndex.EMPTY, CarrierIndex.parse("not json"));
+    }
+}
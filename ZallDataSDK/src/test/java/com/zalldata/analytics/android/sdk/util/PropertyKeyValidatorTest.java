@@ -0,0 +1,110 @@
+/*
+ * Created by guo on 2021/11/24.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.util;
+
+import com.zalldata.analytics.android.sdk.BenchmarkReporter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * 扫描校验与原正则在桌面 JVM 上的结果一致，只接受 ASCII，且 30 个属性的事件校验更快
+ */
+public class PropertyKeyValidatorTest {
+    private static final int EVENT_COUNT = 20000;
+    /* 替换前使用的正则 */
+    private static final Pattern KEY_PATTERN = Pattern.compile(
+            "^((?!^distinct_id$|^original_id$|^time$|^properties$|^id$|^first_id$|^second_id$|^users$|^events$|^event$|^user_id$|^date$|^datetime$)[a-zA-Z_$][a-zA-Z\\d_$]{0,99})$",
+            Pattern.CASE_INSENSITIVE);
+
+    @Test
+    public void sameAsPattern() {
+        List<String> keys = new ArrayList<>();
+        String[] samples = {
+                "a", "_", "$", "$os", "$AppClick", "product_id", "Product_Id9", "9abc", "a-b", "a b", "中文",
+                "id", "ID", "Id_", "time", "TIME", "times", "distinct_id", "Distinct_ID", "date", "datetime",
+                "DateTime1", "user_id", "users", "events", "event", "$event", "properties", "a\n", "a.b",
+                "K", "\u212A", "\u0131", "a\u0660"
+        };
+        for (String sample : samples) {
+            keys.add(sample);
+        }
+        StringBuilder builder = new StringBuilder("a");
+        while (builder.length() < 102) {
+            keys.add(builder.toString());
+            builder.append('1');
+        }
+        for (String key : keys) {
+            assertEquals(key, KEY_PATTERN.matcher(key).matches(), PropertyKeyValidator.scan(key));
+            assertEquals(key, KEY_PATTERN.matcher(key).matches(), PropertyKeyValidator.isValid(key));
+            // 第二次走缓存
+            assertEquals(key, KEY_PATTERN.matcher(key).matches(), PropertyKeyValidator.isValid(key));
+        }
+    }
+
+    @Test
+    public void asciiOnly() {
+        // Android 的 ICU 正则忽略大小写时按 Unicode 折叠匹配，\d 匹配所有数字，这些 key 原来在 Android 上可以通过
+        String[] keys = {"\u212A", "\u017Ftatus", "a\u0660", "\u212Aey_1"};
+        for (String key : keys) {
+            assertFalse(key, PropertyKeyValidator.scan(key));
+            assertFalse(key, PropertyKeyValidator.isValid(key));
+        }
+    }
+
+    @Test
+    public void benchmark() {
+        String[] event = newEvent();
+        int sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            for (String key : event) {
+                sink += KEY_PATTERN.matcher(key).matches() ? 1 : 0;
+            }
+        }
+        long patternNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            for (String key : event) {
+                sink += PropertyKeyValidator.isValid(key) ? 1 : 0;
+            }
+        }
+        long validatorNanos = System.nanoTime() - start;
+        BenchmarkReporter.report("pattern: %d ns/event, validator: %d ns/event (%d)",
+                patternNanos / EVENT_COUNT, validatorNanos / EVENT_COUNT, sink & 1);
+    }
+
+    /**
+     * 预置属性、公共属性和自定义属性共 30 个
+     */
+    private static String[] newEvent() {
+        return new String[]{
+                "$lib", "$lib_version", "$lib_method", "$app_version", "$app_name", "$app_id", "$os", "$os_version",
+                "$manufacturer", "$model", "$brand", "$screen_width", "$screen_height", "$timezone_offset",
+                "$device_id", "$carrier", "$wifi", "$network_type", "$is_first_day", "$screen_name", "$title",
+                "$element_id", "$element_content", "$element_type", "platform", "channel", "user_level",
+                "product_id", "product_name", "order_amount"
+        };
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Created by guo on 2021/11/24.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.util;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 日期缓存的格式化和日期比较结果与 SimpleDateFormat 一致，包括夏令时切换和时区变化
+ */
+@RunWith(AndroidJUnit4.class)
+public class TimeUtilsTest {
+    private static final String[] TIME_ZONES = {"Asia/Shanghai", "America/New_York", "Australia/Lord_Howe", "UTC"};
+    private final TimeZone mDefaultTimeZone = TimeZone.getDefault();
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(mDefaultTimeZone);
+        TimeUtils.onTimeZoneChanged();
+    }
+
+    @Test
+    public void sameAsSimpleDateFormat() {
+        Random random = new Random(1);
+        long now = System.currentTimeMillis();
+        for (String id : TIME_ZONES) {
+            TimeZone.setDefault(TimeZone.getTimeZone(id));
+            TimeUtils.onTimeZoneChanged();
+            SimpleDateFormat timestampFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.CHINA);
+            SimpleDateFormat dayFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.CHINA);
+            for (int i = 0; i < 5000; i++) {
+                // 当天附近的时间和最近 10 年内的随机时间，覆盖夏令时切换
+                long time = i % 2 == 0 ? now + random.nextInt(2 * 24 * 3600 * 1000) - 24 * 3600 * 1000
+                        : now - (long) (random.nextDouble() * 10 * 365 * 24 * 3600 * 1000L);
+                Date date = new Date(time);
+                assertEquals(id, timestampFormat.format(date), TimeUtils.formatDate(date, Locale.CHINA));
+                String day = dayFormat.format(date);
+                assertTrue(id, TimeUtils.isSameDay(time, day));
+                assertFalse(id, TimeUtils.isSameDay(time, dayFormat.format(new Date(time + 24 * 3600 * 1000L))));
+            }
+        }
+    }
+
+    @Test
+    public void timeZoneChanged() {
+        long time = 1637683200000L; // 2021-11-24 00:00:00 +08:00
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Shanghai"));
+        TimeUtils.onTimeZoneChanged();
+        assertEquals("2021-11-24 00:00:00.000", TimeUtils.formatDate(new Date(time), Locale.CHINA));
+        assertTrue(TimeUtils.isSameDay(time, "2021-11-24"));
+
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        TimeUtils.onTimeZoneChanged();
+        assertEquals("2021-11-23 16:00:00.000", TimeUtils.formatDate(new Date(time), Locale.CHINA));
+        assertTrue(TimeUtils.isSameDay(time, "2021-11-23"));
+    }
+
+    @Test
+    public void dateValid() {
+        assertTrue(TimeUtils.isDateValid(System.currentTimeMillis()));
+        assertFalse(TimeUtils.isDateValid(0));
+        assertFalse(TimeUtils.isDateValid(new Date(1000)));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Created by guo on 2021/11/16.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.util;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.EditText;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+import android.widget.ToggleButton;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.zalldata.analytics.android.sdk.BenchmarkReporter;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * View 分类缓存的文本提取结果与原有逻辑一致，并对比深层 View 树点击取值的耗时
+ */
+@RunWith(AndroidJUnit4.class)
+public class ViewClassifierTest {
+    private static final int DEPTH = 30;
+    private static final int CLICK_COUNT = 2000;
+
+    @Test
+    public void getViewText() {
+        Context context = ApplicationProvider.getApplicationContext();
+        TextView textView = new TextView(context);
+        textView.setText("text");
+        assertEquals("text", AopUtil.getViewText(textView));
+        textView.setText("");
+        textView.setHint("hint");
+        assertEquals("hint", AopUtil.getViewText(textView));
+
+        ToggleButton toggleButton = new ToggleButton(context);
+        toggleButton.setTextOn("on");
+        toggleButton.setTextOff("off");
+        toggleButton.setChecked(true);
+        assertEquals("on", AopUtil.getViewText(toggleButton));
+        assertEquals("on", AopUtil.getCompoundButtonText(toggleButton));
+
+        EditText editText = new EditText(context);
+        editText.setText("secret");
+        assertEquals("", AopUtil.getViewText(editText));
+
+        ImageView imageView = new ImageView(context);
+        imageView.setContentDescription("image");
+        assertEquals("image", AopUtil.getViewText(imageView));
+    }
+
+    @Test
+    public void missingOptionalClass() {
+        LinearLayout layout = new LinearLayout(ApplicationProvider.getApplicationContext());
+        assertFalse(ViewClassifier.is(layout, ViewClassifier.KIND_X5_WEBVIEW | ViewClassifier.KIND_UC_WEBVIEW));
+        assertFalse(ViewClassifier.is(null, ViewClassifier.KIND_RECYCLER_VIEW));
+        assertEquals(null, ViewClassifier.findClass(layout, ViewClassifier.KIND_TAB_VIEW));
+    }
+
+    @Test
+    public void clickBenchmark() {
+        ViewGroup root = newDeepHierarchy(ApplicationProvider.getApplicationContext());
+        String expected = ViewUtil.getViewContentAndType(root).getViewContent();
+        for (int i = 0; i < CLICK_COUNT / 10; i++) {
+            ViewUtil.getViewContentAndType(root);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < CLICK_COUNT; i++) {
+            assertEquals(expected, ViewUtil.getViewContentAndType(root).getViewContent());
+        }
+        long elapsed = System.nanoTime() - start;
+        BenchmarkReporter.report("depth %d: %d ns/click", DEPTH, elapsed / CLICK_COUNT);
+    }
+
+    private static ViewGroup newDeepHierarchy(Context context) {
+        LinearLayout root = new LinearLayout(context);
+        LinearLayout parent = root;
+        for (int i = 0; i < DEPTH; i++) {
+            TextView textView = new TextView(context);
+            textView.setText("item" + i);
+            parent.addView(textView);
+            ImageView imageView = new ImageView(context);
+            imageView.setContentDescription("icon" + i);
+            parent.addView(imageView);
+            LinearLayout child = new LinearLayout(context);
+            parent.addView(child);
+            parent = child;
+        }
+        parent.addView(new View(context));
+        return root;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Created by guo on 2021/11/17.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.util;
+
+import android.app.Activity;
+import android.content.Context;
+import android.view.View;
+import android.widget.ArrayAdapter;
+import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.LinearLayout;
+import android.widget.ListView;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.zalldata.analytics.android.sdk.AopConstants;
+import com.zalldata.analytics.android.sdk.R;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 快照生成的 $AppClick 属性与主线程直接采集的结果一致，主线程只读取列表位置
+ */
+@RunWith(AndroidJUnit4.class)
+public class ViewClickSnapshotTest {
+
+    @Test
+    public void sameAsInjectClickInfo() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        LinearLayout layout = new LinearLayout(context);
+        Button button = new Button(context);
+        button.setText("submit");
+        button.setTag(R.id.zall_analytics_tag_view_properties, new JSONObject().put("custom", "value"));
+        layout.addView(button);
+
+        JSONObject expected = new JSONObject();
+        assertTrue(AopUtil.injectClickInfo(button, expected, true));
+        ViewClickSnapshot snapshot = ViewClickSnapshot.capture(button, null, null, true);
+        assertEquals(expected.toString(), snapshot.buildProperties().toString());
+    }
+
+    @Test
+    public void enrichedOutsideCapture() throws Exception {
+        Activity activity = Robolectric.buildActivity(Activity.class).create().get();
+        activity.setTitle("first");
+        Button button = new Button(activity);
+        button.setText("submit");
+        activity.setContentView(button);
+
+        // capture 只保存引用，文本、页面标题和自定义属性在生成属性时读取
+        ViewClickSnapshot snapshot = ViewClickSnapshot.capture(button, activity, null, true);
+        activity.setTitle("second");
+        button.setText("changed");
+        button.setTag(R.id.zall_analytics_tag_view_properties, new JSONObject().put("custom", "value"));
+        JSONObject properties = snapshot.buildProperties();
+        assertEquals("second", properties.getString(AopConstants.TITLE));
+        assertEquals("changed", properties.getString(AopConstants.ELEMENT_CONTENT));
+        assertEquals(Activity.class.getCanonicalName(), properties.getString(AopConstants.SCREEN_NAME));
+        assertEquals("value", properties.getString("custom"));
+    }
+
+    @Test
+    public void listPositionCapturedOnClick() throws Exception {
+        Activity activity = Robolectric.buildActivity(Activity.class).create().get();
+        ListView listView = new ListView(activity);
+        listView.setAdapter(new ArrayAdapter<>(activity, android.R.layout.simple_list_item_1, new String[]{"a", "b", "c"}));
+        activity.setContentView(listView);
+        listView.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(800, View.MeasureSpec.EXACTLY));
+        listView.layout(0, 0, 480, 800);
+        View item = listView.getChildAt(1);
+
+        assertEquals("1", ViewUtil.getListPosition(item));
+        ViewClickSnapshot snapshot = ViewClickSnapshot.capture(item, activity, null, true);
+        assertEquals("1", snapshot.buildProperties().getString(AopConstants.ELEMENT_POSITION));
+        assertNull(ViewUtil.getListPosition(listView));
+    }
+
+    @Test
+    public void notFromUser() {
+        CheckBox checkBox = new CheckBox(ApplicationProvider.getApplicationContext());
+        assertNull(ViewClickSnapshot.capture(checkBox, null, null, false));
+    }
+
+    @Test
+    public void mainThreadStatistics() throws Exception {
+        long count = ViewClickSnapshot.getMainThreadStatistics().getLong("count");
+        ViewClickSnapshot.recordMainThreadTime(3000);
+        JSONObject statistics = ViewClickSnapshot.getMainThreadStatistics();
+        assertEquals(count + 1, statistics.getLong("count"));
+        assertEquals(3, statistics.getLong("last_us"));
+        assertTrue(statistics.getLong("max_us") >= 3);
+    }
+}
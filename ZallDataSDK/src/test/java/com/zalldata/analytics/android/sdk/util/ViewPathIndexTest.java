@@ -0,0 +1,119 @@
+/*
+ * Created by guo on 2021/11/18.
+ * Copyright 2015－2021 Zall Data Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zalldata.analytics.android.sdk.util;
+
+import android.content.Context;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.zalldata.analytics.android.sdk.visual.model.ViewNode;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 使用前缀缓存计算的 $element_path 与完整计算的结果一致，布局变化后缓存失效，非主线程不使用缓存
+ */
+@RunWith(AndroidJUnit4.class)
+public class ViewPathIndexTest {
+
+    @Test
+    public void cachedPathSameAsFull() {
+        Context context = ApplicationProvider.getApplicationContext();
+        FrameLayout root = new FrameLayout(context);
+        LinearLayout container = new LinearLayout(context);
+        root.addView(container);
+        TextView first = new TextView(context);
+        first.setText("first");
+        TextView second = new TextView(context);
+        second.setText("second");
+        container.addView(first);
+        container.addView(second);
+
+        ViewUtil.clear();
+        ViewNode full = ViewUtil.getViewPathAndPosition(second);
+        ViewPathIndex.Generation generation = ViewPathIndex.getGeneration(root);
+        assertNotNull(ViewPathIndex.get(container, generation, generation.getVersion()));
+
+        ViewNode cached = ViewUtil.getViewPathAndPosition(second);
+        assertEquals(full.getViewPath(), cached.getViewPath());
+        assertEquals(full.getViewOriginalPath(), cached.getViewOriginalPath());
+        assertEquals(full.getViewPosition(), cached.getViewPosition());
+        assertEquals("second", cached.getViewContent());
+
+        ViewUtil.clear();
+        ViewNode firstFull = ViewUtil.getViewPathAndPosition(first);
+        ViewUtil.getViewPathAndPosition(second);
+        assertEquals(firstFull.getViewPath(), ViewUtil.getViewPathAndPosition(first).getViewPath());
+    }
+
+    @Test
+    public void invalidatedByLayout() {
+        Context context = ApplicationProvider.getApplicationContext();
+        FrameLayout root = new FrameLayout(context);
+        LinearLayout container = new LinearLayout(context);
+        root.addView(container);
+        TextView textView = new TextView(context);
+        container.addView(textView);
+
+        ViewUtil.getViewPathAndPosition(textView);
+        ViewPathIndex.Generation generation = ViewPathIndex.getGeneration(root);
+        int version = generation.getVersion();
+        assertNotNull(ViewPathIndex.get(container, generation, version));
+        generation.onGlobalLayout();
+        assertNull(ViewPathIndex.get(container, generation, generation.getVersion()));
+    }
+
+    @Test
+    public void noCacheOffMainThread() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        final FrameLayout root = new FrameLayout(context);
+        LinearLayout container = new LinearLayout(context);
+        root.addView(container);
+        final TextView textView = new TextView(context);
+        container.addView(textView);
+
+        ViewUtil.clear();
+        ViewNode full = ViewUtil.getViewPathAndPosition(textView);
+        final AtomicReference<ViewPathIndex.Generation> generation = new AtomicReference<>();
+        final AtomicReference<ViewNode> background = new AtomicReference<>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                generation.set(ViewPathIndex.getGeneration(root));
+                background.set(ViewUtil.getViewPathAndPosition(textView));
+            }
+        });
+        thread.start();
+        thread.join();
+        // 非主线程不注册监听，也不读写缓存，结果与完整计算一致
+        assertNull(generation.get());
+        assertEquals(full.getViewPath(), background.get().getViewPath());
+        assertEquals(full.getViewOriginalPath(), background.get().getViewOriginalPath());
+    }
+}